@@ -0,0 +1,55 @@
+package namara.client;
+
+import namara.client.exception.ColumnNotFoundException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregating numeric columns of a page, read from records and from column vectors, and the cost of
+ * decoding a page into column vectors. Scores are reported per page
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColumnarBenchmark {
+    private Page page;
+    private ColumnarPage columns;
+
+    @Setup
+    public void setUp() {
+        page = PageFixtures.page(PageFixtures.PAGE_SIZE);
+        columns = page.toColumns();
+    }
+
+    @Benchmark
+    public double sumRecords() throws ColumnNotFoundException {
+        double sum = 0;
+        for(Record record : page) {
+            sum += record.getValue("population").asLong() + record.getValue("latitude").asDouble();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double sumColumns() throws ColumnNotFoundException {
+        return columns.getColumn("population").sum() + columns.getColumn("latitude").sum();
+    }
+
+    @Benchmark
+    public ColumnarPage decode() {
+        return page.toColumns();
+    }
+}
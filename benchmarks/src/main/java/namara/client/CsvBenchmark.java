@@ -0,0 +1,87 @@
+package namara.client;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a page of records as CSV with CsvWriter, against calling toString() on each Value and writing
+ * through a BufferedWriter. Output is discarded, so only the formatting and encoding are measured. Scores
+ * are reported per page
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvBenchmark {
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    private Page page;
+
+    /**
+     * One writer for the whole run, as in a long export
+     */
+    private CsvWriter csvWriter;
+
+    @Setup
+    public void setUp() {
+        page = PageFixtures.page(PageFixtures.PAGE_SIZE);
+        csvWriter = new CsvWriter(DISCARD);
+    }
+
+    @Benchmark
+    public long csvWriter() throws IOException {
+        CsvWriter writer = csvWriter;
+        for(Record record : page) {
+            writer.writeRecord(record);
+        }
+        writer.flush();
+        return writer.getRowCount();
+    }
+
+    @Benchmark
+    public long valueToString() throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(DISCARD, StandardCharsets.UTF_8));
+        long rows = 0;
+        for(Record record : page) {
+            Iterator<Value> values = record.iterator();
+            while(values.hasNext()) {
+                Value value = values.next();
+                writer.write(value.isNull() ? "" : value.get().toString());
+                if(values.hasNext()) {
+                    writer.write(',');
+                }
+            }
+            writer.write("\r\n");
+            rows++;
+        }
+        writer.flush();
+        return rows;
+    }
+}
@@ -0,0 +1,75 @@
+package namara.client;
+
+import org.json.JSONObject;
+
+import java.util.Random;
+
+/**
+ * Builds query responses shaped like the pages Namara returns, for benchmarks to read from. Responses are
+ * generated as JSON text and parsed, so that numbers get the same types as they would from the wire
+ */
+final class PageFixtures {
+    /**
+     * Records in a page, the default query limit
+     */
+    static final int PAGE_SIZE = 250;
+
+    enum Status { ACTIVE, INACTIVE, PENDING }
+
+    private static final String[] CITIES = { "Toronto", "Montréal", "Vancouver", "Calgary", "Halifax", "Winnipeg" };
+
+    private PageFixtures() {
+    }
+
+    /**
+     * Builds a page of records with a mix of column types. Columns are:
+     * id (int), population (long), latitude (double), price (decimal), price_text (decimal as text),
+     * active (boolean), city (text), status (enum as text), opened_on (date as text), geometry (object),
+     * tags (array), notes (mostly null) and bad_number (text that is not a number)
+     *
+     * @param records number of records in the page
+     * @return the query response, holding the records under "results"
+     */
+    static JSONObject response(int records) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder("{\"results\":[");
+
+        for(int i = 0; i < records; i++) {
+            if(i > 0) {
+                json.append(',');
+            }
+
+            double latitude = 43 + random.nextDouble() * 6;
+            double longitude = -123 + random.nextDouble() * 60;
+            String price = (random.nextInt(100000) / 100) + "." + String.format("%02d", random.nextInt(100));
+
+            json.append('{')
+                    .append("\"id\":").append(i + 1).append(',')
+                    .append("\"population\":").append(5_000_000_000L + random.nextInt(Integer.MAX_VALUE)).append(',')
+                    .append("\"latitude\":").append(latitude).append(',')
+                    .append("\"price\":").append(price).append(',')
+                    .append("\"price_text\":\"").append(price).append("\",")
+                    .append("\"active\":").append(random.nextBoolean()).append(',')
+                    .append("\"city\":").append(JSONObject.quote(CITIES[random.nextInt(CITIES.length)])).append(',')
+                    .append("\"status\":\"").append(Status.values()[random.nextInt(Status.values().length)]).append("\",")
+                    .append("\"opened_on\":\"").append(String.format("20%02d-%02d-%02d",
+                            random.nextInt(19), random.nextInt(12) + 1, random.nextInt(28) + 1)).append("\",")
+                    .append("\"geometry\":{\"type\":\"Point\",\"coordinates\":[").append(longitude).append(',')
+                            .append(latitude).append("]},")
+                    .append("\"tags\":[\"open-data\",\"municipal\"],")
+                    .append("\"notes\":").append(i % 10 == 0 ? "\"Reviewed\"" : "null").append(',')
+                    .append("\"bad_number\":\"n/a\"")
+                    .append('}');
+        }
+
+        return new JSONObject(json.append("]}").toString());
+    }
+
+    /**
+     * @param records number of records in the page
+     * @return a page of records, as ResultSet would build it
+     */
+    static Page page(int records) {
+        return new Page(response(records), records, 0);
+    }
+}
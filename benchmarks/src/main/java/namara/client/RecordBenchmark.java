@@ -0,0 +1,155 @@
+package namara.client;
+
+import namara.client.exception.ColumnNotFoundException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row access over a page of records. Each invocation reads every record of the page, and scores are
+ * reported per record
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordBenchmark {
+    public static class Listing {
+        private int id;
+        private long population;
+        private double latitude;
+        private String city;
+        private boolean active;
+        private PageFixtures.Status status;
+    }
+
+    private JSONObject response;
+    private List<Record> records;
+
+    @Setup
+    public void setUp() {
+        response = PageFixtures.response(PageFixtures.PAGE_SIZE);
+        records = new Page(response, PageFixtures.PAGE_SIZE, 0).getRecords();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void getValue(Blackhole blackhole) throws ColumnNotFoundException {
+        for(Record record : records) {
+            blackhole.consume(record.getValue("city"));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void getValueByIndex(Blackhole blackhole) {
+        int index = records.get(0).getSchema().indexOf("city");
+        for(Record record : records) {
+            blackhole.consume(record.getValue(index));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void getValueMissingColumn(Blackhole blackhole) {
+        for(Record record : records) {
+            try {
+                blackhole.consume(record.getValue("missing"));
+            } catch(ColumnNotFoundException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void getEveryValue(Blackhole blackhole) throws ColumnNotFoundException {
+        for(Record record : records) {
+            for(String column : record.columnsNames()) {
+                blackhole.consume(record.getValue(column).get());
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void iterator(Blackhole blackhole) {
+        for(Record record : records) {
+            Iterator<Value> values = record.iterator();
+            while(values.hasNext()) {
+                blackhole.consume(values.next().get());
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void cursor(Blackhole blackhole) {
+        ValueCursor cursor = new ValueCursor();
+        for(Record record : records) {
+            cursor.reset(record);
+            while(cursor.next()) {
+                blackhole.consume(cursor.value().get());
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void columnsNames(Blackhole blackhole) {
+        for(Record record : records) {
+            blackhole.consume(record.columnsNames());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void mapAs(Blackhole blackhole) {
+        for(Record record : records) {
+            blackhole.consume(record.as(Listing.class));
+        }
+    }
+
+    /**
+     * The same mapping as mapAs, written by hand against getValue
+     */
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void mapByHand(Blackhole blackhole) throws ColumnNotFoundException {
+        for(Record record : records) {
+            Listing listing = new Listing();
+            listing.id = record.getValue("id").asInt();
+            listing.population = record.getValue("population").asLong();
+            listing.latitude = record.getValue("latitude").asDouble();
+            listing.city = record.getValue("city").asString();
+            listing.active = record.getValue("active").asBoolean();
+            listing.status = record.getValue("status").asEnum(PageFixtures.Status.class);
+            blackhole.consume(listing);
+        }
+    }
+
+    /**
+     * Building the records of a page from an already parsed response
+     */
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public Page buildPage() {
+        return new Page(response, PageFixtures.PAGE_SIZE, 0);
+    }
+}
@@ -0,0 +1,357 @@
+package namara.client;
+
+import namara.client.exception.ColumnNotFoundException;
+import namara.client.exception.ValueConversionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Value conversions over a column of a page of records, for both the successful paths and the failure
+ * paths of as* and try*. Each invocation converts the column for every record of the page, and scores
+ * are reported per conversion
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueBenchmark {
+    private static final BigDecimal DEFAULT_DECIMAL = BigDecimal.ZERO;
+    private static final BigInteger DEFAULT_INTEGER = BigInteger.ZERO;
+    private static final Date DEFAULT_DATE = new Date(0);
+
+    private Value[] ids;
+    private Value[] populations;
+    private Value[] latitudes;
+    private Value[] prices;
+    private Value[] priceTexts;
+    private Value[] actives;
+    private Value[] cities;
+    private Value[] statuses;
+    private Value[] openedOns;
+    private Value[] geometries;
+    private Value[] tags;
+    private Value[] notes;
+    private Value[] badNumbers;
+
+    private SimpleDateFormat dateFormat;
+
+    @Setup
+    public void setUp() throws ColumnNotFoundException {
+        List<Record> records = PageFixtures.page(PageFixtures.PAGE_SIZE).getRecords();
+
+        ids = column(records, "id");
+        populations = column(records, "population");
+        latitudes = column(records, "latitude");
+        prices = column(records, "price");
+        priceTexts = column(records, "price_text");
+        actives = column(records, "active");
+        cities = column(records, "city");
+        statuses = column(records, "status");
+        openedOns = column(records, "opened_on");
+        geometries = column(records, "geometry");
+        tags = column(records, "tags");
+        notes = column(records, "notes");
+        badNumbers = column(records, "bad_number");
+
+        dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    }
+
+    /*
+     * ======================= Conversions =====================================
+     */
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void get(Blackhole blackhole) {
+        for(Value value : cities) {
+            blackhole.consume(value.get());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void isNull(Blackhole blackhole) {
+        for(Value value : notes) {
+            blackhole.consume(value.isNull());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asInt(Blackhole blackhole) {
+        for(Value value : ids) {
+            blackhole.consume(value.asInt());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asLong(Blackhole blackhole) {
+        for(Value value : populations) {
+            blackhole.consume(value.asLong());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asDouble(Blackhole blackhole) {
+        for(Value value : latitudes) {
+            blackhole.consume(value.asDouble());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asBigDecimal(Blackhole blackhole) {
+        for(Value value : prices) {
+            blackhole.consume(value.asBigDecimal());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asBigDecimalFromText(Blackhole blackhole) {
+        for(Value value : priceTexts) {
+            blackhole.consume(value.asBigDecimal());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asBigInteger(Blackhole blackhole) {
+        for(Value value : populations) {
+            blackhole.consume(value.asBigInteger());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asBoolean(Blackhole blackhole) {
+        for(Value value : actives) {
+            blackhole.consume(value.asBoolean());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asString(Blackhole blackhole) {
+        for(Value value : cities) {
+            blackhole.consume(value.asString());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asEnum(Blackhole blackhole) {
+        for(Value value : statuses) {
+            blackhole.consume(value.asEnum(PageFixtures.Status.class));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asDate(Blackhole blackhole) {
+        for(Value value : openedOns) {
+            blackhole.consume(value.asDate(dateFormat));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asLocalDate(Blackhole blackhole) {
+        for(Value value : openedOns) {
+            blackhole.consume(value.asLocalDate());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asLocalDatePattern(Blackhole blackhole) {
+        for(Value value : openedOns) {
+            blackhole.consume(value.asLocalDate("yyyy-MM-dd"));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asInstant(Blackhole blackhole) {
+        for(Value value : openedOns) {
+            blackhole.consume(value.asInstant());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asJSONObject(Blackhole blackhole) {
+        for(Value value : geometries) {
+            blackhole.consume(value.asJSONObject());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asJSONArray(Blackhole blackhole) {
+        for(Value value : tags) {
+            blackhole.consume(value.asJSONArray());
+        }
+    }
+
+    /*
+     * ======================= Failed as* Conversions =====================================
+     */
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asIntFailure(Blackhole blackhole) {
+        for(Value value : badNumbers) {
+            try {
+                blackhole.consume(value.asInt());
+            } catch(ValueConversionException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asBigDecimalFailure(Blackhole blackhole) {
+        for(Value value : badNumbers) {
+            try {
+                blackhole.consume(value.asBigDecimal());
+            } catch(ValueConversionException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void asDateFailure(Blackhole blackhole) {
+        for(Value value : badNumbers) {
+            try {
+                blackhole.consume(value.asDate(dateFormat));
+            } catch(ValueConversionException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+
+    /*
+     * ======================= Failed try* Conversions =====================================
+     */
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void tryInt(Blackhole blackhole) {
+        for(Value value : badNumbers) {
+            blackhole.consume(value.tryInt(-1));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void tryLong(Blackhole blackhole) {
+        for(Value value : badNumbers) {
+            blackhole.consume(value.tryLong(-1L));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void tryDouble(Blackhole blackhole) {
+        for(Value value : badNumbers) {
+            blackhole.consume(value.tryDouble(-1.0));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void tryBigDecimal(Blackhole blackhole) {
+        for(Value value : badNumbers) {
+            blackhole.consume(value.tryBigDecimal(DEFAULT_DECIMAL));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void tryBigInteger(Blackhole blackhole) {
+        for(Value value : badNumbers) {
+            blackhole.consume(value.tryBigInteger(DEFAULT_INTEGER));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void tryBoolean(Blackhole blackhole) {
+        for(Value value : badNumbers) {
+            blackhole.consume(value.tryBoolean(false));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void tryEnum(Blackhole blackhole) {
+        for(Value value : cities) {
+            blackhole.consume(value.tryEnum(PageFixtures.Status.class, PageFixtures.Status.PENDING));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void tryDate(Blackhole blackhole) {
+        for(Value value : badNumbers) {
+            blackhole.consume(value.tryDate(dateFormat, DEFAULT_DATE));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void tryDateNull(Blackhole blackhole) {
+        for(Value value : notes) {
+            blackhole.consume(value.tryDate(dateFormat, DEFAULT_DATE));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void tryJSONObject(Blackhole blackhole) {
+        for(Value value : cities) {
+            blackhole.consume(value.tryJSONObject(null));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PageFixtures.PAGE_SIZE)
+    public void tryString(Blackhole blackhole) {
+        for(Value value : notes) {
+            blackhole.consume(value.tryString(""));
+        }
+    }
+
+    private static Value[] column(List<Record> records, String column) throws ColumnNotFoundException {
+        Value[] values = new Value[records.size()];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = records.get(i).getValue(column);
+        }
+        return values;
+    }
+}
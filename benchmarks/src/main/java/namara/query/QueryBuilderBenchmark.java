@@ -0,0 +1,182 @@
+package namara.query;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building queries through the expression chain, and building page queries from a finished QueryBuilder
+ * as ResultSet does while paginating. Clauses are sized by the number of columns, conditions or data
+ * sets they hold.
+ *
+ * Run with "-prof gc" to report the bytes allocated for each query alongside the time taken.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBuilderBenchmark {
+    /**
+     * Number of pages built from one query, the pages in a scan of 10,000 records
+     */
+    private static final int PAGES = 40;
+    private static final int PAGE_SIZE = 250;
+
+    @Param({ "1", "8", "32" })
+    private int size;
+
+    private String[] columns;
+    private String[] conditions;
+    private Identifier[] joins;
+    private Identifier dataSet;
+    private String joinCondition;
+
+    private QueryBuilder builtQuery;
+
+    @Setup
+    public void setUp() {
+        columns = new String[size];
+        conditions = new String[size];
+        joins = new Identifier[size];
+        for(int i = 0; i < size; i++) {
+            columns[i] = "c" + i;
+            conditions[i] = "c" + i + " > " + (i * 10);
+            joins[i] = new Identifier("en-" + i, "ds-" + i, "j" + i);
+        }
+        dataSet = new Identifier("en-2018", "ds-42", "t");
+
+        StringBuilder on = new StringBuilder();
+        for(int i = 0; i < size; i++) {
+            on.append(i == 0 ? "" : " AND ").append("t.c").append(i).append(" = j0.c").append(i);
+        }
+        joinCondition = on.toString();
+
+        builtQuery = fullChain();
+    }
+
+    @Benchmark
+    public String selectFrom() {
+        return new QueryBuilder()
+                .select().columns(columns)
+                .from().dataSet(dataSet)
+                .toString();
+    }
+
+    @Benchmark
+    public String where() {
+        Where where = new QueryBuilder()
+                .select().all()
+                .from().dataSet(dataSet)
+                .where(conditions[0]);
+        for(int i = 1; i < conditions.length; i++) {
+            where.and(conditions[i]);
+        }
+        return where.toString();
+    }
+
+    @Benchmark
+    public String whereBetween() {
+        Where where = new QueryBuilder()
+                .select().all()
+                .from().dataSet(dataSet)
+                .where();
+        where.exists(new QueryBuilder().select().all().from().dataSet(joins[0]));
+        for(int i = 0; i < columns.length; i++) {
+            where.andBetween(columns[i], i, i + 100);
+        }
+        return where.toString();
+    }
+
+    /**
+     * A join on every column, from a list of data sets
+     */
+    @Benchmark
+    public String join() {
+        return new QueryBuilder()
+                .select().columns(columns)
+                .from().dataSets(joins)
+                .innerJoin(dataSet).on(joinCondition)
+                .toString();
+    }
+
+    @Benchmark
+    public String groupByHaving() {
+        return new QueryBuilder()
+                .select().columns(columns).column("COUNT(*) AS n")
+                .from().dataSet(dataSet)
+                .groupBy(columns)
+                .having(conditions)
+                .orderBy(OrderByType.DESC, columns)
+                .toString();
+    }
+
+    @Benchmark
+    public String orderBy() {
+        OrderBy orderBy = new QueryBuilder()
+                .select().all()
+                .from().dataSet(dataSet)
+                .orderBy();
+        for(String column : columns) {
+            orderBy.column(column, OrderByType.DESC);
+        }
+        return orderBy.toString();
+    }
+
+    @Benchmark
+    public QueryBuilder buildFullChain() {
+        return fullChain();
+    }
+
+    /**
+     * The page queries for a scan of a query that has already been built
+     */
+    @Benchmark
+    @OperationsPerInvocation(PAGES)
+    public void buildQueryPages(Blackhole blackhole) {
+        for(int page = 0; page < PAGES; page++) {
+            blackhole.consume(builtQuery.buildQuery(PAGE_SIZE, page * PAGE_SIZE));
+        }
+    }
+
+    /**
+     * Builds the query and the page queries for a scan, as each new ResultSet does
+     */
+    @Benchmark
+    public void buildAndPaginate(Blackhole blackhole) {
+        QueryBuilder query = fullChain();
+        for(int page = 0; page < PAGES; page++) {
+            blackhole.consume(query.buildQuery(PAGE_SIZE, page * PAGE_SIZE));
+        }
+    }
+
+    private QueryBuilder fullChain() {
+        Join join = new QueryBuilder()
+                .select().columns(columns)
+                .from().dataSet(dataSet)
+                .leftOuterJoin(joins[0]).on("t.c0 = j0.c0");
+
+        Where where = join.where(conditions[0]);
+        for(int i = 1; i < conditions.length; i++) {
+            where.and(conditions[i]);
+        }
+
+        return where.groupBy(columns)
+                .having(conditions)
+                .orderBy(columns)
+                .getBuilder();
+    }
+}
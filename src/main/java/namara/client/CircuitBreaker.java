@@ -0,0 +1,110 @@
+package namara.client;
+
+import java.util.concurrent.TimeUnit;
+
+public class CircuitBreaker {
+    public enum State {
+        /**
+         * Requests flow normally
+         */
+        CLOSED,
+
+        /**
+         * Requests fail fast without reaching the host
+         */
+        OPEN,
+
+        /**
+         * A single trial request is let through to check whether the host has recovered
+         */
+        HALF_OPEN
+    }
+
+    static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    static final long DEFAULT_OPEN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openedAt;
+    private boolean trialInFlight = false;
+
+    /**
+     * Creates a circuit breaker that opens after 5 consecutive failures and stays open for 30 seconds
+     */
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a circuit breaker for a Namara host. A single breaker can be shared by every client
+     * connecting to the same host.
+     *
+     * @param failureThreshold consecutive failures that open the circuit
+     * @param openDuration how long the circuit stays open before a trial request is allowed
+     * @param unit time unit for openDuration
+     */
+    public CircuitBreaker(int failureThreshold, long openDuration, TimeUnit unit) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = unit.toMillis(openDuration);
+    }
+
+    /**
+     * @return the current state of the circuit
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Checks whether a request may be sent. When the open period has passed, one caller is let
+     * through as a trial and the rest keep failing fast until it reports back
+     *
+     * @return true if the request may be sent
+     */
+    synchronized boolean tryAcquire() {
+        switch(state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if(System.currentTimeMillis() - openedAt < openMillis) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default: // HALF_OPEN
+                if(trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Reports that a request was cancelled before it completed. A cancelled trial says nothing about the
+     * host, so the circuit stays half open and the next caller is let through as the trial instead
+     */
+    synchronized void onCancelled() {
+        trialInFlight = false;
+    }
+
+    synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if(state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+}
@@ -4,11 +4,17 @@ import namara.client.exception.AuthorizationException;
 import namara.client.exception.ConnectionException;
 import namara.client.exception.NamaraException;
 import namara.client.exception.QueryException;
+import namara.query.QueryBuilder;
 import okhttp3.*;
 import org.apache.commons.lang3.StringUtils;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class Client {
 
@@ -40,6 +46,17 @@ public class Client {
          */
         public String responseBody;
 
+        /**
+         * Retry-After header of the response, if any
+         */
+        public String retryAfter;
+
+        /**
+         * Response left open for its body to be streamed. Only set for successful streamed requests,
+         * in which case responseBody is null
+         */
+        public Response openResponse;
+
         /**
          * Initialize a new Namara response to be read by client
          *
@@ -51,6 +68,17 @@ public class Client {
             this.responseCode = responseCode;
             this.responseBody = responseBody;
         }
+
+        /**
+         * Initialize a new Namara response out of a completed http response, reading its body
+         *
+         * @param response
+         * @throws IOException
+         */
+        public NamaraResponse(Response response) throws IOException {
+            this(response.code(), response.body().string());
+            this.retryAfter = response.header("Retry-After");
+        }
     }
 
     class Connection {
@@ -65,9 +93,22 @@ public class Client {
          */
         private String apiKey;
 
-        public Connection(String namaraHost, String apiKey) {
+        /**
+         * The http client shared by every request made through this connection. Holds the connection
+         * pool and dispatcher, so it is built once and reused across threads and result sets
+         */
+        private final OkHttpClient httpClient;
+
+        /**
+         * Executor that asynchronous responses are completed on. May be null
+         */
+        private final Executor callbackExecutor;
+
+        public Connection(String namaraHost, String apiKey, OkHttpClient httpClient, Executor callbackExecutor) {
             this.namaraHost = processHostString(namaraHost);
             this.apiKey = apiKey;
+            this.httpClient = httpClient;
+            this.callbackExecutor = callbackExecutor;
         }
 
         public String getNamaraHost() {
@@ -98,8 +139,6 @@ public class Client {
          * @throws IOException
          */
         private NamaraResponse getJSON(HttpUrl url) throws IOException {
-            OkHttpClient httpClient = new OkHttpClient();
-
             Request request = new Request.Builder()
                     .addHeader("X-Api-Key", apiKey)
                     .addHeader("Accept", "application/json")
@@ -107,8 +146,9 @@ public class Client {
                     .url(url)
                     .build();
 
-            Response response = httpClient.newCall(request).execute();
-            return new NamaraResponse(response.code(), response.body().string());
+            try (Response response = httpClient.newCall(request).execute()) {
+                return new NamaraResponse(response);
+            }
         }
 
         /**
@@ -116,23 +156,98 @@ public class Client {
          *
          * @param url
          * @param requestBody
+         * @param query the query being requested, to tag the call with for listeners. May be null
          * @return The response body + response code
          * @throws IOException
          */
-        private NamaraResponse postJSON(HttpUrl url, String requestBody) throws IOException {
-            OkHttpClient httpClient = new OkHttpClient();
+        private NamaraResponse postJSON(HttpUrl url, String requestBody, QueryInfo query) throws IOException {
+            try (Response response = httpClient.newCall(buildPost(url, requestBody, query)).execute()) {
+                return new NamaraResponse(response);
+            }
+        }
+
+        /**
+         * Perform a POST.json request to namara and leave a successful response open so that the body can be
+         * read incrementally. The caller is responsible for closing the open response
+         *
+         * @param url
+         * @param requestBody
+         * @param query the query being requested, to tag the call with for listeners. May be null
+         * @return The open response, or the response body + response code if unsuccessful
+         * @throws IOException
+         */
+        private NamaraResponse postJSONStream(HttpUrl url, String requestBody, QueryInfo query) throws IOException {
+            Response response = httpClient.newCall(buildPost(url, requestBody, query)).execute();
+            if(response.code() != 200) {
+                try (Response closeable = response) {
+                    return new NamaraResponse(closeable);
+                }
+            }
+
+            NamaraResponse namaraResponse = new NamaraResponse(response.code(), null);
+            namaraResponse.openResponse = response;
+            return namaraResponse;
+        }
+
+        /**
+         * Perform a POST.json request to namara without blocking the calling thread. The returned future
+         * is completed on the callback executor, or on the dispatcher thread if none is configured.
+         * Cancelling the future cancels the underlying call.
+         *
+         * @param url
+         * @param requestBody
+         * @param query the query being requested, to tag the call with for listeners. May be null
+         * @return A future holding the response body + response code
+         */
+        private CompletableFuture<NamaraResponse> postJSONAsync(HttpUrl url, String requestBody, QueryInfo query) {
+            final CompletableFuture<NamaraResponse> future = new CompletableFuture();
+            final Call call = httpClient.newCall(buildPost(url, requestBody, query));
+
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    complete(() -> future.completeExceptionally(e));
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    try (Response closeable = response) {
+                        NamaraResponse namaraResponse = new NamaraResponse(closeable);
+                        complete(() -> future.complete(namaraResponse));
+                    } catch(IOException e) {
+                        complete(() -> future.completeExceptionally(e));
+                    }
+                }
+            });
+
+            future.whenComplete((response, e) -> {
+                if(future.isCancelled()) {
+                    call.cancel();
+                }
+            });
+
+            return future;
+        }
+
+        private void complete(Runnable completion) {
+            if(callbackExecutor == null) {
+                completion.run();
+            } else {
+                callbackExecutor.execute(completion);
+            }
+        }
+
+        private Request buildPost(HttpUrl url, String requestBody, QueryInfo query) {
             RequestBody body = RequestBody.create(MediaType.parse("application/json; charset=utf-8"), requestBody);
 
-            Request request = new Request.Builder()
+            return new Request.Builder()
                     .addHeader("X-API-Key", apiKey)
                     .addHeader("Accept", "application/json")
                     .addHeader("Content-Type", "application/json")
                     .url(url)
                     .post(body)
+                    .tag(query)
                     .build();
-
-            Response response = httpClient.newCall(request).execute();
-            return new NamaraResponse(response.code(), response.body().string());
         }
     }
 
@@ -169,7 +284,98 @@ public class Client {
     /**
      * Any meta information about the Namara
      */
-    private Meta meta;
+    private volatile Meta meta;
+
+    /**
+     * Time at which the cached meta should be refreshed, in System.currentTimeMillis() terms
+     */
+    private volatile long metaExpiresAt;
+
+    /**
+     * The meta fetch currently in flight, if any. Concurrent callers wait on this rather than
+     * issuing fetches of their own
+     */
+    private final AtomicReference<CompletableFuture<Meta>> metaLoad = new AtomicReference();
+
+    /**
+     * How long fetched meta is cached for
+     */
+    private final long metaTtlMillis;
+
+    /**
+     * How long the default meta is used for after failing to fetch meta, before trying again
+     */
+    static final long META_FAILURE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Bytes transferred by this client, on the wire and decoded
+     */
+    private final TransferStats transferStats = new TransferStats();
+
+    /**
+     * Latencies, status counts and bytes for requests made by this client, by endpoint
+     */
+    private final ClientMetrics metrics = new ClientMetrics();
+
+    /**
+     * Policy for retrying query requests that fail transiently
+     */
+    private final RetryPolicy retryPolicy;
+
+    /**
+     * Breaker that fails requests fast while the Namara host is down
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * Rate limiters pacing requests, keyed by endpoint
+     */
+    private final Map<String, RateLimiter> rateLimiters;
+
+    /**
+     * Cache of result pages, if enabled
+     */
+    private final PageCache pageCache;
+
+    /**
+     * Cache of result pages for versioned data sets on local disk, if enabled
+     */
+    private final DiskPageCache diskPageCache;
+
+    /**
+     * Shares requests for the same page between concurrent callers, if enabled
+     */
+    private final QueryCoalescer queryCoalescer;
+
+    /**
+     * Listener for query lifecycle events, if any
+     */
+    private final ClientListener listener;
+
+    /**
+     * The host and credentials of this client, which cached pages are keyed under
+     */
+    private final String cacheScope;
+
+    /**
+     * Schedules delayed retries of asynchronous requests without holding a thread while waiting.
+     * Nothing that blocks may run here, since every client shares it
+     */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "namara-client-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Runs background refreshes of the query meta, which block on the network. Threads are only kept
+     * while refreshes are running, so a slow meta endpoint holds up nothing but its own refresh
+     */
+    private static final ExecutorService META_REFRESHER = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "namara-client-meta-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * Making package private so this can be set in unit tests
@@ -188,7 +394,32 @@ public class Client {
      * @param apiKey The API Key for the connecting user
      */
     public Client(String namaraHost, String apiKey) {
-        this.connection = new Connection(namaraHost, apiKey);
+        this(namaraHost, apiKey, new ClientOptions());
+    }
+
+    /**
+     * Builds a new client for interfacing with Namara, using the given transport options.
+     *
+     * The underlying connection pool and dispatcher are created once and shared by every request
+     * and every ResultSet using this client, so a single client should be reused where possible.
+     *
+     * @see ClientOptions
+     * @param namaraHost The host name for Namara, such as "https://api.namara.io"
+     * @param apiKey The API Key for the connecting user
+     * @param options Transport options for the client
+     */
+    public Client(String namaraHost, String apiKey, ClientOptions options) {
+        this.connection = new Connection(namaraHost, apiKey, options.buildHttpClient(transferStats, metrics),
+                options.getCallbackExecutor());
+        this.retryPolicy = options.getRetryPolicy();
+        this.circuitBreaker = options.getCircuitBreaker();
+        this.rateLimiters = options.getRateLimiters();
+        this.metaTtlMillis = options.getMetaTtlMillis();
+        this.pageCache = options.getPageCache();
+        this.diskPageCache = options.getDiskPageCache();
+        this.queryCoalescer = options.isCoalesceQueries() ? new QueryCoalescer() : null;
+        this.listener = options.getListener();
+        this.cacheScope = QueryKey.scope(PROTOCOL + "://" + connection.getNamaraHost(), apiKey);
     }
 
     /**
@@ -250,45 +481,601 @@ public class Client {
      * Isolated for testing/mocking
      */
     JSONObject query(HttpUrl connectionUrl, String jsonString) throws AuthorizationException, ConnectionException, QueryException {
+        QueryKey key = needsQueryKey() ? QueryKey.ofRequestBody(jsonString, cacheScope) : null;
+        QueryInfo query = listener == null ? null : QueryInfo.of(key);
+        notifyListener(l -> l.queryStart(query));
+
         try {
-            NamaraResponse response = connection.postJSON(connectionUrl, jsonString);
-            switch(Integer.valueOf(response.responseCode)) {
-                case 200:
-                    return new JSONObject(response.responseBody);
-                case 401:
-                case 403:
-                    throw new AuthorizationException("Unauthorized: " + response.responseBody);
-                case 422:
-                    throw new QueryException("Error executing query. Got response: " + response.responseBody);
-                default:
-                    throw new ConnectionException("Something went wrong connecting to Namara. [" +
-                            response.responseCode + "] " + response.responseBody, connectionUrl.toString(), jsonString);
+            String cached = cachedPage(key);
+            if(cached != null) {
+                return parse(cached, query);
             }
-        } catch(IOException e) {
-            throw new ConnectionException("Encountered error when connecting: " + e.getMessage(), connectionUrl.toString());
+
+            String body;
+            if(queryCoalescer != null) {
+                body = queryCoalescer.join(key, () -> fetchQuery(connectionUrl, jsonString, key, query),
+                        connectionUrl.toString());
+            } else {
+                body = fetchQuery(connectionUrl, jsonString, key, query);
+            }
+            // Parsed per caller, so coalesced callers never share a response object
+            return parse(body, query);
+        } catch(AuthorizationException | ConnectionException | QueryException e) {
+            notifyListener(l -> l.queryFailed(query, e));
+            throw e;
+        }
+    }
+
+    private String fetchQuery(HttpUrl connectionUrl, String jsonString, QueryKey key, QueryInfo query)
+            throws AuthorizationException, ConnectionException, QueryException {
+        NamaraResponse response = executeWithRetries(connectionUrl,
+                () -> connection.postJSON(connectionUrl, jsonString, query));
+        String body = readQueryBody(response, connectionUrl, jsonString);
+        cachePage(key, body);
+        return body;
+    }
+
+    /**
+     * Parses a response body, timing it for the listener
+     */
+    private JSONObject parse(String body, QueryInfo query) {
+        long start = System.nanoTime();
+        JSONObject responseObject = new JSONObject(body);
+        long duration = System.nanoTime() - start;
+        notifyListener(l -> l.parseEnd(query, duration));
+        return responseObject;
+    }
+
+    /**
+     * Performs a query request on Namara and streams the resulting records as they are read from the
+     * response, rather than reading the whole response into memory first. Only one record is held in
+     * memory at a time, and the first record is available before the whole response has arrived.
+     *
+     * The stream holds a connection open until it has been read to the end or closed.
+     *
+     * @param queryString query to issue to namara
+     * @return A stream of the resulting records
+     * @throws AuthorizationException when unable to authorize client for namara
+     * @throws ConnectionException when unable to connect to namara
+     * @throws QueryException when unable to build or execute query on namara
+     */
+    public RecordStream queryStream(String queryString) throws AuthorizationException, ConnectionException, QueryException {
+        String jsonString = new JSONObject().put("query", queryString).toString();
+        HttpUrl url = buildUrl(Endpoints.QUERY_ENDPOINT);
+        return queryStream(url, jsonString);
+    }
+
+    /*
+     * Isolated for testing/mocking
+     */
+    RecordStream queryStream(HttpUrl connectionUrl, String jsonString) throws AuthorizationException, ConnectionException, QueryException {
+        QueryInfo query = listener == null ? null : QueryInfo.of(QueryKey.ofRequestBody(jsonString));
+        notifyListener(l -> l.queryStart(query));
+
+        try {
+            NamaraResponse response = executeWithRetries(connectionUrl,
+                    () -> connection.postJSONStream(connectionUrl, jsonString, query));
+
+            if(response.openResponse != null) {
+                Response openResponse = response.openResponse;
+                return new RecordStream(openResponse.body().charStream(), openResponse, connectionUrl.toString());
+            }
+
+            // Error responses are read whole to build the exception
+            readQueryBody(response, connectionUrl, jsonString);
+            throw new ConnectionException("Unexpected response from Namara. [" + response.responseCode + "]", connectionUrl.toString());
+        } catch(AuthorizationException | ConnectionException | QueryException e) {
+            notifyListener(l -> l.queryFailed(query, e));
+            throw e;
         }
     }
 
     /**
-     * Retrieves the query limit for Namara
+     * Performs a query request on Namara without blocking the calling thread.
+     *
+     * The returned future completes with the response object, or exceptionally with an
+     * AuthorizationException, ConnectionException or QueryException as thrown by the blocking query.
+     *
+     * @param queryString query to issue to namara
+     * @return A future holding the response object for the query
+     */
+    public CompletableFuture<JSONObject> queryAsync(String queryString) {
+        String jsonString = new JSONObject().put("query", queryString).toString();
+        HttpUrl url = buildUrl(Endpoints.QUERY_ENDPOINT);
+        return queryAsync(url, jsonString);
+    }
+
+    /*
+     * Isolated for testing/mocking
+     */
+    CompletableFuture<JSONObject> queryAsync(HttpUrl connectionUrl, String jsonString) {
+        QueryKey key = needsQueryKey() ? QueryKey.ofRequestBody(jsonString, cacheScope) : null;
+        QueryInfo query = listener == null ? null : QueryInfo.of(key);
+        notifyListener(l -> l.queryStart(query));
+
+        String cached = cachedPage(key);
+        if(cached != null) {
+            return CompletableFuture.completedFuture(parse(cached, query));
+        }
+
+        CompletableFuture<String> bodyFuture;
+        if(queryCoalescer != null) {
+            bodyFuture = queryCoalescer.joinAsync(key, () -> fetchQueryAsync(connectionUrl, jsonString, key, query));
+        } else {
+            bodyFuture = fetchQueryAsync(connectionUrl, jsonString, key, query);
+        }
+        // Parsed per caller, so coalesced callers never share a response object
+        CompletableFuture<JSONObject> future = propagateCancel(bodyFuture.thenApply(body -> parse(body, query)),
+                bodyFuture);
+
+        if(listener != null) {
+            future.whenComplete((response, e) -> {
+                if(e != null && !future.isCancelled()) {
+                    notifyListener(l -> l.queryFailed(query, e));
+                }
+            });
+        }
+        return future;
+    }
+
+    private CompletableFuture<String> fetchQueryAsync(HttpUrl connectionUrl, String jsonString, QueryKey key,
+                                                      QueryInfo query) {
+        CompletableFuture<NamaraResponse> responseFuture = executeAsyncWithRetries(connectionUrl,
+                () -> connection.postJSONAsync(connectionUrl, jsonString, query));
+        CompletableFuture<String> future = new CompletableFuture();
+
+        responseFuture.whenComplete((response, e) -> {
+            if(e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                future.completeExceptionally(cause instanceof NamaraException ? cause :
+                        new ConnectionException("Encountered error when connecting: " + cause.getMessage(),
+                                connectionUrl.toString()));
+                return;
+            }
+
+            try {
+                String body = readQueryBody(response, connectionUrl, jsonString);
+                cachePage(key, body);
+                future.complete(body);
+            } catch(NamaraException ne) {
+                future.completeExceptionally(ne);
+            }
+        });
+
+        // Propagate cancellation to the call
+        return propagateCancel(future, responseFuture);
+    }
+
+    /**
+     * Fetches one LIMIT/OFFSET window of a query without blocking the calling thread
+     *
+     * @param queryBuilder the query to fetch a page of
+     * @param limit the number of records to fetch
+     * @param offset the offset to start fetching from
+     * @return A future holding the page of records
+     */
+    public CompletableFuture<Page> fetchPageAsync(QueryBuilder queryBuilder, int limit, int offset) {
+        CompletableFuture<JSONObject> responseFuture = queryAsync(queryBuilder.buildQuery(limit, offset));
+        return propagateCancel(responseFuture.thenApply(responseObject -> new Page(responseObject, limit, offset)),
+                responseFuture);
+    }
+
+    /**
+     * Cancelling a dependent future does not cancel the future it was derived from, so wire that up here
+     *
+     * @param dependent the future handed out to the caller
+     * @param source the future it was derived from
+     * @return the dependent future
+     */
+    static <T> CompletableFuture<T> propagateCancel(CompletableFuture<T> dependent, CompletableFuture<?> source) {
+        dependent.whenComplete((result, e) -> {
+            if(dependent.isCancelled()) {
+                source.cancel(true);
+            }
+        });
+        return dependent;
+    }
+
+    /**
+     * Sends a request, retrying connection failures and retryable statuses according to the retry policy.
+     * Requests fail fast while the circuit breaker is open.
+     *
+     * @param connectionUrl the url being requested
+     * @param request sends the request
+     * @return the final response, which may still be unsuccessful
+     * @throws ConnectionException when the circuit is open, or the request could not be sent on any attempt
+     */
+    private NamaraResponse executeWithRetries(HttpUrl connectionUrl, ResponseSupplier request) throws ConnectionException {
+        RateLimiter rateLimiter = rateLimiterFor(connectionUrl);
+
+        for(int attempt = 1; ; attempt++) {
+            if(rateLimiter != null) {
+                sleep(rateLimiter.reserveMillis(), connectionUrl);
+            }
+
+            if(!circuitBreaker.tryAcquire()) {
+                throw circuitOpen(connectionUrl);
+            }
+
+            NamaraResponse response;
+            try {
+                response = request.get();
+            } catch(RuntimeException e) {
+                // Failed before reaching the host, so release the trial, if this was one, for the next caller
+                circuitBreaker.onCancelled();
+                throw e;
+            } catch(IOException e) {
+                circuitBreaker.onFailure();
+                if(attempt >= retryPolicy.getMaxAttempts()) {
+                    throw new ConnectionException("Encountered error when connecting: " + e.getMessage(), connectionUrl.toString());
+                }
+                sleep(retryPolicy.backoffMillis(attempt, null), connectionUrl);
+                continue;
+            }
+
+            recordOutcome(response, rateLimiter);
+            if(attempt >= retryPolicy.getMaxAttempts() || !retryPolicy.isRetryable(response.responseCode)) {
+                return response;
+            }
+            sleep(retryDelay(attempt, response, rateLimiter), connectionUrl);
+        }
+    }
+
+    /**
+     * Asynchronous counterpart of executeWithRetries. Backoffs are scheduled rather than slept, and
+     * cancelling the returned future cancels whichever attempt is in flight.
+     *
+     * @param connectionUrl the url being requested
+     * @param request sends the request
+     * @return A future holding the final response
+     */
+    private CompletableFuture<NamaraResponse> executeAsyncWithRetries(HttpUrl connectionUrl,
+                                                                      Supplier<CompletableFuture<NamaraResponse>> request) {
+        CompletableFuture<NamaraResponse> result = new CompletableFuture();
+        AtomicReference<Future<?>> current = new AtomicReference();
+
+        result.whenComplete((response, e) -> {
+            Future<?> inFlight = current.get();
+            if(result.isCancelled() && inFlight != null) {
+                inFlight.cancel(true);
+            }
+        });
+
+        attemptAsync(connectionUrl, request, 1, result, current);
+        return result;
+    }
+
+    private void attemptAsync(HttpUrl connectionUrl, Supplier<CompletableFuture<NamaraResponse>> request, int attempt,
+                              CompletableFuture<NamaraResponse> result, AtomicReference<Future<?>> current) {
+        if(result.isDone()) {
+            return;
+        }
+
+        RateLimiter rateLimiter = rateLimiterFor(connectionUrl);
+        long delay = rateLimiter == null ? 0 : rateLimiter.reserveMillis();
+        if(delay > 0) {
+            current.set(SCHEDULER.schedule(
+                    () -> sendAsync(connectionUrl, request, attempt, result, current, rateLimiter),
+                    delay, TimeUnit.MILLISECONDS));
+        } else {
+            sendAsync(connectionUrl, request, attempt, result, current, rateLimiter);
+        }
+    }
+
+    private void sendAsync(HttpUrl connectionUrl, Supplier<CompletableFuture<NamaraResponse>> request, int attempt,
+                           CompletableFuture<NamaraResponse> result, AtomicReference<Future<?>> current,
+                           RateLimiter rateLimiter) {
+        if(result.isDone()) {
+            return;
+        }
+        if(!circuitBreaker.tryAcquire()) {
+            result.completeExceptionally(circuitOpen(connectionUrl));
+            return;
+        }
+
+        CompletableFuture<NamaraResponse> call;
+        try {
+            call = request.get();
+        } catch(RuntimeException e) {
+            circuitBreaker.onCancelled();
+            result.completeExceptionally(e);
+            return;
+        }
+        current.set(call);
+        // Cancelled while the call was being started, after the previous future had already been cancelled
+        if(result.isCancelled()) {
+            call.cancel(true);
+        }
+
+        call.whenComplete((response, e) -> {
+            long backoff;
+            if(e != null) {
+                if(call.isCancelled()) {
+                    circuitBreaker.onCancelled();
+                    return;
+                }
+                circuitBreaker.onFailure();
+                if(attempt >= retryPolicy.getMaxAttempts()) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+                backoff = retryPolicy.backoffMillis(attempt, null);
+            } else {
+                recordOutcome(response, rateLimiter);
+                if(attempt >= retryPolicy.getMaxAttempts() || !retryPolicy.isRetryable(response.responseCode)) {
+                    result.complete(response);
+                    return;
+                }
+                backoff = retryDelay(attempt, response, rateLimiter);
+            }
+
+            current.set(SCHEDULER.schedule(
+                    () -> attemptAsync(connectionUrl, request, attempt + 1, result, current),
+                    backoff, TimeUnit.MILLISECONDS));
+        });
+    }
+
+    /**
+     * Computes the wait before retrying a response. A rate limiter told of a 429 already holds the next
+     * request back until its Retry-After has passed, so the header is not waited on a second time here
+     */
+    private long retryDelay(int attempt, NamaraResponse response, RateLimiter rateLimiter) {
+        if(rateLimiter != null && response.responseCode == 429 && retryPolicy.retryAfterMillis(response.retryAfter) >= 0) {
+            return 0;
+        }
+        return retryPolicy.backoffMillis(attempt, response.retryAfter);
+    }
+
+    /**
+     * Server errors count against the circuit breaker. Anything else shows the host is up.
+     * A 429 slows the rate limiter down, and successes let it recover
+     */
+    private void recordOutcome(NamaraResponse response, RateLimiter rateLimiter) {
+        if(response.responseCode >= 500) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+
+        if(rateLimiter != null) {
+            if(response.responseCode == 429) {
+                rateLimiter.onThrottled(retryPolicy.retryAfterMillis(response.retryAfter));
+            } else if(response.responseCode / 100 == 2) {
+                rateLimiter.onSuccess();
+            }
+        }
+    }
+
+    private RateLimiter rateLimiterFor(HttpUrl connectionUrl) {
+        if(rateLimiters.isEmpty()) {
+            return null;
+        }
+        return rateLimiters.get(StringUtils.removeStart(connectionUrl.encodedPath(), "/"));
+    }
+
+    private ConnectionException circuitOpen(HttpUrl connectionUrl) {
+        return new ConnectionException("Circuit open for " + connectionUrl.host() +
+                ", not sending request after repeated failures", connectionUrl.toString());
+    }
+
+    private void sleep(long millis, HttpUrl connectionUrl) throws ConnectionException {
+        try {
+            Thread.sleep(millis);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionException("Interrupted while waiting to retry", connectionUrl.toString());
+        }
+    }
+
+    /**
+     * Sends a single request attempt
+     */
+    private interface ResponseSupplier {
+        NamaraResponse get() throws IOException;
+    }
+
+    private boolean isCaching() {
+        return pageCache != null || diskPageCache != null;
+    }
+
+    private boolean needsQueryKey() {
+        return isCaching() || queryCoalescer != null || listener != null;
+    }
+
+    /**
+     * @return true if events are sent to a listener, so that callers can skip preparing events no one receives
+     */
+    boolean hasListener() {
+        return listener != null;
+    }
+
+    /**
+     * Sends an event to the listener, if there is one. Listener failures are ignored
+     *
+     * @param event the event to send
+     */
+    void notifyListener(Consumer<ClientListener> event) {
+        if(listener == null) {
+            return;
+        }
+
+        try {
+            event.accept(listener);
+        } catch(RuntimeException e) {
+            // Listeners must not break queries
+        }
+    }
+
+    /**
+     * Looks a page up in memory, then on disk. Pages found on disk are brought into memory
+     */
+    private String cachedPage(QueryKey key) {
+        if(key == null) {
+            return null;
+        }
+
+        String body = pageCache == null ? null : pageCache.get(key);
+        if(body == null && diskPageCache != null) {
+            body = diskPageCache.get(key);
+            if(body != null && pageCache != null) {
+                pageCache.put(key, body);
+            }
+        }
+        return body;
+    }
+
+    private void cachePage(QueryKey key, String body) {
+        if(key == null) {
+            return;
+        }
+
+        if(pageCache != null) {
+            pageCache.put(key, body);
+        }
+        if(diskPageCache != null) {
+            diskPageCache.put(key, body);
+        }
+    }
+
+    /**
+     * Checks the response from the query endpoint and returns its body
+     *
+     * @param response the response from Namara
+     * @param connectionUrl the url that was requested
+     * @param jsonString the request body that was sent
+     * @return the response body
+     * @throws AuthorizationException when unable to authorize client for namara
+     * @throws ConnectionException when the response was unexpected
+     * @throws QueryException when unable to execute query on namara
+     */
+    private String readQueryBody(NamaraResponse response, HttpUrl connectionUrl, String jsonString)
+            throws AuthorizationException, ConnectionException, QueryException {
+        switch(Integer.valueOf(response.responseCode)) {
+            case 200:
+                return response.responseBody;
+            case 401:
+            case 403:
+                throw new AuthorizationException("Unauthorized: " + response.responseBody);
+            case 422:
+                throw new QueryException("Error executing query. Got response: " + response.responseBody);
+            default:
+                throw new ConnectionException("Something went wrong connecting to Namara. [" +
+                        response.responseCode + "] " + response.responseBody, connectionUrl.toString(), jsonString);
+        }
+    }
+
+    /**
+     * Retrieves the query limit for Namara.
+     *
+     * Meta is cached for the configured TTL. Once it expires the stale value keeps being returned while a
+     * single background fetch refreshes it, so only the very first call waits on the network, and concurrent
+     * first calls share one fetch. If meta can not be fetched, the last fetched limit, or the default limit if
+     * there is none, is used for a short while before trying again.
+     *
      * @return The maximum number of records that can be queried
      */
     Integer getQueryLimit() {
-        /*
-         * Build meta object from client
-         */
-        if(meta == null) {
-            // If we aren't able to resolve this endpoint, just use a default
-            try {
-                setMeta();
-            } catch(NamaraException e) {
-                return DEFAULT_QUERY_LIMIT;
+        return getQueryLimit(buildUrl(Endpoints.META_ENDPOINT));
+    }
+
+    /*
+     * Isolated for testing/mocking
+     */
+    Integer getQueryLimit(HttpUrl metaUrl) {
+        Meta current = meta;
+        if(current != null) {
+            if(isMetaExpired() && metaLoad.get() == null) {
+                // Serve the stale value while refreshing in the background
+                META_REFRESHER.execute(() -> loadMeta(metaUrl));
+            }
+            return current.getQueryLimit();
+        }
+
+        return loadMeta(metaUrl).join().getQueryLimit();
+    }
+
+    private boolean isMetaExpired() {
+        return System.currentTimeMillis() >= metaExpiresAt;
+    }
+
+    /**
+     * Fetches the meta, or joins the fetch already in flight. Never completes exceptionally; if the fetch
+     * fails, the meta already held is kept, or the default meta is used if there is none, and the next
+     * fetch is put off for a short while
+     *
+     * @param metaUrl the url to fetch meta from
+     * @return A future holding the meta
+     */
+    private CompletableFuture<Meta> loadMeta(HttpUrl metaUrl) {
+        CompletableFuture<Meta> load = new CompletableFuture();
+        while(!metaLoad.compareAndSet(null, load)) {
+            CompletableFuture<Meta> inFlight = metaLoad.get();
+            if(inFlight != null) {
+                return inFlight;
             }
         }
 
-        return meta.getQueryLimit();
+        try {
+            // Another load may have finished between the caller's check and winning the fetch
+            if(meta == null || isMetaExpired()) {
+                setMeta(metaUrl);
+            }
+        } catch(NamaraException | RuntimeException e) {
+            // If we aren't able to resolve this endpoint or read what it sent, keep what we have, or just use a default
+            if(meta == null) {
+                this.meta = new Meta(new JSONObject());
+            }
+            this.metaExpiresAt = System.currentTimeMillis() + Math.min(metaTtlMillis, META_FAILURE_TTL_MILLIS);
+        } finally {
+            metaLoad.set(null);
+            load.complete(meta);
+        }
+
+        return load;
     }
 
+    /**
+     * Gets the page cache for this client
+     *
+     * @return the page cache, or null if page caching is not enabled
+     */
+    public PageCache getPageCache() {
+        return pageCache;
+    }
+
+    /**
+     * Gets the disk page cache for this client
+     *
+     * @return the disk page cache, or null if disk caching is not enabled
+     */
+    public DiskPageCache getDiskPageCache() {
+        return diskPageCache;
+    }
+
+    /*
+     * Isolated for testing
+     */
+    QueryCoalescer getQueryCoalescer() {
+        return queryCoalescer;
+    }
+
+    /**
+     * Gets the metrics for requests made by this client, by endpoint
+     *
+     * @return the client metrics
+     */
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the counters for bytes sent and received by this client, both on the wire and after decoding
+     *
+     * @return the transfer counters
+     */
+    public TransferStats getTransferStats() {
+        return transferStats;
+    }
 
     /**
      * Gets the processed host string for the client that will be used on connecting
@@ -320,13 +1107,20 @@ public class Client {
      * @throws AuthorizationException when apiKey is not authorized
      */
     void setMeta() throws ConnectionException, AuthorizationException {
-        HttpUrl url = buildUrl(Endpoints.META_ENDPOINT);
+        setMeta(buildUrl(Endpoints.META_ENDPOINT));
+    }
 
+    /*
+     * Isolated for testing/mocking
+     */
+    void setMeta(HttpUrl url) throws ConnectionException, AuthorizationException {
         try {
             NamaraResponse response = connection.getJSON(url);
             switch(Integer.valueOf(response.responseCode)) {
                 case 200:
                     this.meta = new Meta(new JSONObject(response.responseBody));
+                    this.metaExpiresAt = System.currentTimeMillis() + metaTtlMillis;
+                    return;
                 case 401:
                 case 403:
                     throw new AuthorizationException("Unauthorized: " + response.responseBody);
@@ -0,0 +1,88 @@
+package namara.client;
+
+/**
+ * Receives events over the lifecycle of each query, to attribute the time spent on a page to the network,
+ * the server, or parsing. Every event carries the query fingerprint and page offset, so that events for the
+ * pages of one scan can be grouped together.
+ *
+ * Events are delivered on the threads doing the work, so implementations must be thread safe and should
+ * return quickly. Exceptions thrown by a listener are ignored. All methods do nothing by default.
+ *
+ * @see ClientOptions#listener(ClientListener)
+ */
+public interface ClientListener {
+    /**
+     * Called when a query is issued, before checking any page cache
+     *
+     * @param query the query
+     */
+    default void queryStart(QueryInfo query) {}
+
+    /**
+     * Called when a host name lookup for the query has finished
+     *
+     * @param query the query
+     * @param durationNanos time taken by the lookup
+     */
+    default void dnsEnd(QueryInfo query, long durationNanos) {}
+
+    /**
+     * Called when a new connection for the query has been established, including any TLS handshake
+     *
+     * @param query the query
+     * @param durationNanos time taken to connect
+     */
+    default void connectEnd(QueryInfo query, long durationNanos) {}
+
+    /**
+     * Called when the TLS handshake for a new connection has finished
+     *
+     * @param query the query
+     * @param durationNanos time taken by the handshake
+     */
+    default void secureConnectEnd(QueryInfo query, long durationNanos) {}
+
+    /**
+     * Called when the response headers have arrived. The time since the request was sent is mostly
+     * spent by the server executing the query
+     *
+     * @param query the query
+     * @param statusCode the response status
+     * @param elapsedNanos time since the call started
+     */
+    default void responseHeaders(QueryInfo query, int statusCode, long elapsedNanos) {}
+
+    /**
+     * Called when the whole response body has been read
+     *
+     * @param query the query
+     * @param bytes response body bytes, as read from the wire
+     * @param elapsedNanos time since the call started
+     */
+    default void responseReceived(QueryInfo query, long bytes, long elapsedNanos) {}
+
+    /**
+     * Called when a response body has been parsed into a response object. For a window of a streaming
+     * ResultSet, called once the stream has been read to the end
+     *
+     * @param query the query
+     * @param durationNanos time taken to parse. For a stream, this includes time spent waiting on the response
+     */
+    default void parseEnd(QueryInfo query, long durationNanos) {}
+
+    /**
+     * Called when a page of records is handed to a ResultSet
+     *
+     * @param query the query for the page
+     * @param records the number of records in the page
+     */
+    default void pageDelivered(QueryInfo query, int records) {}
+
+    /**
+     * Called when a query fails after any retries
+     *
+     * @param query the query
+     * @param error the error the query failed with
+     */
+    default void queryFailed(QueryInfo query, Throwable error) {}
+}
@@ -0,0 +1,157 @@
+package namara.client;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class ClientMetrics implements MetricsRegistry {
+    /**
+     * Metrics for the requests made to one endpoint
+     */
+    public static class EndpointMetrics {
+        /**
+         * Index in statusCounts for requests that got no response
+         */
+        private static final int NO_RESPONSE = 0;
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        /**
+         * Counts of requests by status class, indexed by the first digit of the status, with 0 for no response
+         */
+        private final AtomicLongArray statusCounts = new AtomicLongArray(6);
+
+        private final AtomicLong inFlight = new AtomicLong();
+        private final AtomicLong bytesSent = new AtomicLong();
+        private final AtomicLong bytesReceived = new AtomicLong();
+
+        EndpointMetrics() {}
+
+        /**
+         * @return the histogram of request latencies, from sending the request to finishing with the response
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return the number of completed requests
+         */
+        public long getRequestCount() {
+            long total = 0;
+            for(int i = 0; i < statusCounts.length(); i++) {
+                total += statusCounts.get(i);
+            }
+            return total;
+        }
+
+        /**
+         * Gets the number of completed requests with a status in a class, such as 2 for 2xx
+         *
+         * @param statusClass the first digit of the status, from 1 to 5
+         * @return the number of requests
+         */
+        public long getStatusCount(int statusClass) {
+            return statusClass < 1 || statusClass >= statusCounts.length() ? 0 : statusCounts.get(statusClass);
+        }
+
+        /**
+         * @return the number of requests that failed without a response
+         */
+        public long getFailureCount() {
+            return statusCounts.get(NO_RESPONSE);
+        }
+
+        /**
+         * @return the number of requests that failed without a response, or with a 4xx or 5xx status
+         */
+        public long getErrorCount() {
+            return statusCounts.get(NO_RESPONSE) + statusCounts.get(4) + statusCounts.get(5);
+        }
+
+        /**
+         * @return the number of requests sent but not yet completed
+         */
+        public long getInFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * @return request body bytes sent, before any compression
+         */
+        public long getBytesSent() {
+            return bytesSent.get();
+        }
+
+        /**
+         * @return response body bytes received, after any decoding
+         */
+        public long getBytesReceived() {
+            return bytesReceived.get();
+        }
+
+        @Override
+        public String toString() {
+            return "EndpointMetrics{requests=" + getRequestCount() + ", errors=" + getErrorCount() +
+                    ", inFlight=" + getInFlight() + ", bytesSent=" + getBytesSent() +
+                    ", bytesReceived=" + getBytesReceived() + ", latency=" + latency + "}";
+        }
+    }
+
+    private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap();
+
+    /**
+     * Creates an empty set of metrics. Every Client keeps its own, which can be read through Client#getMetrics()
+     */
+    public ClientMetrics() {
+    }
+
+    @Override
+    public void requestStarted(String endpoint) {
+        endpoint(endpoint).inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void requestCompleted(String endpoint, int statusCode, long latencyNanos, long bytesSent, long bytesReceived) {
+        EndpointMetrics metrics = endpoint(endpoint);
+        int statusClass = statusCode / 100;
+
+        metrics.inFlight.decrementAndGet();
+        metrics.statusCounts.incrementAndGet(statusClass < 1 || statusClass > 5 ? EndpointMetrics.NO_RESPONSE : statusClass);
+        metrics.latency.record(latencyNanos, TimeUnit.NANOSECONDS);
+        metrics.bytesSent.addAndGet(bytesSent);
+        metrics.bytesReceived.addAndGet(bytesReceived);
+    }
+
+    /**
+     * @return the endpoints that have been requested, in alphabetical order
+     */
+    public Set<String> getEndpoints() {
+        return Collections.unmodifiableSet(new TreeSet(endpoints.keySet()));
+    }
+
+    /**
+     * Gets the metrics for an endpoint
+     *
+     * @param endpoint the endpoint path, such as "v0/query"
+     * @return the metrics, or null if the endpoint has not been requested
+     */
+    public EndpointMetrics getEndpoint(String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    @Override
+    public String toString() {
+        return "ClientMetrics" + new TreeMap(endpoints);
+    }
+
+    private EndpointMetrics endpoint(String endpoint) {
+        return endpoints.computeIfAbsent(endpoint, key -> new EndpointMetrics());
+    }
+}
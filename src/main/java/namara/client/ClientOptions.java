@@ -0,0 +1,491 @@
+package namara.client;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class ClientOptions {
+    /**
+     * Default number of idle connections kept open per client
+     */
+    static final int DEFAULT_MAX_IDLE_CONNECTIONS = 8;
+
+    /**
+     * Default time an idle connection will be kept alive for reuse
+     */
+    static final long DEFAULT_KEEP_ALIVE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Default maximum number of concurrent requests across all hosts
+     */
+    static final int DEFAULT_MAX_REQUESTS = 64;
+
+    /**
+     * Default maximum number of concurrent requests to the Namara host
+     */
+    static final int DEFAULT_MAX_REQUESTS_PER_HOST = 16;
+
+    /**
+     * Default connect, read and write timeouts
+     */
+    static final long DEFAULT_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * Default minimum request body size, in bytes, for gzipping requests when enabled
+     */
+    static final long DEFAULT_COMPRESS_REQUEST_THRESHOLD = 8 * 1024;
+
+    /**
+     * Default time query meta is cached for
+     */
+    static final long DEFAULT_META_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    private int maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+    private long keepAliveMillis = DEFAULT_KEEP_ALIVE_MILLIS;
+    private int maxRequests = DEFAULT_MAX_REQUESTS;
+    private int maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST;
+    private long connectTimeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private long readTimeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private long writeTimeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private boolean http2 = true;
+    private OkHttpClient httpClient;
+    private ExecutorService dispatcherExecutor;
+    private Executor callbackExecutor;
+    private boolean virtualThreads = false;
+    private boolean compressResponses = true;
+    private boolean compressRequests = false;
+    private long compressRequestThreshold = DEFAULT_COMPRESS_REQUEST_THRESHOLD;
+    private RetryPolicy retryPolicy = new RetryPolicy();
+    private CircuitBreaker circuitBreaker;
+    private final Map<String, RateLimiter> rateLimiters = new HashMap();
+    private long metaTtlMillis = DEFAULT_META_TTL_MILLIS;
+    private PageCache pageCache;
+    private DiskPageCache diskPageCache;
+    private boolean coalesceQueries = true;
+    private final List<MetricsRegistry> metricsRegistries = new ArrayList();
+    private ClientListener listener;
+
+    /**
+     * Creates a new set of client options with the default transport settings
+     */
+    public ClientOptions() {}
+
+    /**
+     * Sets the number of idle connections that will be pooled for reuse between requests
+     *
+     * @param maxIdleConnections the maximum number of idle connections
+     * @return the resulting options
+     */
+    public ClientOptions maxIdleConnections(int maxIdleConnections) {
+        this.maxIdleConnections = maxIdleConnections;
+        return this;
+    }
+
+    /**
+     * Sets how long an idle pooled connection will be kept alive before being closed
+     *
+     * @param duration keep alive duration
+     * @param unit time unit for duration
+     * @return the resulting options
+     */
+    public ClientOptions keepAlive(long duration, TimeUnit unit) {
+        this.keepAliveMillis = unit.toMillis(duration);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of requests that may be executing concurrently
+     *
+     * @param maxRequests maximum number of concurrent requests
+     * @return the resulting options
+     */
+    public ClientOptions maxRequests(int maxRequests) {
+        this.maxRequests = maxRequests;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of requests that may be executing concurrently against the Namara host
+     *
+     * @param maxRequestsPerHost maximum number of concurrent requests per host
+     * @return the resulting options
+     */
+    public ClientOptions maxRequestsPerHost(int maxRequestsPerHost) {
+        this.maxRequestsPerHost = maxRequestsPerHost;
+        return this;
+    }
+
+    /**
+     * Sets the connect timeout for new connections
+     *
+     * @param timeout timeout duration
+     * @param unit time unit for timeout
+     * @return the resulting options
+     */
+    public ClientOptions connectTimeout(long timeout, TimeUnit unit) {
+        this.connectTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Sets the read timeout for responses
+     *
+     * @param timeout timeout duration
+     * @param unit time unit for timeout
+     * @return the resulting options
+     */
+    public ClientOptions readTimeout(long timeout, TimeUnit unit) {
+        this.readTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Sets the write timeout for requests
+     *
+     * @param timeout timeout duration
+     * @param unit time unit for timeout
+     * @return the resulting options
+     */
+    public ClientOptions writeTimeout(long timeout, TimeUnit unit) {
+        this.writeTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Enables or disables HTTP/2 negotiation. When disabled, only HTTP/1.1 will be used
+     *
+     * @param http2 true to negotiate HTTP/2 where the host supports it
+     * @return the resulting options
+     */
+    public ClientOptions http2(boolean http2) {
+        this.http2 = http2;
+        return this;
+    }
+
+    /**
+     * Uses an existing OkHttpClient as the base for the transport. The connection pool and dispatcher
+     * of the given client are shared, so the pool and dispatcher settings in these options are ignored.
+     *
+     * @param httpClient the http client to share
+     * @return the resulting options
+     */
+    public ClientOptions httpClient(OkHttpClient httpClient) {
+        this.httpClient = httpClient;
+        return this;
+    }
+
+    /**
+     * Sets the executor service that asynchronous calls will be executed on by the dispatcher.
+     * By default the dispatcher creates its own cached thread pool
+     *
+     * @param dispatcherExecutor executor service for executing calls
+     * @return the resulting options
+     */
+    public ClientOptions dispatcherExecutor(ExecutorService dispatcherExecutor) {
+        this.dispatcherExecutor = dispatcherExecutor;
+        return this;
+    }
+
+    /**
+     * Sets the executor that futures returned by asynchronous queries will be completed on.
+     * By default futures are completed on the dispatcher thread that read the response, so any
+     * slow work chained onto them should use an executor of its own
+     *
+     * @param callbackExecutor executor for completing futures
+     * @return the resulting options
+     */
+    public ClientOptions callbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        return this;
+    }
+
+    /**
+     * Runs asynchronous calls on virtual threads rather than the dispatcher's pool of platform threads, so that
+     * many concurrent queryAsync calls and prefetching result sets only tie up a few carrier threads while
+     * waiting on Namara. Futures returned by asynchronous queries are also completed on virtual threads unless
+     * a callback executor is set. Requires Java 21 or later. Has no effect if a dispatcher executor or http
+     * client is set.
+     *
+     * Blocking calls, such as query, queryStream and result sets without prefetching, still run on the calling
+     * thread; call them from virtual threads of your own to get the same benefit. The dispatcher still runs at
+     * most maxRequests asynchronous calls at once, and maxRequestsPerHost against the Namara host, so raise
+     * those for many concurrent scans.
+     *
+     * @see #maxRequests(int)
+     * @see #maxRequestsPerHost(int)
+     * @see #isVirtualThreadsSupported()
+     * @param virtualThreads true to run asynchronous calls on virtual threads
+     * @return the resulting options
+     * @throws UnsupportedOperationException if enabled on a JVM without virtual threads
+     */
+    public ClientOptions virtualThreads(boolean virtualThreads) {
+        if(virtualThreads && !VirtualThreads.isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later, running " +
+                    System.getProperty("java.version"));
+        }
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    /**
+     * @return true if the running JVM supports virtual threads
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return VirtualThreads.isSupported();
+    }
+
+    /**
+     * Enables or disables negotiating gzip or deflate encoded responses. Responses are decoded transparently
+     *
+     * @param compressResponses true to accept compressed responses
+     * @return the resulting options
+     */
+    public ClientOptions compressResponses(boolean compressResponses) {
+        this.compressResponses = compressResponses;
+        return this;
+    }
+
+    /**
+     * Enables gzipping request bodies of at least the given size, such as long generated queries.
+     * The Namara host must accept gzip encoded requests, so this is disabled by default
+     *
+     * @param compressRequests true to gzip large request bodies
+     * @param threshold minimum body size in bytes to compress
+     * @return the resulting options
+     */
+    public ClientOptions compressRequests(boolean compressRequests, long threshold) {
+        this.compressRequests = compressRequests;
+        this.compressRequestThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * Sets the policy for retrying query requests that fail with a connection error or a transient status
+     *
+     * @see RetryPolicy#none()
+     * @param retryPolicy the retry policy
+     * @return the resulting options
+     */
+    public ClientOptions retryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    /**
+     * Sets the circuit breaker for the Namara host. Clients connecting to the same host can share a breaker.
+     * By default each client has a breaker of its own
+     *
+     * @param circuitBreaker the circuit breaker
+     * @return the resulting options
+     */
+    public ClientOptions circuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    /**
+     * Paces query requests through a rate limiter. To stay under a quota shared by several clients
+     * using the same API key, give them the same limiter
+     *
+     * @see RateLimiter#shared(String, String, double, int)
+     * @param rateLimiter the rate limiter for the query endpoint
+     * @return the resulting options
+     */
+    public ClientOptions rateLimiter(RateLimiter rateLimiter) {
+        return rateLimiter(Client.Endpoints.QUERY_ENDPOINT, rateLimiter);
+    }
+
+    /**
+     * Paces requests to an endpoint through a rate limiter. Only query requests are paced, so the
+     * query endpoint is the only one accepted
+     *
+     * @param endpoint the endpoint path, "v0/query"
+     * @param rateLimiter the rate limiter for the endpoint
+     * @return the resulting options
+     * @throws IllegalArgumentException if the endpoint is not the query endpoint
+     */
+    public ClientOptions rateLimiter(String endpoint, RateLimiter rateLimiter) {
+        String path = StringUtils.removeStart(endpoint, "/");
+        if(!Client.Endpoints.QUERY_ENDPOINT.equals(path)) {
+            throw new IllegalArgumentException("Rate limiters can only be set for " + Client.Endpoints.QUERY_ENDPOINT +
+                    ", not " + endpoint);
+        }
+        this.rateLimiters.put(path, rateLimiter);
+        return this;
+    }
+
+    /**
+     * Sets how long query meta, such as the query limit, is cached for before being refreshed
+     *
+     * @param ttl time to live
+     * @param unit time unit for ttl
+     * @return the resulting options
+     */
+    public ClientOptions metaTtl(long ttl, TimeUnit unit) {
+        this.metaTtlMillis = unit.toMillis(ttl);
+        return this;
+    }
+
+    /**
+     * Enables caching of query result pages in memory. Streamed queries are not cached
+     *
+     * @param pageCache the page cache
+     * @return the resulting options
+     */
+    public ClientOptions pageCache(PageCache pageCache) {
+        this.pageCache = pageCache;
+        return this;
+    }
+
+    /**
+     * Enables caching of result pages for queries that only read versioned data sets on local disk, so that they
+     * survive restarts. When used with a page cache, pages are looked up in memory first
+     *
+     * @param diskPageCache the disk page cache
+     * @return the resulting options
+     */
+    public ClientOptions diskPageCache(DiskPageCache diskPageCache) {
+        this.diskPageCache = diskPageCache;
+        return this;
+    }
+
+    /**
+     * Sets whether concurrent requests for the same page of the same query share a single request to
+     * Namara. Every caller receives the result, or the error, of the shared request. Enabled by default
+     *
+     * @param coalesceQueries true to share identical concurrent requests
+     * @return the resulting options
+     */
+    public ClientOptions coalesceQueries(boolean coalesceQueries) {
+        this.coalesceQueries = coalesceQueries;
+        return this;
+    }
+
+    /**
+     * Adds a registry that is told about every request, to bridge client metrics into a monitoring system.
+     * Metrics are always kept by the client itself as well
+     *
+     * @see Client#getMetrics()
+     * @param metricsRegistry the registry to report to
+     * @return the resulting options
+     */
+    public ClientOptions metricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistries.add(metricsRegistry);
+        return this;
+    }
+
+    /**
+     * Sets a listener for query lifecycle events, such as connection timings, responses and parsing.
+     * This replaces any OkHttp event listener factory on a given http client
+     *
+     * @param listener the listener
+     * @return the resulting options
+     */
+    public ClientOptions listener(ClientListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    Map<String, RateLimiter> getRateLimiters() {
+        return new HashMap(rateLimiters);
+    }
+
+    long getMetaTtlMillis() {
+        return metaTtlMillis;
+    }
+
+    PageCache getPageCache() {
+        return pageCache;
+    }
+
+    ClientListener getListener() {
+        return listener;
+    }
+
+    boolean isCoalesceQueries() {
+        return coalesceQueries;
+    }
+
+    DiskPageCache getDiskPageCache() {
+        return diskPageCache;
+    }
+
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker == null ? new CircuitBreaker() : circuitBreaker;
+    }
+
+    /**
+     * Builds the http client that will be shared by every request made through a Client
+     *
+     * @param stats counters for bytes transferred by the client
+     * @param metrics metrics kept by the client
+     * @return the configured http client
+     */
+    OkHttpClient buildHttpClient(TransferStats stats, ClientMetrics metrics) {
+        OkHttpClient.Builder builder;
+
+        if(httpClient != null) {
+            builder = httpClient.newBuilder();
+        } else {
+            Dispatcher dispatcher;
+            if(dispatcherExecutor != null) {
+                dispatcher = new Dispatcher(dispatcherExecutor);
+            } else if(virtualThreads) {
+                dispatcher = new Dispatcher(VirtualThreads.newExecutor());
+            } else {
+                dispatcher = new Dispatcher();
+            }
+            dispatcher.setMaxRequests(maxRequests);
+            dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+            builder = new OkHttpClient.Builder()
+                    .dispatcher(dispatcher)
+                    .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMillis, TimeUnit.MILLISECONDS));
+        }
+
+        if(http2) {
+            builder.protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
+        } else {
+            builder.protocols(Collections.singletonList(Protocol.HTTP_1_1));
+        }
+
+        List<MetricsRegistry> registries = new ArrayList();
+        registries.add(metrics);
+        registries.addAll(metricsRegistries);
+        builder.addInterceptor(new MetricsInterceptor(registries));
+
+        if(listener != null) {
+            builder.eventListenerFactory(ListenerEvents.factory(listener));
+        }
+
+        builder.addInterceptor(new CompressionInterceptor(stats, compressResponses,
+                compressRequests ? compressRequestThreshold : -1));
+
+        return builder
+                .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                .writeTimeout(writeTimeoutMillis, TimeUnit.MILLISECONDS)
+                .retryOnConnectionFailure(true)
+                .build();
+    }
+}
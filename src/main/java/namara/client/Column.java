@@ -0,0 +1,412 @@
+package namara.client;
+
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class Column {
+    /**
+     * How the values of a column are stored
+     */
+    public enum Type {
+        /**
+         * Whole numbers that fit in a long, stored in a long[]
+         */
+        LONG,
+
+        /**
+         * Numbers with a fraction, or a mix of whole and fractional numbers, stored in a double[]
+         */
+        DOUBLE,
+
+        /**
+         * Booleans, stored as a bitmap
+         */
+        BOOLEAN,
+
+        /**
+         * Text, dictionary encoded as an int[] of codes into an array of the distinct values
+         */
+        STRING,
+
+        /**
+         * Anything else, including columns with mixed types or only nulls, stored as the raw values
+         */
+        OBJECT
+    }
+
+    private final String name;
+    private final Type type;
+    private final int size;
+
+    /**
+     * Bit i is set if value i is null or missing
+     */
+    private final BitSet nulls;
+    private final int nullCount;
+
+    private final long[] longs;
+    private final double[] doubles;
+    private final BitSet booleans;
+    private final int[] codes;
+    private final String[] dictionary;
+    private final Object[] objects;
+
+    private Column(String name, Type type, int size, BitSet nulls, long[] longs, double[] doubles, BitSet booleans,
+                   int[] codes, String[] dictionary, Object[] objects) {
+        this.name = name;
+        this.type = type;
+        this.size = size;
+        this.nulls = nulls;
+        this.nullCount = nulls.cardinality();
+        this.longs = longs;
+        this.doubles = doubles;
+        this.booleans = booleans;
+        this.codes = codes;
+        this.dictionary = dictionary;
+        this.objects = objects;
+    }
+
+    /**
+     * Decodes one column of a list of records. The storage type is chosen from the values present
+     *
+     * @param name the column name
+     * @param records the records
+     * @return the column
+     */
+    static Column decode(String name, List<Record> records) {
+        int size = records.size();
+        Object[] raw = new Object[size];
+        BitSet nulls = new BitSet(size);
+        Type type = null;
+
+        for(int i = 0; i < size; i++) {
+            Object value = records.get(i).opt(name);
+            if(value == null || value == JSONObject.NULL) {
+                nulls.set(i);
+                continue;
+            }
+            raw[i] = value;
+            type = widen(type, typeOf(value));
+        }
+
+        if(type == null) {
+            type = Type.OBJECT;
+        }
+
+        switch(type) {
+            case LONG:
+                long[] longs = new long[size];
+                for(int i = 0; i < size; i++) {
+                    if(raw[i] != null) {
+                        longs[i] = ((Number) raw[i]).longValue();
+                    }
+                }
+                return new Column(name, type, size, nulls, longs, null, null, null, null, null);
+            case DOUBLE:
+                double[] doubles = new double[size];
+                for(int i = 0; i < size; i++) {
+                    if(raw[i] != null) {
+                        doubles[i] = ((Number) raw[i]).doubleValue();
+                    }
+                }
+                return new Column(name, type, size, nulls, null, doubles, null, null, null, null);
+            case BOOLEAN:
+                BitSet booleans = new BitSet(size);
+                for(int i = 0; i < size; i++) {
+                    if(raw[i] != null && (Boolean) raw[i]) {
+                        booleans.set(i);
+                    }
+                }
+                return new Column(name, type, size, nulls, null, null, booleans, null, null, null);
+            case STRING:
+                int[] codes = new int[size];
+                Map<String, Integer> codesByValue = new HashMap();
+                for(int i = 0; i < size; i++) {
+                    if(raw[i] == null) {
+                        codes[i] = -1;
+                    } else {
+                        Integer code = codesByValue.get(raw[i]);
+                        if(code == null) {
+                            code = codesByValue.size();
+                            codesByValue.put((String) raw[i], code);
+                        }
+                        codes[i] = code;
+                    }
+                }
+                String[] dictionary = new String[codesByValue.size()];
+                for(Map.Entry<String, Integer> entry : codesByValue.entrySet()) {
+                    dictionary[entry.getValue()] = entry.getKey();
+                }
+                return new Column(name, type, size, nulls, null, null, null, codes, dictionary, null);
+            default:
+                return new Column(name, type, size, nulls, null, null, null, null, null, raw);
+        }
+    }
+
+    /**
+     * @return the column name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return how the values are stored, which decides the accessors that may be used
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the number of values, including nulls
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index the row index
+     * @return true if the value is null, or the record did not have the column
+     */
+    public boolean isNull(int index) {
+        checkIndex(index);
+        return nulls.get(index);
+    }
+
+    /**
+     * @return the number of null values
+     */
+    public int getNullCount() {
+        return nullCount;
+    }
+
+    /**
+     * @param index the row index
+     * @return the value, or 0 if it is null
+     * @throws IllegalStateException if the column is not a LONG column
+     */
+    public long getLong(int index) {
+        checkIndex(index);
+        checkType(Type.LONG);
+        return longs[index];
+    }
+
+    /**
+     * @param index the row index
+     * @return the value, or 0 if it is null
+     * @throws IllegalStateException if the column is not a LONG or DOUBLE column
+     */
+    public double getDouble(int index) {
+        checkIndex(index);
+        if(type == Type.LONG) {
+            return longs[index];
+        }
+        checkType(Type.DOUBLE);
+        return doubles[index];
+    }
+
+    /**
+     * @param index the row index
+     * @return the value, or false if it is null
+     * @throws IllegalStateException if the column is not a BOOLEAN column
+     */
+    public boolean getBoolean(int index) {
+        checkIndex(index);
+        checkType(Type.BOOLEAN);
+        return booleans.get(index);
+    }
+
+    /**
+     * @param index the row index
+     * @return the value, or null if it is null
+     * @throws IllegalStateException if the column is not a STRING column
+     */
+    public String getString(int index) {
+        checkIndex(index);
+        checkType(Type.STRING);
+        return codes[index] < 0 ? null : dictionary[codes[index]];
+    }
+
+    /**
+     * Gets a value of any type of column, boxing primitive values
+     *
+     * @param index the row index
+     * @return the value, or null if it is null
+     */
+    public Object get(int index) {
+        checkIndex(index);
+        if(nulls.get(index)) {
+            return null;
+        }
+
+        switch(type) {
+            case LONG:
+                return longs[index];
+            case DOUBLE:
+                return doubles[index];
+            case BOOLEAN:
+                return booleans.get(index);
+            case STRING:
+                return dictionary[codes[index]];
+            default:
+                return objects[index];
+        }
+    }
+
+    /**
+     * Gets the values of a LONG column. This is the column's own storage, not a copy, so it must not be modified
+     *
+     * @return the values, with 0 for nulls
+     * @throws IllegalStateException if the column is not a LONG column
+     */
+    public long[] getLongs() {
+        checkType(Type.LONG);
+        return longs;
+    }
+
+    /**
+     * Gets the values of a DOUBLE column. This is the column's own storage, not a copy, so it must not be modified
+     *
+     * @return the values, with 0 for nulls
+     * @throws IllegalStateException if the column is not a DOUBLE column
+     */
+    public double[] getDoubles() {
+        checkType(Type.DOUBLE);
+        return doubles;
+    }
+
+    /**
+     * Gets the dictionary codes of a STRING column, indexes into getDictionary(). This is the column's own
+     * storage, not a copy, so it must not be modified
+     *
+     * @return the codes, with -1 for nulls
+     * @throws IllegalStateException if the column is not a STRING column
+     */
+    public int[] getCodes() {
+        checkType(Type.STRING);
+        return codes;
+    }
+
+    /**
+     * Gets the distinct values of a STRING column, in the order they first appear. This is the column's own
+     * storage, not a copy, so it must not be modified
+     *
+     * @return the distinct values
+     * @throws IllegalStateException if the column is not a STRING column
+     */
+    public String[] getDictionary() {
+        checkType(Type.STRING);
+        return dictionary;
+    }
+
+    /**
+     * Sums a LONG or DOUBLE column, skipping nulls
+     *
+     * @return the sum, or 0 if there are no values
+     * @throws IllegalStateException if the column is not numeric
+     */
+    public double sum() {
+        double sum = 0;
+        if(type == Type.LONG) {
+            for(int i = 0; i < size; i++) {
+                sum += longs[i];
+            }
+        } else {
+            checkType(Type.DOUBLE);
+            for(int i = 0; i < size; i++) {
+                sum += doubles[i];
+            }
+        }
+        // Nulls are stored as 0, so they do not change the sum
+        return sum;
+    }
+
+    /**
+     * Averages a LONG or DOUBLE column, skipping nulls
+     *
+     * @return the mean, or NaN if there are no values
+     * @throws IllegalStateException if the column is not numeric
+     */
+    public double mean() {
+        return sum() / (size - nullCount);
+    }
+
+    /**
+     * @return the smallest value of a LONG or DOUBLE column, skipping nulls, or NaN if there are no values
+     * @throws IllegalStateException if the column is not numeric
+     */
+    public double min() {
+        double min = Double.NaN;
+        for(int i = nulls.nextClearBit(0); i < size; i = nulls.nextClearBit(i + 1)) {
+            double value = getDouble(i);
+            if(!(value >= min)) {
+                min = value;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * @return the largest value of a LONG or DOUBLE column, skipping nulls, or NaN if there are no values
+     * @throws IllegalStateException if the column is not numeric
+     */
+    public double max() {
+        double max = Double.NaN;
+        for(int i = nulls.nextClearBit(0); i < size; i = nulls.nextClearBit(i + 1)) {
+            double value = getDouble(i);
+            if(!(value <= max)) {
+                max = value;
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "Column{name=" + name + ", type=" + type + ", size=" + size + ", nulls=" + nullCount + "}";
+    }
+
+    private static Type typeOf(Object value) {
+        if(value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return Type.LONG;
+        } else if(value instanceof BigInteger) {
+            return ((BigInteger) value).bitLength() < 64 ? Type.LONG : Type.OBJECT;
+        } else if(value instanceof Double || value instanceof Float || value instanceof BigDecimal) {
+            return Type.DOUBLE;
+        } else if(value instanceof Boolean) {
+            return Type.BOOLEAN;
+        } else if(value instanceof String) {
+            return Type.STRING;
+        }
+        return Type.OBJECT;
+    }
+
+    private static Type widen(Type current, Type next) {
+        if(current == null || current == next) {
+            return next;
+        }
+        if((current == Type.LONG && next == Type.DOUBLE) || (current == Type.DOUBLE && next == Type.LONG)) {
+            return Type.DOUBLE;
+        }
+        return Type.OBJECT;
+    }
+
+    private void checkType(Type expected) {
+        if(type != expected) {
+            throw new IllegalStateException("Column " + name + " is " + type + ", not " + expected);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds for column " + name +
+                    " of size " + size);
+        }
+    }
+}
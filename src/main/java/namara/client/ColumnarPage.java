@@ -0,0 +1,83 @@
+package namara.client;
+
+import namara.client.exception.ColumnNotFoundException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ColumnarPage {
+    /**
+     * The columns, by name
+     */
+    private final Map<String, Column> columns;
+
+    /**
+     * The number of rows
+     */
+    private final int size;
+
+    /**
+     * Decodes records into column vectors. Whole number columns are stored as long[], other numeric columns
+     * as double[], booleans as a bitmap and text as dictionary codes, each with a bitmap of nulls. Summing or
+     * scanning a column then reads one primitive array rather than boxed values from each record.
+     *
+     * Every column found in any record is decoded; records without it hold null there.
+     *
+     * @see Page#toColumns()
+     * @see ResultSet#toColumns()
+     * @param records the records to decode
+     */
+    public ColumnarPage(List<Record> records) {
+        Set<String> names = new LinkedHashSet();
+        for(Record record : records) {
+            names.addAll(record.columnsNames());
+        }
+
+        Map<String, Column> columns = new LinkedHashMap();
+        for(String name : names) {
+            columns.put(name, Column.decode(name, records));
+        }
+
+        this.columns = Collections.unmodifiableMap(columns);
+        this.size = records.size();
+    }
+
+    /**
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the column names, in the order they were first seen: the columns of the first record in its own
+     * order, followed by any columns first found in later records
+     */
+    public Set<String> getColumnNames() {
+        return columns.keySet();
+    }
+
+    /**
+     * Gets a column by name
+     *
+     * @param name the column name
+     * @return the column
+     * @throws ColumnNotFoundException if no record had the column
+     */
+    public Column getColumn(String name) throws ColumnNotFoundException {
+        Column column = columns.get(name);
+        if(column == null) {
+            throw new ColumnNotFoundException("Column not found at " + name, name);
+        }
+        return column;
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarPage{size=" + size + ", columns=" + columns.values() + "}";
+    }
+}
@@ -0,0 +1,145 @@
+package namara.client;
+
+import okhttp3.*;
+import okio.*;
+
+import java.io.IOException;
+import java.util.zip.Inflater;
+
+class CompressionInterceptor implements Interceptor {
+    /**
+     * Counters for bytes on the wire versus decoded bytes
+     */
+    private final TransferStats stats;
+
+    /**
+     * Whether to negotiate compressed responses
+     */
+    private final boolean compressResponses;
+
+    /**
+     * Request bodies at least this large are gzipped. Negative disables request compression
+     */
+    private final long requestThreshold;
+
+    /**
+     * Intercepts calls to negotiate compression and count transferred bytes
+     *
+     * @param stats counters to update
+     * @param compressResponses true to request gzip/deflate encoded responses
+     * @param requestThreshold minimum body size to gzip requests at, or negative to never compress
+     */
+    CompressionInterceptor(TransferStats stats, boolean compressResponses, long requestThreshold) {
+        this.stats = stats;
+        this.compressResponses = compressResponses;
+        this.requestThreshold = requestThreshold;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Request.Builder builder = request.newBuilder();
+
+        // Setting Accept-Encoding ourselves turns off OkHttp's transparent gzip, so decoding is done below
+        if(compressResponses && request.header("Accept-Encoding") == null) {
+            builder.header("Accept-Encoding", "gzip, deflate");
+        }
+
+        RequestBody body = request.body();
+        if(body != null) {
+            long length = body.contentLength();
+            if(requestThreshold >= 0 && length >= requestThreshold && request.header("Content-Encoding") == null) {
+                Buffer compressed = gzip(body);
+                stats.addSent(compressed.size(), length);
+                builder.header("Content-Encoding", "gzip")
+                        .method(request.method(), RequestBody.create(body.contentType(), compressed.readByteString()));
+            } else if(length >= 0) {
+                stats.addSent(length, length);
+            }
+        }
+
+        Response response = chain.proceed(builder.build());
+        return decode(response);
+    }
+
+    private Response decode(Response response) throws IOException {
+        ResponseBody body = response.body();
+        if(body == null) {
+            return response;
+        }
+
+        Source wire = new CountingSource(body.source()) {
+            @Override
+            void count(long bytes) {
+                stats.addReceived(bytes);
+            }
+        };
+
+        String encoding = response.header("Content-Encoding");
+        Source decoded;
+        if("gzip".equalsIgnoreCase(encoding)) {
+            decoded = new GzipSource(wire);
+        } else if("deflate".equalsIgnoreCase(encoding)) {
+            BufferedSource bufferedWire = Okio.buffer(wire);
+            decoded = new InflaterSource(bufferedWire, new Inflater(!isZlibWrapped(bufferedWire)));
+        } else {
+            decoded = wire;
+        }
+
+        Source counted = new CountingSource(decoded) {
+            @Override
+            void count(long bytes) {
+                stats.addReceivedDecoded(bytes);
+            }
+        };
+
+        Response.Builder builder = response.newBuilder();
+        long contentLength = body.contentLength();
+        if(decoded != wire) {
+            builder.removeHeader("Content-Encoding").removeHeader("Content-Length");
+            contentLength = -1;
+        }
+
+        return builder
+                .body(ResponseBody.create(body.contentType(), contentLength, Okio.buffer(counted)))
+                .build();
+    }
+
+    /**
+     * HTTP deflate is meant to be zlib wrapped, but some servers send raw deflate data.
+     * A zlib header declares the deflate method and is a multiple of 31
+     */
+    private static boolean isZlibWrapped(BufferedSource source) throws IOException {
+        if(!source.request(2)) {
+            return true;
+        }
+        int cmf = source.buffer().getByte(0) & 0xff;
+        int flg = source.buffer().getByte(1) & 0xff;
+        return (cmf & 0x0f) == 8 && ((cmf << 8) | flg) % 31 == 0;
+    }
+
+    private static Buffer gzip(RequestBody body) throws IOException {
+        Buffer compressed = new Buffer();
+        BufferedSink sink = Okio.buffer(new GzipSink(compressed));
+        body.writeTo(sink);
+        sink.close();
+        return compressed;
+    }
+
+    private abstract static class CountingSource extends ForwardingSource {
+        CountingSource(Source delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public long read(Buffer sink, long byteCount) throws IOException {
+            long read = super.read(sink, byteCount);
+            if(read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        abstract void count(long bytes);
+    }
+}
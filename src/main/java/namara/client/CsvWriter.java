@@ -0,0 +1,347 @@
+package namara.client;
+
+import namara.client.exception.NamaraException;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+public final class CsvWriter implements Closeable, Flushable {
+    private static final int CHAR_BUFFER_SIZE = 8 * 1024;
+    private static final int BYTE_BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    /**
+     * Text waiting to be encoded, and encoded bytes waiting to be written. Both are reused for the whole export
+     */
+    private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+    private final ByteBuffer bytes = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+
+    /**
+     * The columns of the header, taken from the first record written, or null until then
+     */
+    private RecordSchema header;
+
+    private long rowCount = 0;
+
+    /**
+     * Writes into the buffer, doubling quotes, for values that write themselves to a Writer
+     */
+    private final Writer quoted = new Writer() {
+        @Override
+        public void write(int c) throws IOException {
+            if(c == '"') {
+                put('"');
+            }
+            put((char) c);
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            for(int i = offset; i < offset + length; i++) {
+                write(buffer[i]);
+            }
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            int start = offset;
+            for(int i = offset; i < offset + length; i++) {
+                if(text.charAt(i) == '"') {
+                    putString(text, start, i + 1);
+                    start = i;
+                }
+            }
+            putString(text, start, offset + length);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * Creates a CSV writer on an OutputStream. The stream is closed with the writer
+     *
+     * @see CsvWriter#CsvWriter(WritableByteChannel)
+     * @param out the stream to write to
+     */
+    public CsvWriter(OutputStream out) {
+        this(Channels.newChannel(out));
+    }
+
+    /**
+     * Creates a CSV writer on a channel, such as a FileChannel or a socket. The channel is closed with the writer.
+     *
+     * Records are written as RFC 4180 CSV in UTF-8, with a header row of the columns of the first record. Each
+     * value is encoded straight from the record into a fixed buffer, so memory does not grow with the export.
+     * Output is buffered; call flush() or close() once done.
+     *
+     * @see ResultSet#writeCsv(WritableByteChannel)
+     * @param channel the channel to write to
+     */
+    public CsvWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Writes a record as a row. The header is written before the first row, from that record's columns.
+     * Later records are written in the same column order; columns they lack are left empty, and columns
+     * the header lacks are left out
+     *
+     * @param record the record
+     * @return this writer
+     * @throws IOException if writing fails
+     */
+    public CsvWriter writeRecord(Record record) throws IOException {
+        RecordSchema schema = record.getSchema();
+        if(header == null) {
+            header = schema;
+            for(int i = 0; i < header.size(); i++) {
+                if(i > 0) {
+                    put(',');
+                }
+                writeText(header.getColumnName(i));
+            }
+            putLineEnd();
+        }
+
+        for(int i = 0; i < header.size(); i++) {
+            if(i > 0) {
+                put(',');
+            }
+            // Records of a page share their schema, so most rows are read by index
+            writeValue(schema == header ? record.valueAt(i) : record.opt(header.getColumnName(i)));
+        }
+        putLineEnd();
+
+        rowCount++;
+        return this;
+    }
+
+    /**
+     * Writes every remaining record of a result set, then flushes. Each window is written as it is read, so
+     * pair this with ResultSet#streaming(boolean) to read records straight from the response, or with
+     * ResultSet#prefetch(int) to fetch the following windows while this one is written.
+     *
+     * @param results the result set
+     * @return the number of rows written
+     * @throws IOException if writing fails
+     * @throws NamaraException if fetching the results failed. Rows read before the failure have been written
+     */
+    public long writeAll(ResultSet results) throws IOException, NamaraException {
+        long start = rowCount;
+        try {
+            while(results.hasNext()) {
+                writeRecord(results.next());
+            }
+        } finally {
+            flush();
+        }
+        results.throwException();
+        return rowCount - start;
+    }
+
+    /**
+     * @return the number of rows written, not counting the header
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Encodes and writes everything buffered so far
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void flush() throws IOException {
+        chars.flip();
+        encode(chars, true);
+        while(encoder.flush(bytes).isOverflow()) {
+            drainBytes();
+        }
+        encoder.reset();
+        chars.clear();
+        drainBytes();
+    }
+
+    /**
+     * Flushes, then closes the channel or stream
+     *
+     * @throws IOException if writing or closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if(value == null || value == JSONObject.NULL) {
+            return;
+        }
+
+        if(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            putLong(((Number) value).longValue());
+        } else if(value instanceof Boolean) {
+            putString((Boolean) value ? "true" : "false");
+        } else if(value instanceof String) {
+            writeText((String) value);
+        } else if(value instanceof JSONObject || value instanceof JSONArray) {
+            // Nested objects and arrays are always quoted, and written as JSON straight into the buffer
+            put('"');
+            try {
+                if(value instanceof JSONObject) {
+                    ((JSONObject) value).write(quoted);
+                } else {
+                    ((JSONArray) value).write(quoted);
+                }
+            } catch(JSONException e) {
+                if(e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw e;
+            }
+            put('"');
+        } else {
+            // Other numbers
+            writeText(value.toString());
+        }
+    }
+
+    /**
+     * Writes text, quoting it if it holds a delimiter, a quote or a line break
+     */
+    private void writeText(String text) throws IOException {
+        if(!needsQuotes(text)) {
+            putString(text);
+            return;
+        }
+
+        put('"');
+        int start = 0;
+        for(int i = text.indexOf('"'); i >= 0; i = text.indexOf('"', start)) {
+            putString(text, start, i + 1);
+            put('"');
+            start = i + 1;
+        }
+        putString(text, start, text.length());
+        put('"');
+    }
+
+    private static boolean needsQuotes(String text) {
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if(c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the digits of a long without making a String of it
+     */
+    private void putLong(long value) throws IOException {
+        if(value == Long.MIN_VALUE) {
+            putString(Long.toString(value));
+            return;
+        }
+        if(value < 0) {
+            put('-');
+            value = -value;
+        }
+
+        long divisor = 1;
+        while(value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for(; divisor > 0; divisor /= 10) {
+            put((char) ('0' + (value / divisor) % 10));
+        }
+    }
+
+    private void putLineEnd() throws IOException {
+        put('\r');
+        put('\n');
+    }
+
+    private void putString(String text) throws IOException {
+        putString(text, 0, text.length());
+    }
+
+    private void putString(String text, int start, int end) throws IOException {
+        while(start < end) {
+            if(!chars.hasRemaining()) {
+                drainChars();
+            }
+            int count = Math.min(end - start, chars.remaining());
+            chars.put(text, start, start + count);
+            start += count;
+        }
+    }
+
+    private void put(char c) throws IOException {
+        if(!chars.hasRemaining()) {
+            drainChars();
+        }
+        chars.put(c);
+    }
+
+    /**
+     * Encodes buffered text to make room for more. A surrogate pair split by the end of the buffer is kept
+     * back until its second half arrives
+     */
+    private void drainChars() throws IOException {
+        chars.flip();
+        encode(chars, false);
+        chars.compact();
+    }
+
+    private void encode(CharBuffer input, boolean endOfInput) throws IOException {
+        while(true) {
+            CoderResult result = encoder.encode(input, bytes, endOfInput);
+            if(result.isOverflow()) {
+                drainBytes();
+            } else if(result.isUnderflow()) {
+                return;
+            } else {
+                result.throwException();
+            }
+        }
+    }
+
+    private void drainBytes() throws IOException {
+        bytes.flip();
+        while(bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
@@ -0,0 +1,265 @@
+package namara.client;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.OffsetDateTime;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Parsing of dates and times from record values. ISO-8601 text, the format Namara returns, is read by hand
+ * without going through a formatter; anything else falls back to java.time. Formatters for patterns are
+ * immutable, so they are built once and shared between threads
+ */
+final class DateTimes {
+    /**
+     * Patterns past this many are parsed with a new formatter each time rather than cached
+     */
+    private static final int MAX_CACHED_FORMATTERS = 64;
+
+    private static final ConcurrentMap<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap();
+
+    private DateTimes() {
+    }
+
+    /**
+     * @param pattern a DateTimeFormatter pattern
+     * @return the formatter for the pattern
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    static DateTimeFormatter formatter(String pattern) {
+        DateTimeFormatter formatter = FORMATTERS.get(pattern);
+        if(formatter == null) {
+            formatter = DateTimeFormatter.ofPattern(pattern);
+            if(FORMATTERS.size() < MAX_CACHED_FORMATTERS) {
+                FORMATTERS.putIfAbsent(pattern, formatter);
+            }
+        }
+        return formatter;
+    }
+
+    /**
+     * Parses an ISO-8601 date, such as 2018-04-12. The date of a date and time, with or without an offset,
+     * is also accepted
+     *
+     * @param text the text
+     * @return the date
+     * @throws DateTimeParseException if the text is not a date
+     */
+    static LocalDate parseLocalDate(String text) {
+        if(text.length() == 10 || (text.length() > 10 && isTimeSeparator(text.charAt(10)))) {
+            LocalDate date = fastDate(text);
+            if(date != null) {
+                if(text.length() == 10) {
+                    return date;
+                }
+                return offsetStart(text) > 0 ? parseOffsetDateTime(text).toLocalDate()
+                        : parseLocalDateTime(text).toLocalDate();
+            }
+        }
+        return LocalDate.parse(text);
+    }
+
+    /**
+     * Parses an ISO-8601 date and time without an offset, such as 2018-04-12T13:45:00. A space may separate
+     * the date and time, and a date alone is taken as the start of that day
+     *
+     * @param text the text
+     * @return the date and time
+     * @throws DateTimeParseException if the text is not a date and time
+     */
+    static LocalDateTime parseLocalDateTime(String text) {
+        LocalDateTime dateTime = fastDateTime(text, text.length());
+        if(dateTime != null) {
+            return dateTime;
+        }
+        if(text.length() == 10) {
+            return parseLocalDate(text).atStartOfDay();
+        }
+        return LocalDateTime.parse(normalize(text));
+    }
+
+    /**
+     * Parses an ISO-8601 date and time with an offset, such as 2018-04-12T13:45:00Z or 2018-04-12 13:45:00-04:00
+     *
+     * @param text the text
+     * @return the date and time
+     * @throws DateTimeParseException if the text is not a date and time with an offset
+     */
+    static OffsetDateTime parseOffsetDateTime(String text) {
+        int offsetStart = offsetStart(text);
+        if(offsetStart > 0) {
+            LocalDateTime dateTime = fastDateTime(text, offsetStart);
+            ZoneOffset offset = fastOffset(text, offsetStart);
+            if(dateTime != null && offset != null) {
+                return OffsetDateTime.of(dateTime, offset);
+            }
+        }
+        return OffsetDateTime.parse(normalize(text));
+    }
+
+    /**
+     * Parses an ISO-8601 instant. Text without an offset is taken to be in UTC
+     *
+     * @param text the text
+     * @return the instant
+     * @throws DateTimeParseException if the text is not a date and time
+     */
+    static Instant parseInstant(String text) {
+        if(offsetStart(text) > 0) {
+            return parseOffsetDateTime(text).toInstant();
+        }
+        return parseLocalDateTime(text).toInstant(ZoneOffset.UTC);
+    }
+
+    /**
+     * Reads yyyy-MM-dd from the start of the text
+     *
+     * @return the date, or null if the text does not start with one
+     */
+    private static LocalDate fastDate(String text) {
+        if(text.length() < 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return null;
+        }
+
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        if(year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return null;
+        }
+        // Leaves invalid days of the month, like February 30th, to the fallback to report
+        return day <= Month.of(month).length(Year.isLeap(year)) ? LocalDate.of(year, month, day) : null;
+    }
+
+    /**
+     * Reads yyyy-MM-dd'T'HH:mm[:ss[.fraction]] from the start of the text up to end
+     *
+     * @return the date and time, or null if the text is not exactly that
+     */
+    private static LocalDateTime fastDateTime(String text, int end) {
+        if(end < 16 || !isTimeSeparator(text.charAt(10)) || text.charAt(13) != ':') {
+            return null;
+        }
+
+        LocalDate date = fastDate(text);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = 0;
+        int nanos = 0;
+
+        if(end > 16) {
+            if(end < 19 || text.charAt(16) != ':') {
+                return null;
+            }
+            second = digits(text, 17, 2);
+
+            if(end > 19) {
+                int fractionDigits = end - 20;
+                if(text.charAt(19) != '.' || fractionDigits < 1 || fractionDigits > 9) {
+                    return null;
+                }
+                nanos = digits(text, 20, fractionDigits);
+                if(nanos < 0) {
+                    return null;
+                }
+                for(int i = fractionDigits; i < 9; i++) {
+                    nanos *= 10;
+                }
+            }
+        }
+
+        if(date == null || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+        return LocalDateTime.of(date, LocalTime.of(hour, minute, second, nanos));
+    }
+
+    /**
+     * Reads Z, +HH:mm, +HHmm or +HH from start to the end of the text
+     *
+     * @return the offset, or null if it is not one of those
+     */
+    private static ZoneOffset fastOffset(String text, int start) {
+        int length = text.length() - start;
+        char sign = text.charAt(start);
+        if(sign == 'Z' && length == 1) {
+            return ZoneOffset.UTC;
+        }
+        if(sign != '+' && sign != '-') {
+            return null;
+        }
+
+        int hours = digits(text, start + 1, 2);
+        int minutes;
+        if(length == 3) {
+            minutes = 0;
+        } else if(length == 5) {
+            minutes = digits(text, start + 3, 2);
+        } else if(length == 6 && text.charAt(start + 3) == ':') {
+            minutes = digits(text, start + 4, 2);
+        } else {
+            return null;
+        }
+
+        if(hours < 0 || hours > 18 || minutes < 0 || minutes > 59) {
+            return null;
+        }
+        int seconds = hours * 3600 + minutes * 60;
+        return ZoneOffset.ofTotalSeconds(sign == '-' ? -seconds : seconds);
+    }
+
+    /**
+     * @return the index where the offset of a date and time starts, or -1 if it has none
+     */
+    private static int offsetStart(String text) {
+        // Offsets follow the time, which starts after the date
+        for(int i = text.length() - 1; i > 10; i--) {
+            char c = text.charAt(i);
+            if(c == 'Z' || c == '+' || c == '-') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the value of count decimal digits starting at start, or -1 if they are not all digits
+     */
+    private static int digits(String text, int start, int count) {
+        if(start + count > text.length()) {
+            return -1;
+        }
+
+        int value = 0;
+        for(int i = start; i < start + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if(digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean isTimeSeparator(char c) {
+        return c == 'T' || c == 't' || c == ' ';
+    }
+
+    /**
+     * Replaces a space between the date and time with the 'T' that java.time expects
+     */
+    private static String normalize(String text) {
+        if(text.length() > 10 && text.charAt(10) == ' ') {
+            return text.substring(0, 10) + 'T' + text.substring(11);
+        }
+        return text;
+    }
+}
@@ -0,0 +1,375 @@
+package namara.client;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class DiskPageCache {
+    /**
+     * A data set table name as written by Identifier, such as "uuid/en-0", optionally quoted
+     */
+    private static final Pattern VERSIONED_DATA_SET = Pattern.compile("\"?[\\w-]+/[a-z]{2}-\\d+\"?");
+
+    /**
+     * The start of a FROM or JOIN source
+     */
+    private static final Pattern SOURCE = Pattern.compile("\\b(?:FROM|JOIN)\\s+", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * A table name, then an optional alias, then a comma if another source follows
+     */
+    private static final Pattern TABLE = Pattern.compile("([^\\s,()]+)(?:\\s+(?:AS\\s+)?\\w+)?\\s*(,\\s*)?",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final String PAGE_SUFFIX = ".json.gz";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Temporary files older than this are taken to be left behind by an interrupted write. Younger ones may
+     * still be being written by another process sharing the directory
+     */
+    static final long STALE_TEMP_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private final Path directory;
+    private final long maxBytes;
+
+    /**
+     * Sizes of the page files written or found by this cache, by file name, least recently read first.
+     * Eviction walks this rather than listing the directory
+     */
+    private final LinkedHashMap<String, Long> pages = new LinkedHashMap(16, 0.75f, true);
+
+    /**
+     * Total size of the page files in the directory
+     */
+    private long totalBytes;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Creates a cache of query result pages on local disk, so that pages survive restarts of the JVM.
+     *
+     * Only queries whose every source is a versioned data set are cached, since those results can not change.
+     * Pages are stored gzipped, one file per page, named by a fingerprint of the Namara host, a digest of the
+     * API key and the normalized query including its data set versions and LIMIT/OFFSET window, so a directory
+     * can be shared by clients of different hosts and accounts. Files are written to a temporary file and moved
+     * into place, so a crash never leaves a partial page behind. The least recently read pages are removed once
+     * the directory grows past maxBytes.
+     *
+     * Several processes may share a directory. Each tracks the pages it found at startup and those it wrote
+     * itself, and only removes temporary files an hour old, so it does not disturb writes in progress elsewhere.
+     *
+     * @param directory directory to hold pages in. Created if it does not exist
+     * @param maxBytes maximum total size of the cached pages on disk
+     * @throws IOException if the directory can not be created or read
+     */
+    public DiskPageCache(File directory, long maxBytes) throws IOException {
+        this.directory = directory.toPath();
+        this.maxBytes = maxBytes;
+
+        Files.createDirectories(this.directory);
+
+        List<Path> found = new ArrayList();
+        long staleBefore = System.currentTimeMillis() - STALE_TEMP_MILLIS;
+        try (Stream<Path> files = Files.list(this.directory)) {
+            for(Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if(name.endsWith(TEMP_SUFFIX)) {
+                    // Clear out anything left behind by a write that was interrupted
+                    if(lastModified(file).toMillis() < staleBefore) {
+                        Files.deleteIfExists(file);
+                    }
+                } else if(name.endsWith(PAGE_SUFFIX)) {
+                    found.add(file);
+                }
+            }
+        }
+
+        found.sort(Comparator.comparing(DiskPageCache::lastModified));
+        for(Path file : found) {
+            long size = Files.size(file);
+            pages.put(file.getFileName().toString(), size);
+            totalBytes += size;
+        }
+    }
+
+    /**
+     * Checks whether results for a query can be cached, which is the case when every data set it reads from,
+     * in FROM and JOIN clauses, is versioned. String literals are ignored. Anything that does not look like a
+     * versioned data set after FROM, including FROM within a function call, keeps the query out of the cache
+     *
+     * @param key the query key
+     * @return true if the query can be cached
+     */
+    static boolean isCacheable(QueryKey key) {
+        String query = withoutLiterals(key.getBase());
+        Matcher source = SOURCE.matcher(query);
+        Matcher table = TABLE.matcher(query);
+
+        boolean found = false;
+        while(source.find()) {
+            int start = source.end();
+            // Subqueries are checked through their own FROM clauses
+            while(start < query.length() && query.charAt(start) != '(') {
+                if(!table.find(start) || table.start() != start ||
+                        !VERSIONED_DATA_SET.matcher(table.group(1)).matches()) {
+                    return false;
+                }
+                found = true;
+                if(table.group(2) == null) {
+                    break;
+                }
+                start = table.end();
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Empties single quoted string literals, so that nothing inside them is taken for a data set
+     */
+    private static String withoutLiterals(String query) {
+        StringBuilder builder = new StringBuilder(query.length());
+        boolean inLiteral = false;
+        for(int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if(c == '\'') {
+                inLiteral = !inLiteral;
+                builder.append(c);
+            } else if(!inLiteral) {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Reads a cached page
+     *
+     * @param key the query key
+     * @return the response body, or null if the page is not cached
+     */
+    String get(QueryKey key) {
+        if(!isCacheable(key)) {
+            return null;
+        }
+
+        Path file = pageFile(key);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            // The first lines hold the scope and query, to rule out fingerprint collisions
+            if(!key.getScope().equals(reader.readLine()) || !key.toString().equals(reader.readLine())) {
+                missCount.incrementAndGet();
+                return null;
+            }
+
+            StringBuilder body = new StringBuilder();
+            char[] buffer = new char[8192];
+            int read;
+            while((read = reader.read(buffer)) != -1) {
+                body.append(buffer, 0, read);
+            }
+
+            touch(file);
+            recordRead(file);
+            hitCount.incrementAndGet();
+            return body.toString();
+        } catch(NoSuchFileException e) {
+            missCount.incrementAndGet();
+            return null;
+        } catch(IOException e) {
+            // Unreadable page, drop it and fetch again
+            delete(file);
+            missCount.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Writes a page. Failures to write are ignored, since the page can always be fetched again
+     *
+     * @param key the query key
+     * @param body the response body
+     */
+    void put(QueryKey key, String body) {
+        if(!isCacheable(key)) {
+            return;
+        }
+
+        Path file = pageFile(key);
+        Path temp = null;
+        try {
+            // Unique within the directory, even across processes sharing it
+            temp = Files.createTempFile(directory, file.getFileName() + ".", TEMP_SUFFIX);
+            try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp))), StandardCharsets.UTF_8)) {
+                writer.write(key.getScope());
+                writer.write('\n');
+                writer.write(key.toString());
+                writer.write('\n');
+                writer.write(body);
+            }
+
+            // Make sure the page is on disk before it becomes visible under its real name
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            move(temp, file);
+        } catch(IOException e) {
+            if(temp != null) {
+                delete(temp);
+            }
+        }
+    }
+
+    /**
+     * Removes every cached page
+     *
+     * @throws IOException if the directory can not be read
+     */
+    public synchronized void invalidateAll() throws IOException {
+        for(Path file : pageFiles()) {
+            delete(file);
+        }
+    }
+
+    /**
+     * @return the total size of the cached pages on disk, in bytes
+     */
+    public synchronized long getSize() {
+        return totalBytes;
+    }
+
+    /**
+     * @return the number of pages read from disk
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return the number of lookups for cacheable queries that were not on disk
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return the number of pages written to disk
+     */
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    /**
+     * @return the number of pages removed to stay within the size bound
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "DiskPageCache{directory=" + directory + ", size=" + getSize() + ", hits=" + getHitCount() +
+                ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "}";
+    }
+
+    private Path pageFile(QueryKey key) {
+        return directory.resolve(QueryKey.sha256(key.getScope() + "\n" + key) + PAGE_SUFFIX);
+    }
+
+    private synchronized void move(Path temp, Path file) throws IOException {
+        long written = Files.size(temp);
+
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch(AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        Long replaced = pages.put(file.getFileName().toString(), written);
+        totalBytes += written - (replaced == null ? 0 : replaced);
+        writeCount.incrementAndGet();
+        evict();
+    }
+
+    private synchronized void recordRead(Path file) {
+        pages.get(file.getFileName().toString());
+    }
+
+    /**
+     * Deletes the least recently read pages until the cache fits in maxBytes
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> entries = pages.entrySet().iterator();
+        while(totalBytes > maxBytes && entries.hasNext()) {
+            Map.Entry<String, Long> entry = entries.next();
+            entries.remove();
+            totalBytes -= entry.getValue();
+            try {
+                if(Files.deleteIfExists(directory.resolve(entry.getKey()))) {
+                    evictionCount.incrementAndGet();
+                }
+            } catch(IOException e) {
+                // Another process may still remove it
+            }
+        }
+    }
+
+    private List<Path> pageFiles() throws IOException {
+        List<Path> files = new ArrayList();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + PAGE_SUFFIX)) {
+            for(Path file : stream) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private synchronized boolean delete(Path file) {
+        Long size = pages.remove(file.getFileName().toString());
+        if(size != null) {
+            totalBytes -= size;
+        }
+
+        try {
+            return Files.deleteIfExists(file);
+        } catch(IOException e) {
+            return false;
+        }
+    }
+
+    private static void touch(Path file) {
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch(IOException e) {
+            // Only affects eviction order
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch(IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
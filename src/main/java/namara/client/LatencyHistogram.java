@@ -0,0 +1,128 @@
+package namara.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+    /**
+     * Each power of two range is split into 2^(SUB_BUCKET_BITS - 1) linear buckets, bounding the error of
+     * any reported value to under 2%
+     */
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;
+
+    /**
+     * Largest value tracked, about 18 minutes in nanoseconds. Larger values are counted as this
+     */
+    static final long MAX_TRACKABLE_NANOS = (1L << 40) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(bucketIndex(MAX_TRACKABLE_NANOS) + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Creates an empty histogram of durations.
+     *
+     * Values are counted in log-linear buckets in the manner of an HDR histogram, so that percentiles are
+     * reported to within 2% of the recorded value over the whole range from nanoseconds to minutes, in a
+     * fixed amount of memory. Recording is lock free.
+     */
+    public LatencyHistogram() {
+    }
+
+    /**
+     * Records a duration
+     *
+     * @param duration the duration, negative values are counted as 0
+     * @param unit time unit for duration
+     */
+    public void record(long duration, TimeUnit unit) {
+        long nanos = Math.min(MAX_TRACKABLE_NANOS, Math.max(0, unit.toNanos(duration)));
+
+        counts.incrementAndGet(bucketIndex(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @return the number of recorded durations
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @param unit time unit to report in
+     * @return the mean recorded duration, or 0 if none have been recorded
+     */
+    public double getMean(TimeUnit unit) {
+        long recorded = count.get();
+        return recorded == 0 ? 0 : (double) sum.get() / recorded / unit.toNanos(1);
+    }
+
+    /**
+     * @param unit time unit to report in
+     * @return the longest recorded duration
+     */
+    public long getMax(TimeUnit unit) {
+        return unit.convert(max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the duration at a percentile, such that the given percentage of recorded durations are at
+     * or below it
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @param unit time unit to report in
+     * @return the duration at the percentile, or 0 if none have been recorded
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        long recorded = count.get();
+        if(recorded == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * recorded));
+        long seen = 0;
+        for(int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if(seen >= target) {
+                return unit.convert(Math.min(bucketUpperBound(i), max.get()), TimeUnit.NANOSECONDS);
+            }
+        }
+        return getMax(unit);
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram{count=" + getCount() +
+                ", p50=" + getPercentile(50, TimeUnit.MICROSECONDS) + "us" +
+                ", p99=" + getPercentile(99, TimeUnit.MICROSECONDS) + "us" +
+                ", max=" + getMax(TimeUnit.MICROSECONDS) + "us}";
+    }
+
+    /**
+     * Values below SUB_BUCKET_COUNT get a bucket each. Above that, each power of two range gets
+     * SUB_BUCKET_HALF buckets of equal width
+     */
+    static int bucketIndex(long value) {
+        if(value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return (shift + 1) * SUB_BUCKET_HALF + (int) (value >>> shift) - SUB_BUCKET_HALF;
+    }
+
+    static long bucketUpperBound(int index) {
+        if(index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF - 1;
+        long subBucket = index % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,102 @@
+package namara.client;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Forwards OkHttp's connection events for a query call to a ClientListener. Query calls are tagged
+ * with their QueryInfo, other calls are not reported
+ */
+class ListenerEvents extends EventListener {
+    private final ClientListener listener;
+    private final QueryInfo query;
+
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long secureConnectStart;
+
+    private ListenerEvents(ClientListener listener, QueryInfo query) {
+        this.listener = listener;
+        this.query = query;
+    }
+
+    /**
+     * @param listener the listener to forward events to
+     * @return a factory creating event listeners for each call
+     */
+    static EventListener.Factory factory(ClientListener listener) {
+        return call -> {
+            Object tag = call.request().tag();
+            return tag instanceof QueryInfo ? new ListenerEvents(listener, (QueryInfo) tag) : EventListener.NONE;
+        };
+    }
+
+    @Override
+    public void callStart(Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> addresses) {
+        long duration = System.nanoTime() - dnsStart;
+        send(l -> l.dnsEnd(query, duration));
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+        connectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        secureConnectStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        long duration = System.nanoTime() - secureConnectStart;
+        send(l -> l.secureConnectEnd(query, duration));
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol) {
+        long duration = System.nanoTime() - connectStart;
+        send(l -> l.connectEnd(query, duration));
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        long elapsed = System.nanoTime() - callStart;
+        int code = response.code();
+        send(l -> l.responseHeaders(query, code, elapsed));
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        long elapsed = System.nanoTime() - callStart;
+        send(l -> l.responseReceived(query, byteCount, elapsed));
+    }
+
+    private void send(Consumer<ClientListener> event) {
+        try {
+            event.accept(listener);
+        } catch(RuntimeException e) {
+            // Listeners must not break the call
+        }
+    }
+}
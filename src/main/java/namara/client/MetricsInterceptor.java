@@ -0,0 +1,104 @@
+package namara.client;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class MetricsInterceptor implements Interceptor {
+    /**
+     * Registries to report every request to
+     */
+    private final List<MetricsRegistry> registries;
+
+    /**
+     * Intercepts calls to time them and count their bytes. A request is finished once its response
+     * body has been read to the end or closed, so latency covers the whole body
+     *
+     * @param registries registries to report to
+     */
+    MetricsInterceptor(List<MetricsRegistry> registries) {
+        this.registries = registries;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String endpoint = StringUtils.removeStart(request.url().encodedPath(), "/");
+        long bytesSent = request.body() == null ? 0 : Math.max(0, request.body().contentLength());
+        long start = System.nanoTime();
+
+        for(MetricsRegistry registry : registries) {
+            registry.requestStarted(endpoint);
+        }
+
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch(IOException | RuntimeException e) {
+            complete(endpoint, -1, start, bytesSent, 0);
+            throw e;
+        }
+
+        ResponseBody body = response.body();
+        if(body == null) {
+            complete(endpoint, response.code(), start, bytesSent, 0);
+            return response;
+        }
+
+        Source timed = new ForwardingSource(body.source()) {
+            private final AtomicBoolean completed = new AtomicBoolean();
+            private long bytesReceived = 0;
+
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                long read;
+                try {
+                    read = super.read(sink, byteCount);
+                } catch(IOException e) {
+                    finish();
+                    throw e;
+                }
+
+                if(read > 0) {
+                    bytesReceived += read;
+                } else if(read == -1) {
+                    finish();
+                }
+                return read;
+            }
+
+            @Override
+            public void close() throws IOException {
+                finish();
+                super.close();
+            }
+
+            private void finish() {
+                if(completed.compareAndSet(false, true)) {
+                    complete(endpoint, response.code(), start, bytesSent, bytesReceived);
+                }
+            }
+        };
+
+        return response.newBuilder()
+                .body(ResponseBody.create(body.contentType(), body.contentLength(), Okio.buffer(timed)))
+                .build();
+    }
+
+    private void complete(String endpoint, int statusCode, long start, long bytesSent, long bytesReceived) {
+        long latency = System.nanoTime() - start;
+        for(MetricsRegistry registry : registries) {
+            registry.requestCompleted(endpoint, statusCode, latency, bytesSent, bytesReceived);
+        }
+    }
+}
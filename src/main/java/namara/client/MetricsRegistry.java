@@ -0,0 +1,30 @@
+package namara.client;
+
+/**
+ * Receives a measurement for every HTTP request made by a Client, so that client metrics can be bridged
+ * into any monitoring system. Called on the threads making requests, so implementations must be thread
+ * safe and should return quickly.
+ *
+ * @see ClientOptions#metricsRegistry(MetricsRegistry)
+ * @see ClientMetrics
+ */
+public interface MetricsRegistry {
+    /**
+     * Called when a request is sent
+     *
+     * @param endpoint the endpoint path, such as "v0/query"
+     */
+    void requestStarted(String endpoint);
+
+    /**
+     * Called once a request has finished, when its response body has been read or closed, or the
+     * request failed without a response
+     *
+     * @param endpoint the endpoint path, such as "v0/query"
+     * @param statusCode the response status, or -1 if no response was received
+     * @param latencyNanos time from sending the request to finishing with the response
+     * @param bytesSent request body bytes, before any compression
+     * @param bytesReceived response body bytes, after any decoding
+     */
+    void requestCompleted(String endpoint, int statusCode, long latencyNanos, long bytesSent, long bytesReceived);
+}
@@ -0,0 +1,113 @@
+package namara.client;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+public class Page implements Iterable<Record> {
+    /**
+     * The records returned for this window of the query
+     */
+    private final List<Record> records;
+
+    /**
+     * The limit that was requested for this page
+     */
+    private final int limit;
+
+    /**
+     * The offset that was requested for this page
+     */
+    private final int offset;
+
+    /**
+     * Builds a page out of an already constructed list of records
+     *
+     * @param records the records in the page
+     * @param limit the requested limit
+     * @param offset the requested offset
+     */
+    Page(List<Record> records, int limit, int offset) {
+        this.records = Collections.unmodifiableList(records);
+        this.limit = limit;
+        this.offset = offset;
+    }
+
+    /**
+     * Builds a page out of a query response
+     *
+     * @param responseObject the response from the query endpoint
+     * @param limit the requested limit
+     * @param offset the requested offset
+     */
+    Page(JSONObject responseObject, int limit, int offset) {
+        this(toRecords(responseObject.getJSONArray("results")), limit, offset);
+    }
+
+    /**
+     * @return the records in this page, in the order they were returned
+     */
+    public List<Record> getRecords() {
+        return records;
+    }
+
+    /**
+     * @return the limit that was requested for this page
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return the offset that was requested for this page
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the number of records in this page
+     */
+    public int size() {
+        return records.size();
+    }
+
+    /**
+     * A page holding fewer records than were requested is the last page of the query
+     *
+     * @return true if there are no more records after this page
+     */
+    public boolean isLast() {
+        return records.size() < limit;
+    }
+
+    /**
+     * Decodes the records of this page into typed column vectors
+     *
+     * @see ColumnarPage
+     * @return the columns of this page
+     */
+    public ColumnarPage toColumns() {
+        return new ColumnarPage(records);
+    }
+
+    @Override
+    public Iterator<Record> iterator() {
+        return records.iterator();
+    }
+
+    private static List<Record> toRecords(JSONArray results) {
+        List<Record> records = new ArrayList(results.length());
+        RecordSchema schema = null;
+        for(int i = 0; i < results.length(); i++) {
+            Record record = RecordSchema.toRecord(results.getJSONObject(i), schema);
+            schema = record.getSchema();
+            records.add(record);
+        }
+        return records;
+    }
+}
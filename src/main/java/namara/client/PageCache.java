@@ -0,0 +1,172 @@
+package namara.client;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class PageCache {
+    private static class Entry {
+        final String body;
+        final long weight;
+        final long expiresAt;
+
+        Entry(String body, long weight, long expiresAt) {
+            this.body = body;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final long ttlMillis;
+
+    /**
+     * Entries in least to most recently used order
+     */
+    private final LinkedHashMap<QueryKey, Entry> entries = new LinkedHashMap(16, 0.75f, true);
+
+    private long weight = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    /**
+     * Creates an in-memory cache of query result pages, evicting the least recently used pages first.
+     *
+     * Pages are keyed on the query string with its whitespace normalized, including its LIMIT and OFFSET,
+     * so identical windows of identical queries are served without a round trip. Keys also hold the host
+     * and API key of the client, so a cache shared between clients only serves a page to clients of the
+     * same host and account. Queries against an Identifier are pinned to a data set version, but a TTL
+     * bounds how stale any other page can be.
+     *
+     * @param maxEntries maximum number of pages held
+     * @param maxWeight maximum total weight of held pages, as approximate bytes of heap held by response bodies
+     * @param ttl how long a page is served for after being fetched
+     * @param unit time unit for ttl
+     */
+    public PageCache(int maxEntries, long maxWeight, long ttl, TimeUnit unit) {
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.ttlMillis = unit.toMillis(ttl);
+    }
+
+    /**
+     * Gets the cached response body for a page
+     *
+     * @param key the query key
+     * @return the response body, or null if not cached or expired
+     */
+    synchronized String get(QueryKey key) {
+        Entry entry = entries.get(key);
+        if(entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+            remove(key);
+            entry = null;
+        }
+
+        if(entry == null) {
+            missCount++;
+            return null;
+        }
+
+        hitCount++;
+        return entry.body;
+    }
+
+    /**
+     * Caches the response body for a page, evicting older pages as needed to stay within bounds.
+     * Pages larger than the maximum weight are not cached
+     *
+     * @param key the query key
+     * @param body the response body
+     */
+    synchronized void put(QueryKey key, String body) {
+        long entryWeight = weigh(body);
+        if(entryWeight > maxWeight || maxEntries <= 0) {
+            return;
+        }
+
+        remove(key);
+        entries.put(key, new Entry(body, entryWeight, System.currentTimeMillis() + ttlMillis));
+        weight += entryWeight;
+
+        Iterator<Map.Entry<QueryKey, Entry>> eldest = entries.entrySet().iterator();
+        while((entries.size() > maxEntries || weight > maxWeight) && eldest.hasNext()) {
+            weight -= eldest.next().getValue().weight;
+            eldest.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * Removes every cached page
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * @return the number of pages currently cached
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the total weight of cached pages, as approximate bytes of heap
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return the number of lookups served from the cache
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of lookups not found in the cache, including expired pages
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the number of pages evicted to stay within the size and weight bounds
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the fraction of lookups served from the cache, or 0 if there have been none
+     */
+    public synchronized double getHitRate() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "PageCache{size=" + entries.size() + ", weight=" + weight + ", hits=" + hitCount +
+                ", misses=" + missCount + ", evictions=" + evictionCount + "}";
+    }
+
+    private void remove(QueryKey key) {
+        Entry removed = entries.remove(key);
+        if(removed != null) {
+            weight -= removed.weight;
+        }
+    }
+
+    /**
+     * Approximates the heap held by a body. Strings hold up to two bytes per character
+     */
+    private static long weigh(String body) {
+        return 2L * body.length();
+    }
+}
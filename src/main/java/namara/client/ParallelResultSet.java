@@ -0,0 +1,580 @@
+package namara.client;
+
+import namara.client.exception.AuthorizationException;
+import namara.client.exception.ConnectionException;
+import namara.client.exception.NamaraException;
+import namara.client.exception.QueryException;
+import namara.query.QueryBuilder;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public class ParallelResultSet implements Iterator<Record>, Closeable {
+    /**
+     * Default number of windows each partition may have fetched ahead of the consumer
+     */
+    static final int DEFAULT_WINDOWS_AHEAD = 2;
+
+    /**
+     * The namara client to send the queries to
+     */
+    private final Client client;
+
+    /**
+     * Number of records to fetch for each window
+     */
+    private final int fetchSize;
+
+    /**
+     * Total number of records to return, from the limit on the query, or null for all of them
+     */
+    private final Integer limit;
+
+    /**
+     * Partitions in the order of their ranges
+     */
+    private final List<Partition> partitions = new ArrayList();
+
+    /**
+     * Whether records are returned in partition order rather than as soon as they arrive
+     */
+    private boolean ordered = false;
+
+    /**
+     * Number of windows each partition may have fetched ahead of the consumer
+     */
+    private int windowsAhead = DEFAULT_WINDOWS_AHEAD;
+
+    private boolean started = false;
+
+    /**
+     * Set once the scan has been closed, after which no more windows are fetched
+     */
+    private boolean closed = false;
+    private Iterator<Record> recordIterator = Collections.emptyIterator();
+    private long recordsReturned = 0;
+
+    /**
+     * Holds any exception raised by a partition. Since the interface does not raise any errors,
+     * they need to be retained and checked by the user
+     */
+    private NamaraException exception;
+
+    /**
+     * Progress of a single partition of the scan
+     */
+    public static class Progress {
+        private final Object start;
+        private final Object end;
+        private final boolean endIncluded;
+        private final long windowsFetched;
+        private final long recordsRead;
+        private final boolean finished;
+
+        Progress(Range range, long windowsFetched, long recordsRead, boolean finished) {
+            this.start = range.start;
+            this.end = range.end;
+            this.endIncluded = range.includeEnd;
+            this.windowsFetched = windowsFetched;
+            this.recordsRead = recordsRead;
+            this.finished = finished;
+        }
+
+        /**
+         * @return the first value in the partition, as a SQL literal
+         */
+        public Object getStart() {
+            return start;
+        }
+
+        /**
+         * @return the end of the partition, as a SQL literal
+         */
+        public Object getEnd() {
+            return end;
+        }
+
+        /**
+         * @return true if the end is in the partition, which is only ever the case for the last partition
+         */
+        public boolean isEndIncluded() {
+            return endIncluded;
+        }
+
+        /**
+         * @return the number of windows received from Namara for the partition
+         */
+        public long getWindowsFetched() {
+            return windowsFetched;
+        }
+
+        /**
+         * @return the number of records from the partition that have been returned
+         */
+        public long getRecordsRead() {
+            return recordsRead;
+        }
+
+        /**
+         * @return true once every record in the partition has been returned
+         */
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public String toString() {
+            return "Progress{range=[" + start + ", " + end + (endIncluded ? "]" : ")") + ", windows=" + windowsFetched + ", records=" +
+                    recordsRead + ", finished=" + finished + "}";
+        }
+    }
+
+    /**
+     * A range of the partition column, from start up to end. The end is only included in the last range
+     */
+    static final class Range {
+        final Object start;
+        final Object end;
+        final boolean includeEnd;
+
+        Range(Object start, Object end, boolean includeEnd) {
+            this.start = start;
+            this.end = end;
+            this.includeEnd = includeEnd;
+        }
+    }
+
+    /**
+     * Initialize a result set that scans a query in parallel, split into ranges of an integer column.
+     *
+     * The range from min to max is split into partitions of near equal width. Each partition is queried
+     * for the values from its start up to the start of the next partition, and the partitions are paged
+     * through concurrently. Rows where the column is null or outside of min and max are not returned. A
+     * limit on the query caps the total number of records returned.
+     *
+     * @see ResultSet
+     * @param queryBuilder the query builder
+     * @param client the Namara client
+     * @param columnName the integer column to partition on
+     * @param min smallest value of the column
+     * @param max largest value of the column
+     * @param partitions the number of partitions to scan concurrently
+     */
+    public ParallelResultSet(QueryBuilder queryBuilder, Client client, String columnName, long min, long max, int partitions) {
+        this(queryBuilder, client, client.getQueryLimit(), columnName, integerRanges(min, max, partitions));
+    }
+
+    /**
+     * Initialize a result set that scans a query in parallel, split into ranges of a decimal column.
+     *
+     * @see #ParallelResultSet(QueryBuilder, Client, String, long, long, int)
+     * @param queryBuilder the query builder
+     * @param client the Namara client
+     * @param columnName the decimal column to partition on
+     * @param min smallest value of the column
+     * @param max largest value of the column
+     * @param partitions the number of partitions to scan concurrently
+     */
+    public ParallelResultSet(QueryBuilder queryBuilder, Client client, String columnName, BigDecimal min, BigDecimal max, int partitions) {
+        this(queryBuilder, client, client.getQueryLimit(), columnName, decimalRanges(min, max, partitions));
+    }
+
+    /**
+     * Initialize a result set that scans a query in parallel, split into ranges of a floating point column.
+     *
+     * @see #ParallelResultSet(QueryBuilder, Client, String, BigDecimal, BigDecimal, int)
+     * @param queryBuilder the query builder
+     * @param client the Namara client
+     * @param columnName the floating point column to partition on
+     * @param min smallest value of the column
+     * @param max largest value of the column
+     * @param partitions the number of partitions to scan concurrently
+     * @throws NumberFormatException if min or max is infinite or NaN
+     */
+    public ParallelResultSet(QueryBuilder queryBuilder, Client client, String columnName, double min, double max, int partitions) {
+        this(queryBuilder, client, columnName, BigDecimal.valueOf(min), BigDecimal.valueOf(max), partitions);
+    }
+
+    /**
+     * Initialize a result set that scans a query in parallel, split into ranges of a date column. A
+     * timestamp column can be partitioned by date as well, since each partition runs up to the start of
+     * the next partition's first day, and the last partition up to the start of the day after max.
+     *
+     * @see #ParallelResultSet(QueryBuilder, Client, String, long, long, int)
+     * @param queryBuilder the query builder
+     * @param client the Namara client
+     * @param columnName the date column to partition on
+     * @param min earliest date in the column
+     * @param max latest date in the column
+     * @param partitions the number of partitions to scan concurrently
+     */
+    public ParallelResultSet(QueryBuilder queryBuilder, Client client, String columnName, LocalDate min, LocalDate max, int partitions) {
+        this(queryBuilder, client, client.getQueryLimit(), columnName, dateRanges(min, max, partitions));
+    }
+
+    /**
+     * Package-protected constructor to avoid needing to get query limit from API
+     *
+     * @param queryBuilder the query builder
+     * @param client the Namara client
+     * @param fetchSize the maximum query limit size per request
+     * @param columnName the column to partition on
+     * @param ranges the range of each partition, as SQL literals
+     */
+    ParallelResultSet(QueryBuilder queryBuilder, Client client, Integer fetchSize, String columnName, List<Range> ranges) {
+        if(queryBuilder.getOffset() != null && queryBuilder.getOffset() > 0) {
+            throw new IllegalArgumentException("Partitioned scans can not start at an offset");
+        }
+
+        this.client = client;
+        this.fetchSize = fetchSize;
+        this.limit = queryBuilder.getLimit();
+
+        for(Range range : ranges) {
+            partitions.add(new Partition(queryBuilder.partition(columnName, range.start, range.end, range.includeEnd), range));
+        }
+    }
+
+    /**
+     * Sets whether records are returned in the order of the partition ranges. Ordered scans return every
+     * record of a partition before moving on to the next, while later partitions fetch ahead. Unordered
+     * scans, the default, return records from whichever partition has a window ready first.
+     *
+     * @param ordered true to return records in partition order
+     * @return this result set
+     */
+    public ParallelResultSet ordered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    /**
+     * Sets how many windows each partition may fetch ahead of the records that have been returned,
+     * which bounds the number of records held in memory by the scan
+     *
+     * @param windows the number of windows each partition may hold, at least 1
+     * @return this result set
+     */
+    public ParallelResultSet windowsAhead(int windows) {
+        this.windowsAhead = Math.max(1, windows);
+        return this;
+    }
+
+    /**
+     * Gets the progress of each partition, in the order of their ranges
+     *
+     * @return a snapshot of the progress of each partition
+     */
+    public synchronized List<Progress> getProgress() {
+        List<Progress> progress = new ArrayList();
+        for(Partition partition : partitions) {
+            progress.add(new Progress(partition.range, partition.windowsFetched, partition.recordsRead,
+                    partition.isExhausted()));
+        }
+        return progress;
+    }
+
+    /**
+     * Checks whether getting next result has generated an error
+     *
+     * @return true if an error has been raised
+     */
+    public boolean hasException() {
+        return exception != null;
+    }
+
+    /**
+     * Throws the exception raised by any partition. If none is recorded, it will just return.
+     *
+     * @throws AuthorizationException Unable to authorize Namara user
+     * @throws ConnectionException Unable to connect to Namara
+     * @throws QueryException Unable to build query or execute query on Namara
+     * @throws NamaraException Base error class. One of the above will likely be thrown, but this can catch all of them
+     */
+    public void throwException() throws AuthorizationException, ConnectionException, QueryException, NamaraException {
+        if(exception == null) return;
+
+        throw exception;
+    }
+
+    /**
+     * Stops the scan early, cancelling every window being fetched and dropping those not yet read. Reading
+     * the scan to the end, to its limit or to an error stops the fetches as well, so this is only needed when
+     * iteration stops before then. Safe to call more than once
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        cancelAll();
+        for(Partition partition : partitions) {
+            partition.pages.clear();
+        }
+        recordIterator = Collections.emptyIterator();
+        notifyAll();
+    }
+
+    /**
+     * Gets the next record
+     *
+     * @return the next Record in the iterator
+     */
+    @Override
+    public Record next() {
+        if(!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        recordsReturned++;
+        return recordIterator.next();
+    }
+
+    /**
+     * Returns true if there are more Records to be read.
+     * Will return false if there are no more records to be read OR an exception has been raised by any partition
+     * Please use `hasException()` and `throwException()` for access
+     *
+     * @see ParallelResultSet#hasException()
+     * @see ParallelResultSet#throwException()
+     * @return True if the iterator holds more Records
+     */
+    @Override
+    public synchronized boolean hasNext() {
+        if(closed) {
+            return false;
+        }
+        if(exception != null || (limit != null && recordsReturned >= limit)) {
+            cancelAll();
+            return false;
+        }
+
+        try {
+            if(!started) {
+                started = true;
+                for(Partition partition : partitions) {
+                    partition.fill();
+                }
+            }
+
+            while(!recordIterator.hasNext()) {
+                Partition partition = awaitReadyPartition();
+                if(partition == null) {
+                    return false;
+                }
+
+                Page page = partition.pages.poll();
+                partition.fill();
+                recordIterator = countingIterator(page.iterator(), partition);
+            }
+            return true;
+        } catch(NamaraException e) {
+            this.exception = e;
+            cancelAll();
+            return false;
+        } catch(RuntimeException e) {
+            cancelAll();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for a partition to have a window ready to read. Ordered scans wait on the first partition with
+     * records left, unordered scans on any of them
+     *
+     * @return the partition, or null once every partition has been read
+     */
+    private Partition awaitReadyPartition() throws NamaraException {
+        while(true) {
+            if(closed) {
+                return null;
+            }
+
+            boolean remaining = false;
+            for(Partition partition : partitions) {
+                if(partition.error != null) {
+                    throw partition.error;
+                }
+                if(!partition.pages.isEmpty()) {
+                    return partition;
+                }
+                if(!partition.isExhausted()) {
+                    remaining = true;
+                    if(ordered) {
+                        break;
+                    }
+                }
+            }
+
+            if(!remaining) {
+                return null;
+            }
+
+            try {
+                wait();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConnectionException("Interrupted while waiting for a partition", client.getNamaraHost());
+            }
+        }
+    }
+
+    private Iterator<Record> countingIterator(Iterator<Record> records, Partition partition) {
+        return new Iterator<Record>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public Record next() {
+                Record record = records.next();
+                synchronized(ParallelResultSet.this) {
+                    partition.recordsRead++;
+                }
+                return record;
+            }
+        };
+    }
+
+    private void cancelAll() {
+        for(Partition partition : partitions) {
+            partition.lastReceived = true;
+            if(partition.pending != null) {
+                partition.pending.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Splits the integers from min to max, inclusive, into contiguous ranges of near equal width
+     */
+    static List<Range> integerRanges(long min, long max, int partitions) {
+        if(max < min) {
+            throw new IllegalArgumentException("max must not be less than min");
+        }
+
+        long width = max - min + 1;
+        int count = (int) Math.max(1, Math.min(partitions, width));
+        List<Range> ranges = new ArrayList();
+
+        long start = min;
+        for(int i = 0; i < count; i++) {
+            long size = width / count + (i < width % count ? 1 : 0);
+            // The last range ends at max itself, since max + 1 may overflow
+            ranges.add(i < count - 1 ? new Range(start, start + size, false) : new Range(start, max, true));
+            start += size;
+        }
+        return ranges;
+    }
+
+    /**
+     * Splits the days from min to max, inclusive, into contiguous ranges of near equal length. Each range
+     * runs up to the first day of the next, and the last up to the day after max
+     */
+    static List<Range> dateRanges(LocalDate min, LocalDate max, int partitions) {
+        List<Range> ranges = new ArrayList();
+        for(Range range : integerRanges(min.toEpochDay(), max.toEpochDay(), partitions)) {
+            long end = (Long) range.end + (range.includeEnd ? 1 : 0);
+            ranges.add(new Range("'" + LocalDate.ofEpochDay((Long) range.start) + "'",
+                    "'" + LocalDate.ofEpochDay(end) + "'", false));
+        }
+        return ranges;
+    }
+
+    /**
+     * Splits the values from min to max, inclusive, into contiguous ranges of equal width
+     */
+    static List<Range> decimalRanges(BigDecimal min, BigDecimal max, int partitions) {
+        if(max.compareTo(min) < 0) {
+            throw new IllegalArgumentException("max must not be less than min");
+        }
+
+        int count = max.compareTo(min) == 0 ? 1 : Math.max(1, partitions);
+        BigDecimal width = max.subtract(min);
+        List<Range> ranges = new ArrayList();
+
+        BigDecimal start = min;
+        for(int i = 1; i < count; i++) {
+            BigDecimal end = min.add(width.multiply(BigDecimal.valueOf(i))
+                    .divide(BigDecimal.valueOf(count), MathContext.DECIMAL64));
+            ranges.add(new Range(start.toPlainString(), end.toPlainString(), false));
+            start = end;
+        }
+        ranges.add(new Range(start.toPlainString(), max.toPlainString(), true));
+        return ranges;
+    }
+
+    /**
+     * One range of the scan, paged through with LIMIT/OFFSET. Guarded by the result set's monitor
+     */
+    private final class Partition {
+        final QueryBuilder query;
+        final Range range;
+
+        /**
+         * Windows received but not yet read
+         */
+        final Deque<Page> pages = new ArrayDeque();
+
+        CompletableFuture<Page> pending;
+        int nextOffset = 0;
+        boolean lastReceived = false;
+        NamaraException error;
+        long windowsFetched = 0;
+        long recordsRead = 0;
+
+        Partition(QueryBuilder query, Range range) {
+            this.query = query;
+            this.range = range;
+        }
+
+        boolean isExhausted() {
+            return lastReceived && pending == null && pages.isEmpty();
+        }
+
+        /**
+         * Requests the next window if there is room for it
+         */
+        void fill() {
+            if(lastReceived || pending != null || error != null || pages.size() >= windowsAhead) {
+                return;
+            }
+
+            CompletableFuture<Page> request = client.fetchPageAsync(query, fetchSize, nextOffset);
+            pending = request;
+            nextOffset += fetchSize;
+            request.whenComplete(this::onWindow);
+        }
+
+        private void onWindow(Page page, Throwable e) {
+            synchronized(ParallelResultSet.this) {
+                pending = null;
+                if(e != null) {
+                    if(!lastReceived) {
+                        error = unwrap(e);
+                    }
+                } else if(!lastReceived) {
+                    windowsFetched++;
+                    lastReceived = page.isLast();
+                    if(page.size() > 0) {
+                        pages.add(page);
+                    }
+                    fill();
+                }
+                ParallelResultSet.this.notifyAll();
+            }
+        }
+
+        private NamaraException unwrap(Throwable e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if(cause instanceof NamaraException) {
+                return (NamaraException) cause;
+            }
+            return new ConnectionException("Encountered error when fetching page: " + cause.getMessage(),
+                    client.getNamaraHost());
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package namara.client;
+
+import namara.client.exception.AuthorizationException;
+import namara.client.exception.ConnectionException;
+import namara.client.exception.QueryException;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Shares one request between every caller asking for the same page at the same time.
+ *
+ * The first caller for a key fetches the page and the rest wait on its result, including any
+ * exception. A request started asynchronously is cancelled once every caller waiting on it has
+ * cancelled. Waiters share the raw response body, which each parses into its own response object,
+ * so no caller sees another's changes.
+ */
+final class QueryCoalescer {
+    /**
+     * Fetches the body of a page on the calling thread
+     */
+    interface Fetch {
+        String get() throws AuthorizationException, ConnectionException, QueryException;
+    }
+
+    private final ConcurrentMap<QueryKey, InFlight> inFlight = new ConcurrentHashMap();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Gets a page, fetching it on the calling thread unless the same page is already being fetched
+     *
+     * @param key the query key
+     * @param fetch fetches the page
+     * @param connectionUrl the url being requested, for errors
+     * @return the response body
+     * @throws AuthorizationException when unable to authorize client for namara
+     * @throws ConnectionException when unable to connect to namara, or interrupted while waiting
+     * @throws QueryException when unable to execute query on namara
+     */
+    String join(QueryKey key, Fetch fetch, String connectionUrl)
+            throws AuthorizationException, ConnectionException, QueryException {
+        while(true) {
+            InFlight current = inFlight.get(key);
+            if(current == null) {
+                InFlight created = new InFlight(key);
+                if(inFlight.putIfAbsent(key, created) != null) {
+                    continue;
+                }
+
+                try {
+                    String result = fetch.get();
+                    created.result.complete(result);
+                    return result;
+                } catch(AuthorizationException | ConnectionException | QueryException | RuntimeException e) {
+                    created.result.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inFlight.remove(key, created);
+                }
+            }
+
+            if(!current.enter()) {
+                continue;
+            }
+            coalescedCount.incrementAndGet();
+
+            try {
+                return current.result.get();
+            } catch(CancellationException e) {
+                // Abandoned by its other waiters before this one joined, fetch it again
+            } catch(InterruptedException e) {
+                current.leave();
+                Thread.currentThread().interrupt();
+                throw new ConnectionException("Interrupted while waiting for query", connectionUrl);
+            } catch(ExecutionException e) {
+                Throwable cause = e.getCause();
+                if(cause instanceof AuthorizationException) {
+                    throw (AuthorizationException) cause;
+                } else if(cause instanceof ConnectionException) {
+                    throw (ConnectionException) cause;
+                } else if(cause instanceof QueryException) {
+                    throw (QueryException) cause;
+                } else if(cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new ConnectionException("Encountered error when connecting: " + cause.getMessage(), connectionUrl);
+            }
+        }
+    }
+
+    /**
+     * Gets a page without blocking, starting a request unless the same page is already being fetched.
+     * Cancelling the returned future only cancels the request once no one else is waiting on it
+     *
+     * @param key the query key
+     * @param fetch starts a request for the page
+     * @return a future holding the response body
+     */
+    CompletableFuture<String> joinAsync(QueryKey key, Supplier<CompletableFuture<String>> fetch) {
+        while(true) {
+            InFlight current = inFlight.get(key);
+            if(current == null) {
+                InFlight created = new InFlight(key);
+                if(inFlight.putIfAbsent(key, created) != null) {
+                    continue;
+                }
+
+                CompletableFuture<String> waiter = created.newWaiter();
+                created.start(fetch.get());
+                return waiter;
+            }
+
+            if(current.enter()) {
+                coalescedCount.incrementAndGet();
+                return current.newWaiter();
+            }
+        }
+    }
+
+    /**
+     * @return the number of callers that were served by a request already in flight
+     */
+    long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return the number of distinct pages being fetched
+     */
+    int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * A request being fetched, and the callers waiting on it
+     */
+    private final class InFlight {
+        private final QueryKey key;
+        private final CompletableFuture<String> result = new CompletableFuture();
+
+        private CompletableFuture<?> source;
+        private int waiters = 1;
+        private boolean abandoned = false;
+
+        InFlight(QueryKey key) {
+            this.key = key;
+        }
+
+        /**
+         * Adds a waiter
+         *
+         * @return false if every earlier waiter has already cancelled, and the request with them
+         */
+        synchronized boolean enter() {
+            if(abandoned) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        /**
+         * Removes a waiter, cancelling the request if it was the last one
+         */
+        void leave() {
+            CompletableFuture<?> toCancel;
+            synchronized(this) {
+                if(--waiters > 0 || result.isDone()) {
+                    return;
+                }
+                abandoned = true;
+                toCancel = source;
+            }
+
+            inFlight.remove(key, this);
+            result.cancel(false);
+            if(toCancel != null) {
+                toCancel.cancel(true);
+            }
+        }
+
+        void start(CompletableFuture<String> request) {
+            boolean cancel;
+            synchronized(this) {
+                source = request;
+                cancel = abandoned;
+            }
+            if(cancel) {
+                request.cancel(true);
+                return;
+            }
+
+            request.whenComplete((response, e) -> {
+                inFlight.remove(key, this);
+                if(e != null) {
+                    result.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                } else {
+                    result.complete(response);
+                }
+            });
+        }
+
+        /**
+         * @return a future for one waiter, which completes with the shared result
+         */
+        CompletableFuture<String> newWaiter() {
+            CompletableFuture<String> waiter = new CompletableFuture();
+            result.whenComplete((response, e) -> {
+                if(e != null) {
+                    waiter.completeExceptionally(e);
+                } else {
+                    waiter.complete(response);
+                }
+            });
+            waiter.whenComplete((response, e) -> {
+                if(waiter.isCancelled()) {
+                    leave();
+                }
+            });
+            return waiter;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package namara.client;
+
+public final class QueryInfo {
+    private final QueryKey key;
+
+    private QueryInfo(QueryKey key) {
+        this.key = key;
+    }
+
+    static QueryInfo of(QueryKey key) {
+        return new QueryInfo(key);
+    }
+
+    /**
+     * @return the query string with its whitespace normalized, including any LIMIT/OFFSET window
+     */
+    public String getQuery() {
+        return key.toString();
+    }
+
+    /**
+     * @return a stable hex digest of the query without its window, shared by every page of a scan
+     */
+    public String getFingerprint() {
+        return key.fingerprint();
+    }
+
+    /**
+     * @return the limit of the page, or -1 if the query has no window
+     */
+    public int getLimit() {
+        return key.getLimit();
+    }
+
+    /**
+     * @return the offset of the page, or -1 if the query has no window
+     */
+    public int getOffset() {
+        return key.getOffset();
+    }
+
+    @Override
+    public String toString() {
+        return "QueryInfo{fingerprint=" + getFingerprint() + ", limit=" + getLimit() + ", offset=" + getOffset() + "}";
+    }
+}
@@ -0,0 +1,238 @@
+package namara.client;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+final class QueryKey {
+    /**
+     * The LIMIT/OFFSET suffix appended by QueryBuilder#buildQuery
+     */
+    private static final Pattern WINDOW = Pattern.compile("^(.*) LIMIT (\\d+) OFFSET (\\d+)$", Pattern.DOTALL);
+
+    /**
+     * A page after the first of a keyset scan, as written by QueryBuilder#buildKeysetQuery, seeking past
+     * the last key of the previous page
+     */
+    private static final Pattern KEYSET_SEEK = Pattern.compile("^(SELECT \\* FROM \\(.*\\) AS keyset) WHERE (\\S+) > .* (ORDER BY \\2)$",
+            Pattern.DOTALL);
+
+    /**
+     * The normalized query, including any LIMIT/OFFSET window
+     */
+    private final String normalized;
+
+    /**
+     * The normalized query without its LIMIT/OFFSET window
+     */
+    private final String base;
+
+    private final int limit;
+    private final int offset;
+
+    /**
+     * The host and credentials the query is sent with, or an empty string if unknown
+     */
+    private final String scope;
+
+    private String fingerprint;
+
+    private QueryKey(String normalized, String scope) {
+        this.normalized = normalized;
+        this.scope = scope == null ? "" : scope;
+
+        Matcher matcher = WINDOW.matcher(normalized);
+        if(matcher.matches()) {
+            this.base = matcher.group(1);
+            this.limit = Integer.parseInt(matcher.group(2));
+            this.offset = Integer.parseInt(matcher.group(3));
+        } else {
+            this.base = normalized;
+            this.limit = -1;
+            this.offset = -1;
+        }
+    }
+
+    /**
+     * Builds the key for a query string
+     *
+     * @param queryString the query
+     * @return the key
+     */
+    static QueryKey of(String queryString) {
+        return of(queryString, null);
+    }
+
+    /**
+     * Builds the key for a query string sent to a particular host with particular credentials
+     *
+     * @see QueryKey#scope(String, String)
+     * @param queryString the query
+     * @param scope the scope of the client sending it, or null if unknown
+     * @return the key
+     */
+    static QueryKey of(String queryString, String scope) {
+        return new QueryKey(normalize(queryString), scope);
+    }
+
+    /**
+     * Builds the key for the body of a query request, which wraps the query string in a JSON object
+     *
+     * @param requestBody the request body
+     * @return the key
+     */
+    static QueryKey ofRequestBody(String requestBody) {
+        return ofRequestBody(requestBody, null);
+    }
+
+    /**
+     * Builds the key for the body of a query request sent to a particular host with particular credentials
+     *
+     * @see QueryKey#scope(String, String)
+     * @param requestBody the request body
+     * @param scope the scope of the client sending it, or null if unknown
+     * @return the key
+     */
+    static QueryKey ofRequestBody(String requestBody, String scope) {
+        String trimmed = requestBody.trim();
+        if(trimmed.startsWith("{")) {
+            try {
+                return of(new JSONObject(trimmed).optString("query", trimmed), scope);
+            } catch(JSONException e) {
+                // Not a JSON body after all, key on it as it is
+            }
+        }
+        return of(trimmed, scope);
+    }
+
+    /**
+     * Builds the scope for queries sent to a host with an API key. Results for the same query can differ
+     * between hosts and between accounts, so cached pages are only shared within a scope. The key itself
+     * is only kept as a digest
+     *
+     * @param baseUrl the base url of the Namara host
+     * @param apiKey the API key
+     * @return the scope
+     */
+    static String scope(String baseUrl, String apiKey) {
+        return baseUrl + "#" + sha256(apiKey == null ? "" : apiKey);
+    }
+
+    /**
+     * Collapses runs of whitespace to a single space and trims the query, leaving quoted
+     * literals and identifiers untouched
+     *
+     * @param queryString the query
+     * @return the normalized query
+     */
+    static String normalize(String queryString) {
+        StringBuilder builder = new StringBuilder(queryString.length());
+        char quote = 0;
+        boolean pendingSpace = false;
+
+        for(int i = 0; i < queryString.length(); i++) {
+            char c = queryString.charAt(i);
+
+            if(quote == 0 && Character.isWhitespace(c)) {
+                pendingSpace = builder.length() > 0;
+                continue;
+            }
+
+            if(pendingSpace) {
+                builder.append(' ');
+                pendingSpace = false;
+            }
+            builder.append(c);
+
+            if(quote == 0 && (c == '\'' || c == '"')) {
+                quote = c;
+            } else if(c == quote) {
+                quote = 0;
+            }
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * @return the normalized query without its LIMIT/OFFSET window
+     */
+    String getBase() {
+        return base;
+    }
+
+    /**
+     * @return the host and credentials the query is sent with, or an empty string if unknown
+     */
+    String getScope() {
+        return scope;
+    }
+
+    /**
+     * @return the requested limit, or -1 if the query has no window
+     */
+    int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return the requested offset, or -1 if the query has no window
+     */
+    int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return a stable hex digest of the query without its window, shared by every page of a query. The key
+     * a keyset page seeks past is left out as well, so every page of a keyset scan shares it too
+     */
+    String fingerprint() {
+        if(fingerprint == null) {
+            Matcher matcher = KEYSET_SEEK.matcher(base);
+            fingerprint = sha256(matcher.matches() ? matcher.group(1) + " " + matcher.group(3) : base);
+        }
+        return fingerprint;
+    }
+
+    static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for(byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch(NoSuchAlgorithmException e) {
+            // Every JVM is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Keys are equal when both the query and the scope match, so that a cache shared by clients of
+     * different hosts or accounts never hands one client's page to another
+     */
+    @Override
+    public boolean equals(Object o) {
+        if(!(o instanceof QueryKey)) {
+            return false;
+        }
+        QueryKey other = (QueryKey) o;
+        return normalized.equals(other.normalized) && scope.equals(other.scope);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * normalized.hashCode() + scope.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return normalized;
+    }
+}
@@ -0,0 +1,142 @@
+package namara.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+public class RateLimiter {
+    /**
+     * Limiters shared between clients, keyed by API key and endpoint
+     */
+    private static final ConcurrentMap<String, RateLimiter> SHARED = new ConcurrentHashMap();
+
+    /**
+     * Fraction of the configured rate that is recovered on each successful request after being throttled
+     */
+    private static final double RECOVERY_STEP = 0.05;
+
+    /**
+     * The rate will not be reduced below this fraction of the configured rate
+     */
+    private static final double MIN_RATE_FRACTION = 0.05;
+
+    private final double maxPermitsPerSecond;
+    private final int burst;
+
+    private double permitsPerSecond;
+    private double storedPermits;
+    private long nextFreeNanos;
+
+    /**
+     * Creates a token bucket rate limiter
+     *
+     * @param permitsPerSecond requests allowed per second
+     * @param burst requests that may be sent at once after a quiet period
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        if(permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+        this.maxPermitsPerSecond = permitsPerSecond;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, burst);
+        this.storedPermits = this.burst;
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    /**
+     * Gets the limiter shared by every client using an API key against an endpoint, creating it with the
+     * given rate if this is the first use. Clients sharing a key should share a limiter so that together
+     * they stay under the quota for that key.
+     *
+     * @param apiKey the API key the quota applies to
+     * @param endpoint the endpoint the quota applies to, such as "v0/query"
+     * @param permitsPerSecond requests allowed per second
+     * @param burst requests that may be sent at once after a quiet period
+     * @return the shared limiter
+     */
+    public static RateLimiter shared(String apiKey, String endpoint, double permitsPerSecond, int burst) {
+        return SHARED.computeIfAbsent(apiKey + " " + endpoint, key -> new RateLimiter(permitsPerSecond, burst));
+    }
+
+    /**
+     * @return the current rate in permits per second, which drops while the host is throttling requests
+     */
+    public synchronized double getRate() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * Blocks until a request may be sent
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserveNanos();
+        if(waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Reserves a permit without blocking
+     *
+     * @return the time in milliseconds to wait before sending the request
+     */
+    long reserveMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(reserveNanos() + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+    }
+
+    synchronized long reserveNanos() {
+        long now = System.nanoTime();
+        resync(now);
+
+        // Whatever part of the permit is not already stored has to accumulate before it can be used
+        double fromStored = Math.min(1.0, storedPermits);
+        storedPermits -= fromStored;
+        nextFreeNanos += (long) ((1.0 - fromStored) * intervalNanos());
+
+        return Math.max(0, nextFreeNanos - now);
+    }
+
+    /**
+     * Called when the host responds with 429. Halves the rate, and holds back all requests until the
+     * Retry-After has passed
+     *
+     * @param retryAfterMillis the time the host asked to wait, or negative if not given
+     */
+    synchronized void onThrottled(long retryAfterMillis) {
+        long now = System.nanoTime();
+        resync(now);
+
+        permitsPerSecond = Math.max(maxPermitsPerSecond * MIN_RATE_FRACTION, permitsPerSecond / 2);
+        storedPermits = 0;
+        if(retryAfterMillis > 0) {
+            nextFreeNanos = Math.max(nextFreeNanos, now + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis));
+        }
+    }
+
+    /**
+     * Called when a request succeeds. Steps the rate back up towards the configured rate
+     */
+    synchronized void onSuccess() {
+        if(permitsPerSecond < maxPermitsPerSecond) {
+            resync(System.nanoTime());
+            permitsPerSecond = Math.min(maxPermitsPerSecond, permitsPerSecond + maxPermitsPerSecond * RECOVERY_STEP);
+        }
+    }
+
+    /**
+     * Accumulates permits for the time since the last permit was handed out
+     */
+    private void resync(long now) {
+        if(now > nextFreeNanos) {
+            storedPermits = Math.min(burst, storedPermits + (now - nextFreeNanos) / (double) intervalNanos());
+            nextFreeNanos = now;
+        }
+    }
+
+    private long intervalNanos() {
+        return (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+    }
+}
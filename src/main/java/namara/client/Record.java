@@ -1,27 +1,48 @@
 package namara.client;
 
 import namara.client.exception.ColumnNotFoundException;
+import namara.client.exception.ValueConversionException;
 import org.json.JSONObject;
 
 import java.util.*;
 
 public class Record {
     /**
-     * The record from the response that this object will retrieve values from
+     * The columns of this record, shared with the other records of its page
      */
-    private JSONObject responseObject;
+    private final RecordSchema schema;
 
     /**
-     * Builds a new responseObject out of a JSON
+     * The values of this record, in column order. Nulls are held as JSONObject.NULL
+     */
+    private final Object[] values;
+
+    /**
+     * Builds a new record out of a JSON object
      *
      * @param responseObject
      */
     Record(JSONObject responseObject) {
-        this.responseObject = responseObject;
+        this(new RecordSchema(responseObject.keySet()), valuesOf(responseObject));
+    }
+
+    /**
+     * Builds a new record out of a schema and its values
+     *
+     * @param schema the columns of the record
+     * @param values the values, in column order
+     */
+    Record(RecordSchema schema, Object[] values) {
+        this.schema = schema;
+        this.values = values;
     }
 
     @Override
     public String toString() {
+        JSONObject responseObject = new JSONObject();
+        for(int i = 0; i < values.length; i++) {
+            responseObject.put(schema.getColumnName(i), values[i]);
+        }
         return responseObject.toString();
     }
 
@@ -33,13 +54,35 @@ public class Record {
      * @return - an iterator of Values
      */
     public Iterator<Value> iterator() {
-        List<Value> valueList = new ArrayList();
+        return new Iterator<Value>() {
+            private int index = 0;
 
-        for(Map.Entry<String, Object> entry : responseObject.toMap().entrySet()) {
-            valueList.add(new Value(entry.getKey(), responseObject));
-        }
+            @Override
+            public boolean hasNext() {
+                return index < values.length;
+            }
+
+            @Override
+            public Value next() {
+                if(index >= values.length) {
+                    throw new NoSuchElementException();
+                }
+                Value value = new Value(schema.getColumnName(index), values[index]);
+                index++;
+                return value;
+            }
+        };
+    }
 
-        return valueList.iterator();
+    /**
+     * Gets a cursor over the Values in this Record, which reuses one Value for every column rather than
+     * creating one for each.
+     *
+     * @see ValueCursor
+     * @return a cursor positioned before the first column
+     */
+    public ValueCursor cursor() {
+        return new ValueCursor(this);
     }
 
     /**
@@ -48,14 +91,24 @@ public class Record {
      * @return The set of column names
      */
     public Set<String> columnsNames() {
-        return responseObject.keySet();
+        return schema.getColumnNames();
+    }
+
+    /**
+     * Gets the columns of the record. Records of the same page share their schema, so a column index looked up
+     * once can be used with getValue(int) for every record
+     *
+     * @return the schema
+     */
+    public RecordSchema getSchema() {
+        return schema;
     }
 
     /**
      * @return - the number of columns
      */
     public int length() {
-        return responseObject.length();
+        return values.length;
     }
 
     /**
@@ -66,10 +119,68 @@ public class Record {
      * @throws ColumnNotFoundException Column does not exist in Record
      */
     public Value getValue(String key) throws ColumnNotFoundException {
-        if(!responseObject.has(key)) {
+        int index = schema.indexOf(key);
+        if(index < 0) {
             throw new ColumnNotFoundException("Column not found at " + key, key);
         }
 
-        return new Value(key, responseObject);
+        return new Value(key, values[index]);
+    }
+
+    /**
+     * Gets the Value at a column index
+     *
+     * @see RecordSchema#indexOf(String)
+     * @param index the column index
+     * @return the Value at that index
+     * @throws IndexOutOfBoundsException if there is no column at the index
+     */
+    public Value getValue(int index) {
+        return new Value(schema.getColumnName(index), values[index]);
+    }
+
+    /**
+     * Maps this record onto a new instance of a class, reading each property from the column of the same name.
+     *
+     * The class may be a Java record, or have a no-argument constructor and settable fields. How to create and
+     * fill the class is looked up once, and reused for every record mapped onto it.
+     *
+     * @see ResultSet#as(Class)
+     * @param type the class to map onto
+     * @param <T> the mapped type
+     * @return the new instance
+     * @throws IllegalArgumentException if records can not be mapped onto the class
+     * @throws ValueConversionException if a column can not be converted to its property type
+     */
+    public <T> T as(Class<T> type) {
+        return RecordMapper.of(type).map(this);
+    }
+
+    /**
+     * Gets the raw value at a column, without checking that it exists
+     *
+     * @param key the column name
+     * @return the value, JSONObject.NULL if it is null, or null if the column does not exist
+     */
+    Object opt(String key) {
+        int index = schema.indexOf(key);
+        return index < 0 ? null : values[index];
+    }
+
+    /**
+     * @param index the column index
+     * @return the raw value at the index, JSONObject.NULL if it is null
+     */
+    Object valueAt(int index) {
+        return values[index];
+    }
+
+    private static Object[] valuesOf(JSONObject responseObject) {
+        Object[] values = new Object[responseObject.length()];
+        int i = 0;
+        for(String key : responseObject.keySet()) {
+            values[i++] = responseObject.opt(key);
+        }
+        return values;
     }
 }
@@ -0,0 +1,353 @@
+package namara.client;
+
+import namara.client.exception.ValueConversionException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps records onto instances of a class. The constructor, properties and conversions of a class are
+ * looked up once, as method handles, and the mapper is shared by every record mapped onto that class.
+ *
+ * Java records are built through their canonical constructor, with each component read from the column
+ * of the same name. Other classes need a no-argument constructor, and each non-static, non-transient,
+ * non-final field is set from the column of the same name, through its setter if it has one. Columns are
+ * matched on the exact property name first, then on its snake_case form, so "openedOn" reads "opened_on".
+ * Missing columns leave fields at their defaults, and nulls are mapped to the default of primitive types.
+ */
+final class RecordMapper<T> {
+    /**
+     * Mappers by class. Held by each class rather than in a map, so that mapping a class does not keep its
+     * class loader from being unloaded
+     */
+    private static final ClassValue<RecordMapper<?>> MAPPERS = new ClassValue<RecordMapper<?>>() {
+        @Override
+        protected RecordMapper<?> computeValue(Class<?> type) {
+            return new RecordMapper(type);
+        }
+    };
+
+    /**
+     * Thrown by setAccessible on JDK 9 and later when a module does not open a class to the client
+     */
+    private static final String INACCESSIBLE_OBJECT_EXCEPTION = "java.lang.reflect.InaccessibleObjectException";
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /**
+     * Record support is looked up reflectively so the client still builds and runs on JDK 8
+     */
+    private static final Method IS_RECORD = findMethod(Class.class, "isRecord");
+    private static final Method GET_RECORD_COMPONENTS = findMethod(Class.class, "getRecordComponents");
+
+    private static final Map<Class<?>, Object> PRIMITIVE_DEFAULTS = new HashMap();
+    private static final Map<Class<?>, Class<?>> BOXES = new HashMap();
+
+    static {
+        PRIMITIVE_DEFAULTS.put(boolean.class, false);
+        PRIMITIVE_DEFAULTS.put(byte.class, (byte) 0);
+        PRIMITIVE_DEFAULTS.put(short.class, (short) 0);
+        PRIMITIVE_DEFAULTS.put(int.class, 0);
+        PRIMITIVE_DEFAULTS.put(long.class, 0L);
+        PRIMITIVE_DEFAULTS.put(float.class, 0f);
+        PRIMITIVE_DEFAULTS.put(double.class, 0d);
+        PRIMITIVE_DEFAULTS.put(char.class, '\0');
+
+        BOXES.put(boolean.class, Boolean.class);
+        BOXES.put(byte.class, Byte.class);
+        BOXES.put(short.class, Short.class);
+        BOXES.put(int.class, Integer.class);
+        BOXES.put(long.class, Long.class);
+        BOXES.put(float.class, Float.class);
+        BOXES.put(double.class, Double.class);
+        BOXES.put(char.class, Character.class);
+    }
+
+    /**
+     * Converts a raw value from a record to a property type
+     */
+    private interface Converter {
+        /**
+         * @param raw the raw value, never null or JSONObject.NULL
+         * @return the converted value
+         * @throws RuntimeException if unable to convert
+         */
+        Object convert(Object raw);
+    }
+
+    private static final class Property {
+        private final String column;
+
+        /**
+         * The snake_case form of the column, or null if it is the same
+         */
+        private final String alternateColumn;
+
+        private final Class<?> type;
+        private final Converter converter;
+
+        /**
+         * Sets the property on an instance, typed (Object, Object)void. Null for Java records
+         */
+        private final MethodHandle setter;
+
+        private Property(String name, Class<?> type, MethodHandle setter) {
+            String snakeCase = toSnakeCase(name);
+
+            this.column = name;
+            this.alternateColumn = snakeCase.equals(name) ? null : snakeCase;
+            this.type = type;
+            this.converter = converterFor(name, type);
+            this.setter = setter;
+        }
+
+        /**
+         * @return the raw value, JSONObject.NULL if it is null, or null if the record has no such column
+         */
+        private Object raw(Record record) {
+            Object raw = record.opt(column);
+            if(raw == null && alternateColumn != null) {
+                raw = record.opt(alternateColumn);
+            }
+            return raw;
+        }
+
+        private Object convert(Object raw) {
+            if(raw == null || raw == JSONObject.NULL) {
+                return type.isPrimitive() ? PRIMITIVE_DEFAULTS.get(type) : null;
+            }
+
+            try {
+                return converter.convert(raw);
+            } catch(RuntimeException e) {
+                throw new ValueConversionException("Record[" + JSONObject.quote(column) + "] => [" + raw +
+                        "] can not be converted to " + JSONObject.quote(type.getSimpleName()), raw);
+            }
+        }
+    }
+
+    private final Class<T> type;
+    private final Property[] properties;
+
+    /**
+     * Creates instances. Typed (Object[])Object for Java records, taking the components in order,
+     * otherwise ()Object
+     */
+    private final MethodHandle constructor;
+
+    private final boolean canonical;
+
+    private RecordMapper(Class<T> type) {
+        this.type = type;
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        List<Property> properties = new ArrayList();
+        try {
+            if(isJavaRecord(type)) {
+                Object[] components = (Object[]) GET_RECORD_COMPONENTS.invoke(type);
+                Class<?>[] parameterTypes = new Class<?>[components.length];
+                for(int i = 0; i < components.length; i++) {
+                    Method getName = components[i].getClass().getMethod("getName");
+                    Method getType = components[i].getClass().getMethod("getType");
+                    parameterTypes[i] = (Class<?>) getType.invoke(components[i]);
+                    properties.add(new Property((String) getName.invoke(components[i]), parameterTypes[i], null));
+                }
+
+                Constructor<T> canonicalConstructor = type.getDeclaredConstructor(parameterTypes);
+                canonicalConstructor.setAccessible(true);
+                this.constructor = lookup.unreflectConstructor(canonicalConstructor)
+                        .asSpreader(Object[].class, parameterTypes.length)
+                        .asType(MethodType.methodType(Object.class, Object[].class));
+                this.canonical = true;
+            } else {
+                Constructor<T> noArgConstructor = type.getDeclaredConstructor();
+                noArgConstructor.setAccessible(true);
+                this.constructor = lookup.unreflectConstructor(noArgConstructor)
+                        .asType(MethodType.methodType(Object.class));
+                this.canonical = false;
+
+                for(Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                    for(Field field : current.getDeclaredFields()) {
+                        int modifiers = field.getModifiers();
+                        if(Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) ||
+                                Modifier.isFinal(modifiers) || field.isSynthetic()) {
+                            continue;
+                        }
+                        properties.add(new Property(field.getName(), field.getType(), setterFor(lookup, current, field)));
+                    }
+                }
+            }
+        } catch(NoSuchMethodException e) {
+            throw new IllegalArgumentException(type.getName() + " needs a no-argument constructor to be mapped from records");
+        } catch(ReflectiveOperationException | SecurityException e) {
+            throw new IllegalArgumentException("Unable to map records onto " + type.getName() + ": " + e.getMessage(), e);
+        } catch(RuntimeException e) {
+            if(INACCESSIBLE_OBJECT_EXCEPTION.equals(e.getClass().getName())) {
+                throw new IllegalArgumentException("Unable to map records onto " + type.getName() + ": " + e.getMessage(), e);
+            }
+            throw e;
+        }
+
+        this.properties = properties.toArray(new Property[0]);
+    }
+
+    /**
+     * Gets the mapper for a class, creating it on first use
+     *
+     * @param type the class to map records onto
+     * @param <T> the mapped type
+     * @return the mapper
+     * @throws IllegalArgumentException if records can not be mapped onto the class
+     */
+    static <T> RecordMapper<T> of(Class<T> type) {
+        return (RecordMapper<T>) MAPPERS.get(type);
+    }
+
+    /**
+     * Maps a record onto a new instance
+     *
+     * @param record the record
+     * @return the new instance
+     * @throws ValueConversionException if a column can not be converted to its property type
+     */
+    T map(Record record) {
+        try {
+            if(canonical) {
+                Object[] arguments = new Object[properties.length];
+                for(int i = 0; i < properties.length; i++) {
+                    arguments[i] = properties[i].convert(properties[i].raw(record));
+                }
+                return (T) (Object) constructor.invokeExact(arguments);
+            }
+
+            Object instance = (Object) constructor.invokeExact();
+            for(Property property : properties) {
+                Object raw = property.raw(record);
+                if(raw == null || (raw == JSONObject.NULL && property.type.isPrimitive())) {
+                    continue;
+                }
+                property.setter.invokeExact(instance, property.convert(raw));
+            }
+            return (T) instance;
+        } catch(RuntimeException | Error e) {
+            throw e;
+        } catch(Throwable e) {
+            throw new IllegalStateException("Unable to create " + type.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static MethodHandle setterFor(MethodHandles.Lookup lookup, Class<?> owner, Field field) throws IllegalAccessException {
+        String name = "set" + Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
+        try {
+            Method setter = owner.getDeclaredMethod(name, field.getType());
+            if(!Modifier.isStatic(setter.getModifiers())) {
+                setter.setAccessible(true);
+                return lookup.unreflect(setter).asType(SETTER_TYPE);
+            }
+        } catch(NoSuchMethodException e) {
+            // Set the field directly
+        }
+
+        field.setAccessible(true);
+        return lookup.unreflectSetter(field).asType(SETTER_TYPE);
+    }
+
+    private static Converter converterFor(String name, Class<?> type) {
+        Class<?> boxed = type.isPrimitive() ? BOXES.get(type) : type;
+
+        if(boxed == String.class) {
+            return Object::toString;
+        } else if(boxed == Integer.class) {
+            return raw -> raw instanceof Number ? (Object) ((Number) raw).intValue() : Integer.valueOf(Integer.parseInt(text(raw)));
+        } else if(boxed == Long.class) {
+            return raw -> raw instanceof Number ? (Object) ((Number) raw).longValue() : Long.valueOf(Long.parseLong(text(raw)));
+        } else if(boxed == Double.class) {
+            return raw -> raw instanceof Number ? (Object) ((Number) raw).doubleValue() : Double.valueOf(Double.parseDouble(text(raw)));
+        } else if(boxed == Float.class) {
+            return raw -> raw instanceof Number ? (Object) ((Number) raw).floatValue() : Float.valueOf(Float.parseFloat(text(raw)));
+        } else if(boxed == Short.class) {
+            return raw -> raw instanceof Number ? (Object) ((Number) raw).shortValue() : Short.valueOf(Short.parseShort(text(raw)));
+        } else if(boxed == Byte.class) {
+            return raw -> raw instanceof Number ? (Object) ((Number) raw).byteValue() : Byte.valueOf(Byte.parseByte(text(raw)));
+        } else if(boxed == Boolean.class) {
+            return RecordMapper::toBoolean;
+        } else if(boxed == Character.class) {
+            return raw -> {
+                String text = text(raw);
+                if(text.length() != 1) {
+                    throw new IllegalArgumentException("Not a single character");
+                }
+                return text.charAt(0);
+            };
+        } else if(boxed == BigDecimal.class) {
+            return raw -> raw instanceof BigDecimal ? raw : new BigDecimal(raw.toString());
+        } else if(boxed == BigInteger.class) {
+            return raw -> raw instanceof BigInteger ? raw : new BigDecimal(raw.toString()).toBigInteger();
+        } else if(boxed.isEnum()) {
+            return raw -> Enum.valueOf((Class) boxed, text(raw));
+        } else if(boxed == JSONObject.class || boxed == JSONArray.class || boxed == Object.class) {
+            return boxed::cast;
+        }
+
+        throw new IllegalArgumentException("Unable to map records onto " + name + ", " + type.getName() + " is not a supported type");
+    }
+
+    private static String text(Object raw) {
+        if(!(raw instanceof String)) {
+            throw new IllegalArgumentException("Not text");
+        }
+        return (String) raw;
+    }
+
+    private static Object toBoolean(Object raw) {
+        if(raw instanceof Boolean) {
+            return raw;
+        } else if("true".equalsIgnoreCase(text(raw))) {
+            return Boolean.TRUE;
+        } else if("false".equalsIgnoreCase(text(raw))) {
+            return Boolean.FALSE;
+        }
+        throw new IllegalArgumentException("Not a boolean");
+    }
+
+    private static boolean isJavaRecord(Class<?> type) throws ReflectiveOperationException {
+        return IS_RECORD != null && (Boolean) IS_RECORD.invoke(type);
+    }
+
+    static String toSnakeCase(String name) {
+        StringBuilder snakeCase = new StringBuilder(name.length() + 4);
+        for(int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if(Character.isUpperCase(c)) {
+                if(i > 0) {
+                    snakeCase.append('_');
+                }
+                snakeCase.append(Character.toLowerCase(c));
+            } else {
+                snakeCase.append(c);
+            }
+        }
+        return snakeCase.toString();
+    }
+
+    private static Method findMethod(Class<?> owner, String name) {
+        try {
+            return owner.getMethod(name);
+        } catch(NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
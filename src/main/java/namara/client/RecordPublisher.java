@@ -0,0 +1,247 @@
+package namara.client;
+
+import namara.client.exception.ConnectionException;
+import namara.client.exception.NamaraException;
+import namara.query.QueryBuilder;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class RecordPublisher implements Publisher<Record> {
+    /**
+     * The query to publish the results of
+     */
+    private final QueryBuilder queryBuilder;
+
+    /**
+     * The namara client to send the query to
+     */
+    private final Client client;
+
+    /**
+     * Number of records to fetch for each window
+     */
+    private final int fetchSize;
+
+    /**
+     * Creates a Reactive Streams publisher of the records for a query.
+     *
+     * Records are fetched one LIMIT/OFFSET window at a time, and a window is only requested once the
+     * subscriber has demand that the records already fetched can not meet. No thread is blocked while
+     * waiting on Namara. Each subscriber gets its own scan of the query from the start. On Java 9 and
+     * later, org.reactivestreams.FlowAdapters adapts this to a java.util.concurrent.Flow.Publisher.
+     *
+     * @see ResultSet
+     * @param queryBuilder the query builder
+     * @param client the Namara client
+     */
+    public RecordPublisher(QueryBuilder queryBuilder, Client client) {
+        this(queryBuilder, client, client.getQueryLimit());
+    }
+
+    /**
+     * Package-protected constructor to avoid needing to get query limit from API
+     *
+     * @param queryBuilder the query builder
+     * @param client the Namara client
+     * @param fetchSize the maximum query limit size per request
+     */
+    RecordPublisher(QueryBuilder queryBuilder, Client client, Integer fetchSize) {
+        this.queryBuilder = queryBuilder;
+        this.client = client;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Record> subscriber) {
+        if(subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+
+        RecordSubscription subscription = new RecordSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * The state of one subscriber's scan. All signals to the subscriber are sent from drain(), which
+     * only ever runs on one thread at a time
+     */
+    private final class RecordSubscription implements Subscription {
+        private final Subscriber<? super Record> subscriber;
+
+        /**
+         * Records requested by the subscriber and not yet delivered
+         */
+        private final AtomicLong demand = new AtomicLong();
+
+        /**
+         * Number of times drain() has been asked to run. Whichever caller moves this off 0 does the work
+         */
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private volatile boolean cancelled = false;
+        private volatile CompletableFuture<Page> pending;
+        private volatile Page fetched;
+        private volatile Throwable error;
+
+        private Iterator<Record> records = Collections.emptyIterator();
+        private boolean lastPage = false;
+        private boolean terminated = false;
+        private int currentLimit;
+        private int currentOffset;
+
+        RecordSubscription(Subscriber<? super Record> subscriber) {
+            this.subscriber = subscriber;
+
+            if(queryBuilder.getLimit() == null || queryBuilder.getLimit() >= fetchSize) {
+                this.currentLimit = fetchSize;
+            } else {
+                this.currentLimit = queryBuilder.getLimit();
+            }
+            this.currentOffset = queryBuilder.getOffset() == null ? 0 : queryBuilder.getOffset();
+        }
+
+        @Override
+        public void request(long n) {
+            if(n <= 0) {
+                error = new IllegalArgumentException("Subscribers must request a positive number of records, got " + n);
+            } else {
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            CompletableFuture<Page> inFlight = pending;
+            if(inFlight != null) {
+                inFlight.cancel(true);
+            }
+        }
+
+        private void drain() {
+            if(wip.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+            do {
+                if(!terminated) {
+                    emit();
+                }
+                missed = wip.addAndGet(-missed);
+            } while(missed != 0);
+        }
+
+        private void emit() {
+            while(true) {
+                if(cancelled) {
+                    terminated = true;
+                    return;
+                }
+
+                if(error != null) {
+                    terminate();
+                    subscriber.onError(error);
+                    return;
+                }
+
+                while(demand.get() > 0 && records.hasNext() && !cancelled) {
+                    subscriber.onNext(records.next());
+                    demand.decrementAndGet();
+                }
+
+                if(cancelled) {
+                    continue;
+                }
+                if(records.hasNext()) {
+                    // Out of demand, the next request will drain again
+                    return;
+                }
+
+                Page page = fetched;
+                if(page != null) {
+                    fetched = null;
+                    pending = null;
+                    records = page.iterator();
+                    lastPage = page.isLast();
+                    continue;
+                }
+
+                if(pending != null) {
+                    // Waiting on a window, the callback will drain again
+                    return;
+                }
+
+                if(lastPage || currentLimit <= 0) {
+                    terminate();
+                    subscriber.onComplete();
+                    return;
+                }
+
+                if(demand.get() == 0) {
+                    return;
+                }
+
+                fetchNextWindow();
+            }
+        }
+
+        private void fetchNextWindow() {
+            CompletableFuture<Page> request = client.fetchPageAsync(queryBuilder, currentLimit, currentOffset);
+            pending = request;
+            advanceWindow();
+
+            request.whenComplete((page, e) -> {
+                if(e != null) {
+                    if(!cancelled) {
+                        error = unwrap(e);
+                    }
+                } else {
+                    fetched = page;
+                }
+                drain();
+            });
+        }
+
+        private void terminate() {
+            terminated = true;
+            records = Collections.emptyIterator();
+
+            CompletableFuture<Page> inFlight = pending;
+            if(inFlight != null) {
+                inFlight.cancel(true);
+            }
+        }
+
+        private Throwable unwrap(Throwable e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if(cause instanceof NamaraException) {
+                return cause;
+            }
+            return new ConnectionException("Encountered error when fetching page: " + cause.getMessage(),
+                    client.getNamaraHost());
+        }
+
+        /**
+         * Moves the limit and offset on to the next window, in the same way as ResultSet
+         */
+        private void advanceWindow() {
+            currentOffset += currentLimit;
+
+            if(queryBuilder.getLimit() != null && (queryBuilder.getLimit() - currentOffset) <= fetchSize) {
+                currentLimit = queryBuilder.getLimit() - currentOffset;
+            } else {
+                currentLimit = fetchSize;
+            }
+        }
+    }
+}
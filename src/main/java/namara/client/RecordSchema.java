@@ -0,0 +1,116 @@
+package namara.client;
+
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+public final class RecordSchema {
+    /**
+     * Column names, by index
+     */
+    private final String[] names;
+
+    /**
+     * Column indexes, by name
+     */
+    private final Map<String, Integer> indexes;
+
+    private final Set<String> columnNames;
+
+    /**
+     * Creates the schema for records with the given columns. Records sharing a schema store only their
+     * values, in column order, so column names are held once per page rather than once per record
+     *
+     * @param names the column names, in index order
+     */
+    RecordSchema(Collection<String> names) {
+        this.names = names.toArray(new String[0]);
+        this.indexes = new HashMap(this.names.length * 2);
+        for(int i = 0; i < this.names.length; i++) {
+            indexes.put(this.names[i], i);
+        }
+        this.columnNames = Collections.unmodifiableSet(new LinkedHashSet(Arrays.asList(this.names)));
+    }
+
+    /**
+     * @return the number of columns
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @param index the column index
+     * @return the name of the column at the index
+     * @throws IndexOutOfBoundsException if there is no column at the index
+     */
+    public String getColumnName(int index) {
+        return names[index];
+    }
+
+    /**
+     * @param name the column name
+     * @return the index of the column, or -1 if there is no such column
+     */
+    public int indexOf(String name) {
+        Integer index = indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return the column names, in index order
+     */
+    public Set<String> getColumnNames() {
+        return columnNames;
+    }
+
+    @Override
+    public String toString() {
+        return "RecordSchema" + Arrays.toString(names);
+    }
+
+    /**
+     * Builds a record from a parsed result, sharing the schema of the previous record when it has the same columns
+     *
+     * @param result the parsed result
+     * @param previous the schema of the previous record, or null
+     * @return the record
+     */
+    static Record toRecord(JSONObject result, RecordSchema previous) {
+        if(previous != null) {
+            Object[] values = previous.valuesOf(result);
+            if(values != null) {
+                return new Record(previous, values);
+            }
+        }
+
+        RecordSchema schema = new RecordSchema(result.keySet());
+        return new Record(schema, schema.valuesOf(result));
+    }
+
+    /**
+     * @param result a parsed result
+     * @return its values in column order, or null if it does not have exactly these columns
+     */
+    private Object[] valuesOf(JSONObject result) {
+        if(result.length() != names.length) {
+            return null;
+        }
+
+        Object[] values = new Object[names.length];
+        for(int i = 0; i < names.length; i++) {
+            Object value = result.opt(names[i]);
+            if(value == null) {
+                return null;
+            }
+            values[i] = value;
+        }
+        return values;
+    }
+}
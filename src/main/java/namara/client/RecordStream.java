@@ -0,0 +1,244 @@
+package namara.client;
+
+import namara.client.exception.ConnectionException;
+import namara.client.exception.NamaraException;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class RecordStream implements Iterator<Record>, Closeable {
+    /**
+     * Key of the array holding records in a query response
+     */
+    private static final String RESULTS_KEY = "results";
+
+    /**
+     * Tokenizer reading from the response body. Only the record currently being parsed is held in memory
+     */
+    private final JSONTokener tokener;
+
+    /**
+     * The underlying response, closed once the stream has been read or abandoned
+     */
+    private final Closeable source;
+
+    /**
+     * Url the stream was requested from, for error reporting
+     */
+    private final String connectionUrl;
+
+    /**
+     * The next record to be returned, already parsed
+     */
+    private Record nextRecord;
+
+    /**
+     * Whether the tokener is positioned inside the results array
+     */
+    private boolean inResults = false;
+
+    /**
+     * Schema of the last record read, shared with the following records while their columns are the same
+     */
+    private RecordSchema schema;
+
+    private boolean finished = false;
+
+    /**
+     * Number of records read so far, and the time spent reading them
+     */
+    private int recordCount = 0;
+    private long parseNanos = 0;
+
+    /**
+     * Holds any exception raised while reading the stream. Like the ResultSet, the iterator
+     * interface can not raise it, so it is retained for the user to check
+     */
+    private NamaraException exception;
+
+    /**
+     * Creates a stream of records read incrementally out of a query response body
+     *
+     * @param reader reader over the response body
+     * @param source closeable holding the response open
+     * @param connectionUrl the url that was requested
+     */
+    RecordStream(Reader reader, Closeable source, String connectionUrl) {
+        this.tokener = new JSONTokener(reader);
+        this.source = source;
+        this.connectionUrl = connectionUrl;
+    }
+
+    /**
+     * Returns true if there are more Records in the response. Will return false once the
+     * response has been fully read OR an error has been raised reading it
+     *
+     * @see RecordStream#hasException()
+     * @return True if the stream holds more Records
+     */
+    @Override
+    public boolean hasNext() {
+        if(nextRecord != null) return true;
+        if(finished) return false;
+
+        long start = System.nanoTime();
+        try {
+            nextRecord = readRecord();
+            if(nextRecord != null) {
+                recordCount++;
+            }
+        } catch(JSONException e) {
+            exception = new ConnectionException("Encountered error when reading response: " + e.getMessage(), connectionUrl);
+            nextRecord = null;
+        } catch(RuntimeException e) {
+            // Release the response before giving up on it
+            close();
+            throw e;
+        } finally {
+            parseNanos += System.nanoTime() - start;
+        }
+
+        if(nextRecord == null) {
+            close();
+        }
+
+        return nextRecord != null;
+    }
+
+    /**
+     * @return the next Record in the stream
+     */
+    @Override
+    public Record next() {
+        if(!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Record record = nextRecord;
+        nextRecord = null;
+        return record;
+    }
+
+    /**
+     * Checks whether reading the stream has generated an error
+     *
+     * @return true if an error has been raised
+     */
+    public boolean hasException() {
+        return exception != null;
+    }
+
+    /**
+     * Throws the exception generated while reading the stream. If none is recorded, it will just return.
+     *
+     * @throws NamaraException the recorded exception
+     */
+    public void throwException() throws NamaraException {
+        if(exception == null) return;
+
+        throw exception;
+    }
+
+    /**
+     * @return the number of records read from the response so far
+     */
+    int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return the time spent reading and parsing records so far, including time spent waiting on the response
+     */
+    long getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * Releases the underlying response. Safe to call more than once
+     */
+    @Override
+    public void close() {
+        finished = true;
+        try {
+            source.close();
+        } catch(IOException e) {
+            // Nothing left to read from it
+        }
+    }
+
+    /**
+     * Advances the tokener to the next element of the results array and parses it
+     *
+     * @return the next record, or null if there are no more
+     */
+    private Record readRecord() {
+        if(!inResults && !seekResults()) {
+            return null;
+        }
+
+        char c = tokener.nextClean();
+        if(c == ',') {
+            c = tokener.nextClean();
+        }
+        if(c == ']') {
+            return null;
+        }
+
+        tokener.back();
+        Object value = tokener.nextValue();
+        if(!(value instanceof JSONObject)) {
+            throw tokener.syntaxError("Expected a record object in results");
+        }
+
+        Record record = RecordSchema.toRecord((JSONObject) value, schema);
+        schema = record.getSchema();
+        return record;
+    }
+
+    /**
+     * Reads through the top level response object until the start of the results array,
+     * skipping over any other members
+     *
+     * @return true if the results array was found
+     */
+    private boolean seekResults() {
+        if(tokener.nextClean() != '{') {
+            throw tokener.syntaxError("A query response must begin with '{'");
+        }
+
+        while(true) {
+            char c = tokener.nextClean();
+            if(c == '}') {
+                return false;
+            }
+            if(c == ',') {
+                c = tokener.nextClean();
+            }
+            if(c != '"') {
+                throw tokener.syntaxError("Expected a key in query response");
+            }
+
+            String key = tokener.nextString('"');
+            if(tokener.nextClean() != ':') {
+                throw tokener.syntaxError("Expected a ':' after a key");
+            }
+
+            if(RESULTS_KEY.equals(key)) {
+                if(tokener.nextClean() != '[') {
+                    throw tokener.syntaxError("Expected results to be an array");
+                }
+                inResults = true;
+                return true;
+            }
+
+            // Skip over anything other than the results
+            tokener.nextValue();
+        }
+    }
+}
@@ -1,17 +1,24 @@
 package namara.client;
 
 import namara.client.exception.AuthorizationException;
+import namara.client.exception.ColumnNotFoundException;
 import namara.client.exception.ConnectionException;
 import namara.client.exception.NamaraException;
 import namara.client.exception.QueryException;
 import namara.query.QueryBuilder;
 import okhttp3.HttpUrl;
-import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
-public class ResultSet implements Iterator<Record> {
+public class ResultSet implements Iterator<Record>, Closeable {
     /**
      * The constructed query. This will be used for result pagination
      */
@@ -25,7 +32,7 @@ public class ResultSet implements Iterator<Record> {
     /**
      * Current instance of the result iterator
      */
-    private Iterator<Object> recordIterator;
+    private Iterator<Record> recordIterator;
 
     /**
      * Holds any exception that has been raised during querying.
@@ -55,6 +62,53 @@ public class ResultSet implements Iterator<Record> {
      */
     private int currentOffset;
 
+    /**
+     * Number of upcoming windows to fetch in the background. 0 fetches each window only once
+     * the previous one has been consumed
+     */
+    private int prefetchWindows = 0;
+
+    /**
+     * Windows that have been requested but not yet consumed, in the order they must be read.
+     * Bounded by prefetchWindows
+     */
+    private final Deque<CompletableFuture<Page>> pendingPages = new ArrayDeque();
+
+    /**
+     * Whether windows are read incrementally from the response rather than parsed whole
+     */
+    private boolean streaming = false;
+
+    /**
+     * The query of the window being streamed, reported to the listener once the stream is exhausted
+     */
+    private String streamQuery;
+
+    /**
+     * Set once a page comes back with fewer records than requested
+     */
+    private boolean exhausted = false;
+
+    /**
+     * Set once the result set has been closed, after which no more windows are fetched
+     */
+    private boolean closed = false;
+
+    /**
+     * Unique column to seek on for keyset pagination, or null to paginate with LIMIT/OFFSET
+     */
+    private String keyColumn;
+
+    /**
+     * The last record handed out, whose key the next keyset page starts after
+     */
+    private Record lastRecord;
+
+    /**
+     * Number of windows received from Namara
+     */
+    private long pageCount = 0;
+
     /**
      * Initialize a new result set with a constructed query and a Namara client.
      *
@@ -101,6 +155,158 @@ public class ResultSet implements Iterator<Record> {
         }
     }
 
+    /**
+     * Enables fetching of upcoming windows in the background. Up to `windows` LIMIT/OFFSET windows
+     * following the current one are requested concurrently, and records are still returned in order.
+     *
+     * Windows past the end of the results may be requested speculatively when the query has no limit;
+     * they are cancelled as soon as the last page is found.
+     *
+     * @param windows the number of windows to fetch ahead, or 0 to disable prefetching
+     * @return this result set
+     */
+    public ResultSet prefetch(int windows) {
+        this.prefetchWindows = Math.max(0, windows);
+        return this;
+    }
+
+    /**
+     * Enables reading each window incrementally from the response as records are consumed, rather than
+     * parsing the whole window into memory first. This bounds the memory held per window to a single record.
+     *
+     * Streaming is not combined with prefetching; if both are enabled, prefetching takes precedence.
+     *
+     * @see Client#queryStream(String)
+     * @param streaming true to stream windows
+     * @return this result set
+     */
+    public ResultSet streaming(boolean streaming) {
+        this.streaming = streaming;
+        return this;
+    }
+
+    /**
+     * Enables keyset (seek) pagination on a unique column. Each window after the first starts after the key of
+     * the last record read, instead of at an offset, so the host does not rescan and discard every earlier
+     * row and the cost of a full scan grows linearly with its size.
+     *
+     * Results are returned ordered by the key column, and every record must have a non-null key. Windows are
+     * fetched one after another, so keyset pagination is not combined with prefetching; if both are enabled,
+     * prefetching takes precedence.
+     *
+     * @see QueryBuilder#buildKeysetQuery(String, Object, int, int)
+     * @param keyColumn a unique column to order and seek on, or null to paginate with LIMIT/OFFSET
+     * @return this result set
+     */
+    public ResultSet keyset(String keyColumn) {
+        this.keyColumn = keyColumn;
+        return this;
+    }
+
+    /**
+     * Maps the remaining records onto instances of a class, reading each property from the column of the
+     * same name, or from its snake_case form. The class may be a Java record, or have a no-argument
+     * constructor and settable fields.
+     *
+     * How to create and fill the class is looked up once and reused for every row, so mapping costs about
+     * the same as reading each column by hand. Errors while fetching are still recorded on this result set.
+     *
+     * @see Record#as(Class)
+     * @see ResultSet#hasException()
+     * @param type the class to map onto
+     * @param <T> the mapped type
+     * @return an iterator of mapped records, advancing this result set
+     * @throws IllegalArgumentException if records can not be mapped onto the class
+     */
+    public <T> Iterator<T> as(Class<T> type) {
+        RecordMapper<T> mapper = RecordMapper.of(type);
+
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return ResultSet.this.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return mapper.map(ResultSet.this.next());
+            }
+        };
+    }
+
+    /**
+     * Decodes the remaining records into typed column vectors, one ColumnarPage for each window received from
+     * Namara. Each window is only fetched and decoded as the iterator reaches it. Errors while fetching are
+     * still recorded on this result set.
+     *
+     * @see ColumnarPage
+     * @see ResultSet#hasException()
+     * @return an iterator of the columns of each window, advancing this result set
+     */
+    public Iterator<ColumnarPage> toColumns() {
+        return new Iterator<ColumnarPage>() {
+            @Override
+            public boolean hasNext() {
+                return ResultSet.this.hasNext();
+            }
+
+            @Override
+            public ColumnarPage next() {
+                if(!ResultSet.this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                // Take what is left of the current window
+                List<Record> records = new ArrayList();
+                do {
+                    records.add(ResultSet.this.next());
+                } while(recordIterator.hasNext());
+
+                return new ColumnarPage(records);
+            }
+        };
+    }
+
+    /**
+     * Writes the remaining records as CSV to a channel, with a header row of the first record's columns. The
+     * channel is left open.
+     *
+     * Combine with streaming(true) so records are written as they are read from each response, keeping memory
+     * constant however large the export, or with prefetch(int) so the next windows are fetched while the
+     * current one is written.
+     *
+     * @see CsvWriter
+     * @param channel the channel to write to
+     * @return the number of rows written
+     * @throws IOException if writing fails
+     * @throws NamaraException if fetching the results failed. Rows read before the failure have been written
+     */
+    public long writeCsv(WritableByteChannel channel) throws IOException, NamaraException {
+        return new CsvWriter(channel).writeAll(this);
+    }
+
+    /**
+     * Writes the remaining records as CSV to a stream. The stream is left open
+     *
+     * @see ResultSet#writeCsv(WritableByteChannel)
+     * @param out the stream to write to
+     * @return the number of rows written
+     * @throws IOException if writing fails
+     * @throws NamaraException if fetching the results failed. Rows read before the failure have been written
+     */
+    public long writeCsv(OutputStream out) throws IOException, NamaraException {
+        return new CsvWriter(out).writeAll(this);
+    }
+
+    /**
+     * Gets the number of LIMIT/OFFSET windows received from Namara so far
+     *
+     * @return the number of pages
+     */
+    public long getPageCount() {
+        return pageCount;
+    }
+
     /**
      * Checks whether getting next result has generated an error
      *
@@ -125,13 +331,27 @@ public class ResultSet implements Iterator<Record> {
         throw exception;
     }
 
+    /**
+     * Stops reading the results early, releasing any response being streamed and cancelling any windows
+     * being fetched ahead. Reading the results to the end, or to an error, releases them as well, so this is
+     * only needed when iteration stops before then. Safe to call more than once
+     */
+    @Override
+    public void close() {
+        closed = true;
+        closeStream();
+        cancelPendingPages();
+        recordIterator = Collections.emptyIterator();
+    }
+
     /**
      * Gets the next record
      *
      * @return the next Record in the iterator
      */
     public Record next() {
-        return new Record((JSONObject) recordIterator.next());
+        lastRecord = recordIterator.next();
+        return lastRecord;
     }
 
     /**
@@ -145,9 +365,20 @@ public class ResultSet implements Iterator<Record> {
      */
     @Override
     public boolean hasNext() {
+        if(closed) {
+            return false;
+        }
+
         try {
             // Check if list of records exists OR if the current iterator has run out of records
             if(recordIterator == null || !recordIterator.hasNext()) {
+                // A stream that ended on an error must not be taken as the end of its window
+                if(recordIterator instanceof RecordStream) {
+                    RecordStream stream = (RecordStream) recordIterator;
+                    stream.throwException();
+                    streamDelivered(stream);
+                }
+
                 // Attempt to getBuilder a new list of them
                 recordIterator = retrieveNewIterator();
             }
@@ -155,8 +386,14 @@ public class ResultSet implements Iterator<Record> {
         } catch (NamaraException e) {
             // Catch any exception and record them here
             this.exception = e;
+            closeStream();
+            cancelPendingPages();
             // This may be a false positive and should be checked by whoever is using the iterator on each pass
             return false;
+        } catch (RuntimeException e) {
+            closeStream();
+            cancelPendingPages();
+            throw e;
         }
     }
 
@@ -169,16 +406,146 @@ public class ResultSet implements Iterator<Record> {
      * @throws QueryException
      * @throws ConnectionException
      */
-    private Iterator<Object> retrieveNewIterator() throws AuthorizationException, QueryException, ConnectionException {
+    private Iterator<Record> retrieveNewIterator() throws AuthorizationException, QueryException, ConnectionException {
+        if(prefetchWindows > 0) {
+            return retrievePrefetchedIterator();
+        }
+
         // If our limit is below 0, return an empty iterator
         // since the query API will mark it as invalid SQL
         if(currentLimit <= 0) {
-            return new ArrayList().iterator();
+            return Collections.emptyIterator();
+        }
+
+        String query = keyColumn == null ? queryBuilder.buildQuery(currentLimit, currentOffset) : buildKeysetQuery();
+
+        if(streaming) {
+            RecordStream stream = client.queryStream(query);
+            streamQuery = query;
+            pageCount++;
+            advanceWindow();
+            return stream;
+        }
+
+        JSONObject responseObject = client.query(query);
+        Page page = new Page(responseObject, currentLimit, currentOffset);
+        pageCount++;
+        pageDelivered(query, page);
+
+        advanceWindow();
+
+        return page.iterator();
+    }
+
+    /**
+     * Takes the next window from the prefetch buffer, topping the buffer back up so that the following
+     * windows are in flight while this one is being consumed
+     *
+     * @return An iterator of records
+     * @throws AuthorizationException
+     * @throws QueryException
+     * @throws ConnectionException
+     */
+    private Iterator<Record> retrievePrefetchedIterator() throws AuthorizationException, QueryException, ConnectionException {
+        fillPendingPages();
+
+        if(pendingPages.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+
+        Page page = awaitPage(pendingPages.poll());
+        pageCount++;
+        if(client.hasListener()) {
+            pageDelivered(queryBuilder.buildQuery(page.getLimit(), page.getOffset()), page);
         }
 
-        JSONObject responseObject = client.query(queryBuilder.buildQuery(currentLimit, currentOffset));
-        JSONArray responseRecords = responseObject.getJSONArray("results");
+        if(page.isLast()) {
+            exhausted = true;
+            cancelPendingPages();
+        } else {
+            fillPendingPages();
+        }
+
+        return page.iterator();
+    }
+
+    /**
+     * Builds the next keyset window, starting after the key of the last record read
+     *
+     * @return the query string
+     * @throws QueryException when the last record has no usable key
+     */
+    private String buildKeysetQuery() throws QueryException {
+        if(lastRecord == null) {
+            int offset = queryBuilder.getOffset() == null ? DEFAULT_OFFSET : queryBuilder.getOffset();
+            return queryBuilder.buildKeysetQuery(keyColumn, null, currentLimit, offset);
+        }
 
+        Value key;
+        try {
+            key = lastRecord.getValue(keyColumn);
+        } catch(ColumnNotFoundException e) {
+            throw new QueryException("Keyset column " + keyColumn + " is not in the results");
+        }
+        if(key.isNull()) {
+            throw new QueryException("Keyset column " + keyColumn + " is null, it must be unique and non-null");
+        }
+
+        return queryBuilder.buildKeysetQuery(keyColumn, key.get(), currentLimit, DEFAULT_OFFSET);
+    }
+
+    private void pageDelivered(String query, Page page) {
+        client.notifyListener(l -> l.pageDelivered(QueryInfo.of(QueryKey.of(query)), page.size()));
+    }
+
+    /**
+     * Reports a streamed window once it has been read to the end, since its records are only parsed as they are read
+     */
+    private void streamDelivered(RecordStream stream) {
+        client.notifyListener(l -> {
+            QueryInfo query = QueryInfo.of(QueryKey.of(streamQuery));
+            l.parseEnd(query, stream.getParseNanos());
+            l.pageDelivered(query, stream.getRecordCount());
+        });
+    }
+
+    private void fillPendingPages() {
+        while(!exhausted && currentLimit > 0 && pendingPages.size() < prefetchWindows) {
+            pendingPages.add(client.fetchPageAsync(queryBuilder, currentLimit, currentOffset));
+            advanceWindow();
+        }
+    }
+
+    private void closeStream() {
+        if(recordIterator instanceof RecordStream) {
+            ((RecordStream) recordIterator).close();
+        }
+    }
+
+    private void cancelPendingPages() {
+        for(CompletableFuture<Page> pending : pendingPages) {
+            pending.cancel(true);
+        }
+        pendingPages.clear();
+    }
+
+    private Page awaitPage(CompletableFuture<Page> pageFuture) throws AuthorizationException, QueryException, ConnectionException {
+        try {
+            return pageFuture.join();
+        } catch(CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            if(cause instanceof AuthorizationException) throw (AuthorizationException) cause;
+            if(cause instanceof QueryException) throw (QueryException) cause;
+            if(cause instanceof ConnectionException) throw (ConnectionException) cause;
+            throw new ConnectionException("Encountered error when fetching page: " + cause.getMessage(),
+                    client.getNamaraHost());
+        }
+    }
+
+    /**
+     * Moves the limit and offset on to the next window
+     */
+    private void advanceWindow() {
         // Update limit and offset for next query
         currentOffset += currentLimit;
 
@@ -190,7 +557,5 @@ public class ResultSet implements Iterator<Record> {
             // Otherwise, use default window size
             currentLimit = fetchSize;
         }
-
-        return responseRecords.iterator();
     }
 }
@@ -0,0 +1,180 @@
+package namara.client;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+public class RetryPolicy {
+    /**
+     * Default number of attempts for each request, including the first
+     */
+    static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    static final long DEFAULT_INITIAL_BACKOFF_MILLIS = 200;
+
+    static final long DEFAULT_MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    static final long DEFAULT_MAX_RETRY_AFTER_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * Status codes that indicate a transient failure
+     */
+    static final Set<Integer> DEFAULT_RETRYABLE_STATUSES =
+            Collections.unmodifiableSet(new HashSet(Arrays.asList(408, 429, 500, 502, 503, 504)));
+
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+    private long maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+    private long maxRetryAfterMillis = DEFAULT_MAX_RETRY_AFTER_MILLIS;
+    private double multiplier = 2.0;
+    private boolean jitter = true;
+    private Set<Integer> retryableStatuses = DEFAULT_RETRYABLE_STATUSES;
+
+    /**
+     * Creates a retry policy with the default settings: 3 attempts, exponential backoff starting at
+     * 200ms and doubling up to 10s, with full jitter
+     */
+    public RetryPolicy() {}
+
+    /**
+     * A policy that never retries
+     *
+     * @return the resulting policy
+     */
+    public static RetryPolicy none() {
+        return new RetryPolicy().maxAttempts(1);
+    }
+
+    /**
+     * Sets the number of attempts made for each request, including the first
+     *
+     * @param maxAttempts maximum number of attempts
+     * @return the resulting policy
+     */
+    public RetryPolicy maxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        return this;
+    }
+
+    /**
+     * Sets the exponential backoff between attempts
+     *
+     * @param initial backoff before the first retry
+     * @param max maximum backoff between any two attempts
+     * @param unit time unit for backoffs
+     * @param multiplier factor the backoff grows by after each attempt
+     * @return the resulting policy
+     */
+    public RetryPolicy backoff(long initial, long max, TimeUnit unit, double multiplier) {
+        this.initialBackoffMillis = unit.toMillis(initial);
+        this.maxBackoffMillis = unit.toMillis(max);
+        this.multiplier = multiplier;
+        return this;
+    }
+
+    /**
+     * Enables or disables full jitter, which waits a random time between zero and the computed backoff so that
+     * clients failing together do not retry together
+     *
+     * @param jitter true to randomize backoffs
+     * @return the resulting policy
+     */
+    public RetryPolicy jitter(boolean jitter) {
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * Sets the longest Retry-After the policy will honour. Longer values are capped to this
+     *
+     * @param max maximum wait
+     * @param unit time unit for wait
+     * @return the resulting policy
+     */
+    public RetryPolicy maxRetryAfter(long max, TimeUnit unit) {
+        this.maxRetryAfterMillis = unit.toMillis(max);
+        return this;
+    }
+
+    /**
+     * Sets the response status codes that will be retried. Connection failures are always retried
+     *
+     * @param statuses retryable status codes
+     * @return the resulting policy
+     */
+    public RetryPolicy retryOn(Integer... statuses) {
+        this.retryableStatuses = Collections.unmodifiableSet(new HashSet(Arrays.asList(statuses)));
+        return this;
+    }
+
+    int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    boolean isRetryable(int statusCode) {
+        return retryableStatuses.contains(statusCode);
+    }
+
+    /**
+     * Computes the wait before the next attempt. A Retry-After from the server takes precedence
+     * over the computed backoff
+     *
+     * @param attempt the attempt that just failed, starting at 1
+     * @param retryAfter the Retry-After header of the failed response, or null
+     * @return the time to wait in milliseconds
+     */
+    long backoffMillis(int attempt, String retryAfter) {
+        long serverDelay = retryAfterMillis(retryAfter);
+        if(serverDelay >= 0) {
+            return serverDelay;
+        }
+
+        double backoff = initialBackoffMillis * Math.pow(multiplier, attempt - 1);
+        long capped = (long) Math.min(backoff, maxBackoffMillis);
+
+        if(jitter && capped > 0) {
+            return ThreadLocalRandom.current().nextLong(capped + 1);
+        }
+        return capped;
+    }
+
+    /**
+     * Reads a Retry-After header, capped to the longest wait the policy honours
+     *
+     * @param retryAfter the header value, or null
+     * @return the delay in milliseconds, or -1 if absent or unreadable
+     */
+    long retryAfterMillis(String retryAfter) {
+        long serverDelay = parseRetryAfter(retryAfter);
+        return serverDelay < 0 ? serverDelay : Math.min(serverDelay, maxRetryAfterMillis);
+    }
+
+    /**
+     * Reads a Retry-After header, which is either a number of seconds or an HTTP date
+     *
+     * @param retryAfter the header value
+     * @return the delay in milliseconds, or -1 if absent or unreadable
+     */
+    static long parseRetryAfter(String retryAfter) {
+        if(retryAfter == null || retryAfter.trim().isEmpty()) {
+            return -1;
+        }
+
+        String value = retryAfter.trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(0, Long.parseLong(value)));
+        } catch(NumberFormatException e) {
+            // Fall through to HTTP date
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0, format.parse(value).getTime() - System.currentTimeMillis());
+        } catch(ParseException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package namara.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TransferStats {
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesSentUncompressed = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong bytesReceivedDecoded = new AtomicLong();
+
+    TransferStats() {}
+
+    /**
+     * @return request body bytes written to the wire, after any compression
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * @return request body bytes before compression
+     */
+    public long getBytesSentUncompressed() {
+        return bytesSentUncompressed.get();
+    }
+
+    /**
+     * @return response body bytes read from the wire, before decoding
+     */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    /**
+     * @return response body bytes after decoding
+     */
+    public long getBytesReceivedDecoded() {
+        return bytesReceivedDecoded.get();
+    }
+
+    /**
+     * @return decoded response bytes per byte received on the wire, or 1.0 if nothing has been received
+     */
+    public double getResponseCompressionRatio() {
+        long received = bytesReceived.get();
+        return received == 0 ? 1.0 : (double) bytesReceivedDecoded.get() / received;
+    }
+
+    void addSent(long wire, long uncompressed) {
+        bytesSent.addAndGet(wire);
+        bytesSentUncompressed.addAndGet(uncompressed);
+    }
+
+    void addReceived(long wire) {
+        bytesReceived.addAndGet(wire);
+    }
+
+    void addReceivedDecoded(long decoded) {
+        bytesReceivedDecoded.addAndGet(decoded);
+    }
+
+    @Override
+    public String toString() {
+        return "sent " + getBytesSent() + "/" + getBytesSentUncompressed() +
+                " bytes, received " + getBytesReceived() + "/" + getBytesReceivedDecoded() + " bytes";
+    }
+}
@@ -2,49 +2,74 @@ package namara.client;
 
 import namara.client.exception.ValueConversionException;
 import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.Date;
+import java.util.function.Function;
 
 public class Value {
     private String key;
-    private JSONObject valueHolder;
+
+    /**
+     * The value as parsed from the response, JSONObject.NULL for null. Conversions follow the same rules
+     * as the accessors on JSONObject
+     */
+    private Object value;
 
     /**
      * Creates a Value, based on the key on the JSONObject holding that value
-     * Passing the whole JSONObject in because we can use all the methods on JSONObject
-     * for getting and converting the value at the key
      *
      * @param key the key that referenced the value
      * @param valueHolder the JSONObject containing the value
      */
     Value(String key, JSONObject valueHolder) {
+        this(key, valueHolder.opt(key));
+    }
+
+    /**
+     * Creates a Value out of a value from a record
+     *
+     * @param key the key that referenced the value
+     * @param value the value, null or JSONObject.NULL if it is null
+     */
+    Value(String key, Object value) {
+        set(key, value);
+    }
+
+    /**
+     * Points this Value at another value, for views that are reused across columns
+     *
+     * @see ValueCursor
+     * @param key the key that referenced the value
+     * @param value the value, null or JSONObject.NULL if it is null
+     */
+    void set(String key, Object value) {
         this.key = key;
-        this.valueHolder = valueHolder;
+        this.value = value == null ? JSONObject.NULL : value;
     }
 
     /**
      * @return the raw object held by the Value
      */
     public Object get() {
-        try {
-            return valueHolder.get(key);
-        } catch (JSONException e) {
-            // This should never happen, we only instantiate the Value because it exists at a key
-            return throwIt("Object");
-        }
+        return value;
     }
 
     /**
      * @return - true if the Value is null
      */
     public boolean isNull() {
-        return valueHolder.isNull(key);
+        return value == JSONObject.NULL;
     }
 
 
@@ -57,9 +82,12 @@ public class Value {
      * @throws ValueConversionException if unable to convert
      */
     public BigDecimal asBigDecimal() throws ValueConversionException {
+        if(value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
         try {
-            return valueHolder.getBigDecimal(key);
-        } catch (JSONException e) {
+            return new BigDecimal(value.toString());
+        } catch (NumberFormatException e) {
             return (BigDecimal) throwIt("BigDecimal");
         }
     }
@@ -69,9 +97,20 @@ public class Value {
      * @return value as BigDecimal or defaultValue if unable to convert
      */
     public BigDecimal tryBigDecimal(BigDecimal defaultValue) {
+        if(isNull()) {
+            return defaultValue;
+        } else if(value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        } else if(value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        } else if(value instanceof Double || value instanceof Float) {
+            return new BigDecimal(((Number) value).doubleValue());
+        } else if(isIntegral(value)) {
+            return new BigDecimal(((Number) value).longValue());
+        }
         try {
-            return valueHolder.optBigDecimal(key, defaultValue);
-        } catch (JSONException e) {
+            return new BigDecimal(value.toString());
+        } catch (NumberFormatException e) {
             return defaultValue;
         }
     }
@@ -82,8 +121,8 @@ public class Value {
      */
     public BigInteger asBigInteger() throws ValueConversionException {
         try {
-            return valueHolder.getBigInteger(key);
-        } catch (JSONException e) {
+            return new BigInteger(value.toString());
+        } catch (NumberFormatException e) {
             return (BigInteger) throwIt("BigInteger");
         }
     }
@@ -93,9 +132,24 @@ public class Value {
      * @return value as BigInteger or defaultValue if unable to convert
      */
     public BigInteger tryBigInteger(BigInteger defaultValue) {
+        if(isNull()) {
+            return defaultValue;
+        } else if(value instanceof BigInteger) {
+            return (BigInteger) value;
+        } else if(value instanceof BigDecimal) {
+            return ((BigDecimal) value).toBigInteger();
+        } else if(value instanceof Double || value instanceof Float) {
+            return new BigDecimal(((Number) value).doubleValue()).toBigInteger();
+        } else if(isIntegral(value)) {
+            return BigInteger.valueOf(((Number) value).longValue());
+        }
         try {
-            return valueHolder.optBigInteger(key, defaultValue);
-        } catch (JSONException e) {
+            String text = value.toString();
+            if(isDecimalNotation(text)) {
+                return new BigDecimal(text).toBigInteger();
+            }
+            return new BigInteger(text);
+        } catch (NumberFormatException e) {
             return defaultValue;
         }
     }
@@ -105,11 +159,12 @@ public class Value {
      * @throws ValueConversionException if unable to convert
      */
     public Boolean asBoolean() throws ValueConversionException {
-        try {
-            return valueHolder.getBoolean(key);
-        } catch (JSONException e) {
-            return (Boolean) throwIt("boolean");
+        if(Boolean.FALSE.equals(value) || (value instanceof String && ((String) value).equalsIgnoreCase("false"))) {
+            return false;
+        } else if(Boolean.TRUE.equals(value) || (value instanceof String && ((String) value).equalsIgnoreCase("true"))) {
+            return true;
         }
+        return (Boolean) throwIt("boolean");
     }
 
     /**
@@ -117,14 +172,20 @@ public class Value {
      * @return value as Boolean or defaultValue if unable to convert
      */
     public Boolean tryBoolean(Boolean defaultValue) {
+        if(isNull()) {
+            return defaultValue;
+        }
         try {
-            return valueHolder.optBoolean(key, defaultValue);
-        } catch (JSONException e) {
+            return asBoolean();
+        } catch (ValueConversionException e) {
             return defaultValue;
         }
     }
 
     /**
+     * SimpleDateFormat is not thread-safe, so a format must not be shared between threads parsing at the same
+     * time. asLocalDate(), asLocalDateTime(), asOffsetDateTime() and asInstant() have no such restriction
+     *
      * @param format format for parsing the value into a Date
      * @return the value as a formatted Date
      * @throws ValueConversionException if unable to convert
@@ -159,9 +220,12 @@ public class Value {
      * @throws ValueConversionException if unable to convert
      */
     public Double asDouble() throws ValueConversionException {
+        if(value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
         try {
-            return valueHolder.getDouble(key);
-        } catch (JSONException e) {
+            return Double.parseDouble(value.toString());
+        } catch (NumberFormatException e) {
             return (Double) throwIt("double");
         }
     }
@@ -171,11 +235,16 @@ public class Value {
      * @return the value as Double or defaultValue if unable to convert
      */
     public Double tryDouble(Double defaultValue) {
-        try {
-            return valueHolder.optDouble(key, defaultValue);
-        } catch (JSONException e) {
-            return defaultValue;
+        if(value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if(value instanceof String) {
+            try {
+                return Double.parseDouble((String) value);
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
         }
+        return defaultValue;
     }
 
     /**
@@ -185,11 +254,11 @@ public class Value {
      * @throws ValueConversionException if unable to convert
      */
     public <E extends Enum<E>> E asEnum(Class<E> clazz) throws ValueConversionException {
-        try {
-            return valueHolder.getEnum(clazz, key);
-        } catch (JSONException e) {
+        E converted = tryEnum(clazz, null);
+        if(converted == null) {
             return (E) throwIt("enum type " + clazz.getSimpleName());
         }
+        return converted;
     }
 
     /**
@@ -199,23 +268,60 @@ public class Value {
      * @return Enum value associated with key, or defaultValue if unable to convert
      */
     public <E extends Enum<E>> E tryEnum(Class<E> clazz, E defaultValue) {
+        if(isNull()) {
+            return defaultValue;
+        } else if(clazz.isInstance(value)) {
+            return clazz.cast(value);
+        }
         try {
-            return valueHolder.optEnum(clazz, key, defaultValue);
-        } catch (JSONException e) {
+            return Enum.valueOf(clazz, value.toString());
+        } catch (IllegalArgumentException e) {
             return defaultValue;
         }
     }
 
+    /**
+     * Converts an ISO-8601 date and time, such as 2018-04-12T13:45:00Z, to an Instant. Text without an offset
+     * is taken to be in UTC, and whole numbers are taken to be milliseconds since the epoch
+     *
+     * @return the value converted to an Instant
+     * @throws ValueConversionException if unable to convert
+     */
+    public Instant asInstant() throws ValueConversionException {
+        Instant converted = tryInstant(null);
+        if(converted == null) {
+            return (Instant) throwIt("Instant");
+        }
+        return converted;
+    }
+
+    /**
+     * @see #asInstant()
+     * @param defaultValue default Instant to use if conversion fails
+     * @return the value converted to an Instant, or defaultValue if unable to convert
+     */
+    public Instant tryInstant(Instant defaultValue) {
+        if(isIntegral(value)) {
+            return Instant.ofEpochMilli(((Number) value).longValue());
+        }
+        return tryParse(DateTimes::parseInstant, defaultValue);
+    }
+
     /**
      * @return the value converted to an Integer
      * @throws ValueConversionException if unable to convert
      */
     public Integer asInt() throws ValueConversionException {
-        try {
-            return valueHolder.getInt(key);
-        } catch (JSONException e) {
-            return (Integer) throwIt("int");
+        if(value instanceof Number) {
+            return ((Number) value).intValue();
+        } else if(value instanceof String) {
+            try {
+                return Integer.parseInt((String) value);
+            } catch (NumberFormatException e) {
+                // Fall through to the conversion error
+            }
         }
+        return (Integer) throwIt("int");
     }
 
     /**
@@ -223,11 +329,16 @@ public class Value {
      * @return the Integer value associated with key, or defaultValue if unable to convert
      */
     public Integer tryInt(Integer defaultValue) {
-        try {
-            return valueHolder.optInt(key, defaultValue);
-        } catch (JSONException e) {
-            return defaultValue;
+        if(value instanceof Number) {
+            return ((Number) value).intValue();
+        } else if(value instanceof String) {
+            try {
+                return new BigDecimal((String) value).intValue();
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
         }
+        return defaultValue;
     }
 
     /**
@@ -235,11 +346,10 @@ public class Value {
      * @throws ValueConversionException if unable to convert
      */
     public JSONArray asJSONArray() throws ValueConversionException {
-        try {
-            return valueHolder.getJSONArray(key);
-        } catch (JSONException e) {
-            return (JSONArray) throwIt("JSONArray");
+        if(value instanceof JSONArray) {
+            return (JSONArray) value;
         }
+        return (JSONArray) throwIt("JSONArray");
     }
 
     /**
@@ -247,11 +357,7 @@ public class Value {
      * @return the value as JSONArray or defaultValue if unable to convert
      */
     public JSONArray tryJSONArray(JSONArray defaultValue) {
-        try {
-            return valueHolder.optJSONArray(key);
-        } catch (JSONException e) {
-            return defaultValue;
-        }
+        return value instanceof JSONArray ? (JSONArray) value : null;
     }
 
     /**
@@ -259,11 +365,10 @@ public class Value {
      * @throws ValueConversionException if unable to convert
      */
     public JSONObject asJSONObject() throws ValueConversionException {
-        try {
-            return valueHolder.getJSONObject(key);
-        } catch (JSONException e) {
-            return (JSONObject) throwIt("JSONObject");
+        if(value instanceof JSONObject) {
+            return (JSONObject) value;
         }
+        return (JSONObject) throwIt("JSONObject");
     }
 
     /**
@@ -271,11 +376,103 @@ public class Value {
      * @return the value converted to JSONObject or defaultValue if unable to convert
      */
     public JSONObject tryJSONObject(JSONObject defaultValue) {
-        try {
-            return valueHolder.optJSONObject(key);
-        } catch (JSONException e) {
-            return defaultValue;
+        return value instanceof JSONObject ? (JSONObject) value : null;
+    }
+
+    /**
+     * Converts an ISO-8601 date, such as 2018-04-12, to a LocalDate
+     *
+     * @return the value converted to a LocalDate
+     * @throws ValueConversionException if unable to convert
+     */
+    public LocalDate asLocalDate() throws ValueConversionException {
+        LocalDate converted = tryLocalDate(null);
+        if(converted == null) {
+            return (LocalDate) throwIt("LocalDate");
         }
+        return converted;
+    }
+
+    /**
+     * @param pattern DateTimeFormatter pattern for parsing the value. Formatters are cached by pattern
+     * @return the value converted to a LocalDate
+     * @throws ValueConversionException if unable to convert
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public LocalDate asLocalDate(String pattern) throws ValueConversionException {
+        LocalDate converted = tryLocalDate(pattern, null);
+        if(converted == null) {
+            return (LocalDate) throwIt("LocalDate");
+        }
+        return converted;
+    }
+
+    /**
+     * @see #asLocalDate()
+     * @param defaultValue default LocalDate to use if conversion fails
+     * @return the value converted to a LocalDate, or defaultValue if unable to convert
+     */
+    public LocalDate tryLocalDate(LocalDate defaultValue) {
+        return tryParse(DateTimes::parseLocalDate, defaultValue);
+    }
+
+    /**
+     * @param pattern DateTimeFormatter pattern for parsing the value. Formatters are cached by pattern
+     * @param defaultValue default LocalDate to use if conversion fails
+     * @return the value converted to a LocalDate, or defaultValue if unable to convert
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public LocalDate tryLocalDate(String pattern, LocalDate defaultValue) {
+        DateTimeFormatter formatter = DateTimes.formatter(pattern);
+        return tryParse(text -> LocalDate.parse(text, formatter), defaultValue);
+    }
+
+    /**
+     * Converts an ISO-8601 date and time without an offset, such as 2018-04-12T13:45:00, to a LocalDateTime
+     *
+     * @return the value converted to a LocalDateTime
+     * @throws ValueConversionException if unable to convert
+     */
+    public LocalDateTime asLocalDateTime() throws ValueConversionException {
+        LocalDateTime converted = tryLocalDateTime(null);
+        if(converted == null) {
+            return (LocalDateTime) throwIt("LocalDateTime");
+        }
+        return converted;
+    }
+
+    /**
+     * @param pattern DateTimeFormatter pattern for parsing the value. Formatters are cached by pattern
+     * @return the value converted to a LocalDateTime
+     * @throws ValueConversionException if unable to convert
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public LocalDateTime asLocalDateTime(String pattern) throws ValueConversionException {
+        LocalDateTime converted = tryLocalDateTime(pattern, null);
+        if(converted == null) {
+            return (LocalDateTime) throwIt("LocalDateTime");
+        }
+        return converted;
+    }
+
+    /**
+     * @see #asLocalDateTime()
+     * @param defaultValue default LocalDateTime to use if conversion fails
+     * @return the value converted to a LocalDateTime, or defaultValue if unable to convert
+     */
+    public LocalDateTime tryLocalDateTime(LocalDateTime defaultValue) {
+        return tryParse(DateTimes::parseLocalDateTime, defaultValue);
+    }
+
+    /**
+     * @param pattern DateTimeFormatter pattern for parsing the value. Formatters are cached by pattern
+     * @param defaultValue default LocalDateTime to use if conversion fails
+     * @return the value converted to a LocalDateTime, or defaultValue if unable to convert
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public LocalDateTime tryLocalDateTime(String pattern, LocalDateTime defaultValue) {
+        DateTimeFormatter formatter = DateTimes.formatter(pattern);
+        return tryParse(text -> LocalDateTime.parse(text, formatter), defaultValue);
     }
 
     /**
@@ -283,11 +480,16 @@ public class Value {
      * @throws ValueConversionException if unable to convert
      */
     public Long asLong() throws ValueConversionException {
-        try {
-            return valueHolder.getLong(key);
-        } catch (JSONException e) {
-            return (Long) throwIt("Long");
+        if(value instanceof Number) {
+            return ((Number) value).longValue();
+        } else if(value instanceof String) {
+            try {
+                return Long.parseLong((String) value);
+            } catch (NumberFormatException e) {
+                // Fall through to the conversion error
+            }
         }
+        return (Long) throwIt("Long");
     }
 
     /**
@@ -295,11 +497,64 @@ public class Value {
      * @return the value as Long or defaultValue if unable to convert
      */
     public Long tryLong(Long defaultValue) {
-        try {
-            return valueHolder.optLong(key, defaultValue);
-        } catch (JSONException e) {
-            return defaultValue;
+        if(value instanceof Number) {
+            return ((Number) value).longValue();
+        } else if(value instanceof String) {
+            try {
+                return new BigDecimal((String) value).longValue();
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
         }
+        return defaultValue;
+    }
+
+    /**
+     * Converts an ISO-8601 date and time with an offset, such as 2018-04-12T13:45:00-04:00, to an OffsetDateTime
+     *
+     * @return the value converted to an OffsetDateTime
+     * @throws ValueConversionException if unable to convert
+     */
+    public OffsetDateTime asOffsetDateTime() throws ValueConversionException {
+        OffsetDateTime converted = tryOffsetDateTime(null);
+        if(converted == null) {
+            return (OffsetDateTime) throwIt("OffsetDateTime");
+        }
+        return converted;
+    }
+
+    /**
+     * @param pattern DateTimeFormatter pattern for parsing the value. Formatters are cached by pattern
+     * @return the value converted to an OffsetDateTime
+     * @throws ValueConversionException if unable to convert
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public OffsetDateTime asOffsetDateTime(String pattern) throws ValueConversionException {
+        OffsetDateTime converted = tryOffsetDateTime(pattern, null);
+        if(converted == null) {
+            return (OffsetDateTime) throwIt("OffsetDateTime");
+        }
+        return converted;
+    }
+
+    /**
+     * @see #asOffsetDateTime()
+     * @param defaultValue default OffsetDateTime to use if conversion fails
+     * @return the value converted to an OffsetDateTime, or defaultValue if unable to convert
+     */
+    public OffsetDateTime tryOffsetDateTime(OffsetDateTime defaultValue) {
+        return tryParse(DateTimes::parseOffsetDateTime, defaultValue);
+    }
+
+    /**
+     * @param pattern DateTimeFormatter pattern for parsing the value. Formatters are cached by pattern
+     * @param defaultValue default OffsetDateTime to use if conversion fails
+     * @return the value converted to an OffsetDateTime, or defaultValue if unable to convert
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public OffsetDateTime tryOffsetDateTime(String pattern, OffsetDateTime defaultValue) {
+        DateTimeFormatter formatter = DateTimes.formatter(pattern);
+        return tryParse(text -> OffsetDateTime.parse(text, formatter), defaultValue);
     }
 
     /**
@@ -307,11 +562,10 @@ public class Value {
      * @throws ValueConversionException if unable to convert
      */
     public String asString() throws ValueConversionException {
-        try {
-            return valueHolder.getString(key);
-        } catch (JSONException e) {
-            return (String) throwIt("String");
+        if(value instanceof String) {
+            return (String) value;
         }
+        return (String) throwIt("String");
     }
 
     /**
@@ -319,11 +573,7 @@ public class Value {
      * @return the value as String or defaultValue if unable to convert
      */
     public String tryString(String defaultValue) {
-        try {
-            return valueHolder.optString(key, defaultValue);
-        } catch (JSONException e) {
-            return defaultValue;
-        }
+        return isNull() ? defaultValue : value.toString();
     }
 
     /**
@@ -335,12 +585,36 @@ public class Value {
 
     @Override
     public String toString() {
-        return key + ": " + valueHolder.get(key);
+        return key + ": " + value;
     }
 
     private Object throwIt(String type) throws ValueConversionException {
-        throw new ValueConversionException("Record[" + valueHolder.quote(key) +
-                "] => [" + valueHolder.get(key) + "] can not be converted to " + valueHolder.quote(type),
-                valueHolder.get(key));
+        throw new ValueConversionException("Record[" + JSONObject.quote(key) +
+                "] => [" + value + "] can not be converted to " + JSONObject.quote(type), value);
+    }
+
+    /**
+     * Parses a text value, without the toString() of other types that could never parse
+     */
+    private <T> T tryParse(Function<String, T> parser, T defaultValue) {
+        if(!(value instanceof String)) {
+            return defaultValue;
+        }
+        try {
+            return parser.apply((String) value);
+        } catch(DateTimeParseException e) {
+            return defaultValue;
+        }
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+    }
+
+    /**
+     * Whether a number written as text has a fraction or exponent, as JSONObject decides it
+     */
+    private static boolean isDecimalNotation(String text) {
+        return text.indexOf('.') > -1 || text.indexOf('e') > -1 || text.indexOf('E') > -1 || "-0".equals(text);
     }
 }
@@ -0,0 +1,93 @@
+package namara.client;
+
+public final class ValueCursor {
+    /**
+     * The view handed out for every column, pointed at the current column on each call to next()
+     */
+    private final Value value = new Value(null, (Object) null);
+
+    private Record record;
+    private int index = -1;
+
+    /**
+     * Creates a cursor over the columns of records, for loops that read every column of many records.
+     *
+     * A cursor reads the record's own storage and hands out the same Value for every column, so iterating
+     * allocates nothing. The Value is only valid until the cursor moves; keep Value#get() or a converted
+     * value instead of the Value itself. One cursor can be reused for each record of a page with reset().
+     *
+     * @see Record#cursor()
+     */
+    public ValueCursor() {
+    }
+
+    /**
+     * Creates a cursor positioned before the first column of a record
+     *
+     * @param record the record
+     */
+    ValueCursor(Record record) {
+        reset(record);
+    }
+
+    /**
+     * Moves this cursor to before the first column of a record
+     *
+     * @param record the record
+     * @return this cursor
+     */
+    public ValueCursor reset(Record record) {
+        this.record = record;
+        this.index = -1;
+        return this;
+    }
+
+    /**
+     * Moves to the next column
+     *
+     * @return true if there is a column, false once every column has been read
+     */
+    public boolean next() {
+        if(record == null || index + 1 >= record.length()) {
+            index = record == null ? -1 : record.length();
+            return false;
+        }
+
+        index++;
+        value.set(record.getSchema().getColumnName(index), record.valueAt(index));
+        return true;
+    }
+
+    /**
+     * @return the Value of the current column. The same instance is returned for every column
+     * @throws IllegalStateException if the cursor is not on a column
+     */
+    public Value value() {
+        checkPosition();
+        return value;
+    }
+
+    /**
+     * @return the name of the current column
+     * @throws IllegalStateException if the cursor is not on a column
+     */
+    public String getKey() {
+        checkPosition();
+        return value.getKey();
+    }
+
+    /**
+     * @return the index of the current column
+     * @throws IllegalStateException if the cursor is not on a column
+     */
+    public int getIndex() {
+        checkPosition();
+        return index;
+    }
+
+    private void checkPosition() {
+        if(record == null || index < 0 || index >= record.length()) {
+            throw new IllegalStateException("The cursor is not on a column, call next() first");
+        }
+    }
+}
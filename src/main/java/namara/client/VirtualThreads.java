@@ -0,0 +1,52 @@
+package namara.client;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads on JDK 21 and up, looked up reflectively so the client still builds and runs on JDK 8
+ */
+final class VirtualThreads {
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findFactory();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if the running JVM supports virtual threads
+     */
+    static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task
+     *
+     * @return the executor
+     * @throws UnsupportedOperationException if the running JVM does not support virtual threads
+     */
+    static ExecutorService newExecutor() {
+        if(!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later, running " +
+                    System.getProperty("java.version"));
+        }
+
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch(IllegalAccessException e) {
+            throw new UnsupportedOperationException("Unable to create virtual threads", e);
+        } catch(InvocationTargetException e) {
+            throw new UnsupportedOperationException("Unable to create virtual threads", e.getCause());
+        }
+    }
+
+    private static Method findFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch(NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
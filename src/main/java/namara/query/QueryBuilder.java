@@ -98,6 +98,59 @@ public class QueryBuilder {
         return toString() + " LIMIT " + limit + " OFFSET " + offset;
     }
 
+    /**
+     * Creates the string representation of one page of the query for keyset (seek) pagination.
+     *
+     * The query is wrapped as a subquery ordered by a unique key column, and each page after the first
+     * starts from the last key seen rather than skipping rows with an offset, so the host does not rescan
+     * earlier pages.
+     *
+     * @see namara.client.ResultSet#keyset(String)
+     * @param keyColumn a unique column to order and seek on
+     * @param after the key of the last row of the previous page, or null for the first page
+     * @param limit query limit
+     * @param offset query offset, only useful for the first page
+     * @return the query string
+     */
+    public String buildKeysetQuery(String keyColumn, Object after, int limit, int offset) {
+        StringBuilder query = new StringBuilder("SELECT * FROM (").append(toString().trim()).append(") AS keyset");
+        if(after != null) {
+            query.append(" WHERE ").append(keyColumn).append(" > ").append(literal(after));
+        }
+        query.append(" ORDER BY ").append(keyColumn);
+        return query.toString() + " LIMIT " + limit + " OFFSET " + offset;
+    }
+
+    /**
+     * Creates a query for one range partition of this query, by selecting from this query as a subquery
+     * and appending a condition on the partition column. Ranges are half open, from start up to but not
+     * including end, so that neighbouring partitions meeting at a value never both hold it, and values
+     * between the last date of one partition and the first of the next, such as timestamps later in the
+     * day, are not dropped. The last partition of a scan can include its end instead. Rows where the column
+     * is null are in no partition. The limit and offset of this builder are not carried over.
+     *
+     * @see namara.client.ParallelResultSet
+     * @param columnName the column to partition on
+     * @param start first value in the partition, as a SQL literal
+     * @param end end of the partition, as a SQL literal
+     * @param includeEnd true if rows equal to end are in the partition
+     * @return the query builder for the partition
+     */
+    public QueryBuilder partition(String columnName, Object start, Object end, boolean includeEnd) {
+        Expression subquery = new Expression(context) {
+            @Override
+            public String toString() {
+                return context.toString();
+            }
+        };
+
+        return new QueryBuilder().select().all()
+                .from().select(subquery, "parts")
+                .where(columnName + " >= " + start)
+                .and(columnName + (includeEnd ? " <= " : " < ") + end)
+                .getBuilder();
+    }
+
     /**
      * Returns the query context for this builder
      *
@@ -118,4 +171,14 @@ public class QueryBuilder {
      * @return the offset
      */
     public Integer getOffset() { return this.offset; }
+
+    /**
+     * Formats a value as a SQL literal. Numbers and booleans are written as they are, anything else as a quoted string
+     */
+    private static String literal(Object value) {
+        if(value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        return "'" + value.toString().replace("'", "''") + "'";
+    }
 }
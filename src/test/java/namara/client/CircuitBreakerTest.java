@@ -0,0 +1,70 @@
+package namara.client;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 1, TimeUnit.MINUTES);
+
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testSuccessResetsFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 1, TimeUnit.MINUTES);
+
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testHalfOpenAllowsSingleTrial() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0, TimeUnit.MILLISECONDS);
+
+        breaker.onFailure();
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testFailedTrialReopens() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0, TimeUnit.MILLISECONDS);
+
+        breaker.onFailure();
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void testCancelledTrialAllowsAnother() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0, TimeUnit.MILLISECONDS);
+
+        breaker.onFailure();
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onCancelled();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+}
@@ -5,14 +5,34 @@ import namara.client.exception.ConnectionException;
 import namara.client.exception.NamaraException;
 import namara.client.exception.QueryException;
 import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.Okio;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.junit.Assume;
 import org.junit.Test;
 
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.Assert.*;
 
@@ -136,4 +156,762 @@ public class ClientTest {
             throw e;
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testConnectionReusedBetweenRequests() throws NamaraException, IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"results\":[]}"));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"results\":[]}"));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+
+            Client client = new Client(NAMARA_HOST, API_KEY, new ClientOptions().maxIdleConnections(1));
+            String queryString = "SELECT * FROM " + DATA_SET_ID + "/" + DATA_SET_VERSION;
+
+            client.query(baseUrl, queryString);
+            client.query(baseUrl, queryString);
+
+            // Second request should arrive on the same pooled connection
+            assertEquals(0, server.takeRequest().getSequenceNumber());
+            assertEquals(1, server.takeRequest().getSequenceNumber());
+
+            server.shutdown();
+        } catch(NamaraException e) {
+            server.shutdown();
+            throw e;
+        }
+    }
+
+    @Test
+    public void testQueryAsyncSuccess() throws Exception {
+        MockWebServer server = new MockWebServer();
+        JSONArray resultsCollection = new JSONArray()
+                .put(new JSONObject().put("c0", "xx").put("c1", "yy"))
+                .put(new JSONObject().put("c0", "zz").put("c1", "tt"));
+
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(
+                new JSONObject().put("results", resultsCollection).toString()
+        ));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+
+            Client client = new Client(NAMARA_HOST, API_KEY);
+            String queryString = "SELECT * FROM " + DATA_SET_ID + "/" + DATA_SET_VERSION;
+
+            JSONObject response = client.queryAsync(baseUrl, queryString).get(5, TimeUnit.SECONDS);
+            assertEquals(2, response.getJSONArray("results").length());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test(expected = QueryException.class)
+    public void testQueryAsyncBadQuery() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(422).setBody("{\"error\": \"Your query is bad\"}"));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+
+            Client client = new Client(NAMARA_HOST, API_KEY);
+            client.queryAsync(baseUrl, "SELECT * FROM A BIG DATA SET").get(5, TimeUnit.SECONDS);
+        } catch(ExecutionException e) {
+            throw (Exception) e.getCause();
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueryStream() throws NamaraException, IOException {
+        MockWebServer server = new MockWebServer();
+        JSONArray resultsCollection = new JSONArray()
+                .put(new JSONObject().put("c0", "xx").put("c1", "yy"))
+                .put(new JSONObject().put("c0", "zz").put("c1", "tt"));
+
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(
+                new JSONObject().put("results", resultsCollection).toString()
+        ));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+
+            Client client = new Client(NAMARA_HOST, API_KEY);
+            String queryString = "SELECT * FROM " + DATA_SET_ID + "/" + DATA_SET_VERSION;
+
+            RecordStream stream = client.queryStream(baseUrl, queryString);
+            int count = 0;
+            while(stream.hasNext()) {
+                stream.next();
+                count++;
+            }
+            assertEquals(2, count);
+            assertFalse(stream.hasException());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test(expected = QueryException.class)
+    public void testQueryStreamBadQuery() throws NamaraException, IOException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(422).setBody("{\"error\": \"Your query is bad\"}"));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+
+            Client client = new Client(NAMARA_HOST, API_KEY);
+            client.queryStream(baseUrl, "SELECT * FROM A BIG DATA SET");
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueryGzipResponse() throws NamaraException, IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        JSONArray resultsCollection = new JSONArray();
+        for(int i = 0; i < 100; i++) {
+            resultsCollection.put(new JSONObject().put("c0", "xx").put("c1", "yy"));
+        }
+        String body = new JSONObject().put("results", resultsCollection).toString();
+
+        Buffer gzipped = new Buffer();
+        BufferedSink sink = Okio.buffer(new GzipSink(gzipped));
+        sink.writeUtf8(body);
+        sink.close();
+        long wireSize = gzipped.size();
+
+        server.enqueue(new MockResponse().setResponseCode(200).addHeader("Content-Encoding", "gzip").setBody(gzipped));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+
+            Client client = new Client(NAMARA_HOST, API_KEY);
+            JSONObject response = client.query(baseUrl, "SELECT * FROM " + DATA_SET_ID + "/" + DATA_SET_VERSION);
+
+            assertEquals(100, response.getJSONArray("results").length());
+            assertEquals("gzip, deflate", server.takeRequest().getHeader("Accept-Encoding"));
+            assertEquals(wireSize, client.getTransferStats().getBytesReceived());
+            assertEquals(body.length(), client.getTransferStats().getBytesReceivedDecoded());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueryCompressedRequest() throws NamaraException, IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"results\":[]}"));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+
+            Client client = new Client(NAMARA_HOST, API_KEY, new ClientOptions().compressRequests(true, 0));
+            String queryString = "SELECT * FROM " + DATA_SET_ID + "/" + DATA_SET_VERSION;
+            client.query(baseUrl, queryString);
+
+            RecordedRequest request = server.takeRequest();
+            assertEquals("gzip", request.getHeader("Content-Encoding"));
+            assertEquals(queryString, Okio.buffer(new GzipSource(request.getBody())).readUtf8());
+            assertEquals(queryString.length(), client.getTransferStats().getBytesSentUncompressed());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueryRetriesTransientFailure() throws NamaraException, IOException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(503).setBody("unavailable"));
+        server.enqueue(new MockResponse().setResponseCode(429).addHeader("Retry-After", "0").setBody("slow down"));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"results\":[{\"c0\":\"xx\"}]}"));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+
+            RetryPolicy retryPolicy = new RetryPolicy().maxAttempts(3).backoff(0, 0, TimeUnit.MILLISECONDS, 1);
+            Client client = new Client(NAMARA_HOST, API_KEY, new ClientOptions().retryPolicy(retryPolicy));
+
+            JSONObject response = client.query(baseUrl, "SELECT * FROM " + DATA_SET_ID + "/" + DATA_SET_VERSION);
+            assertEquals(1, response.getJSONArray("results").length());
+            assertEquals(3, server.getRequestCount());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueryAsyncRetriesTransientFailure() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(502).setBody("bad gateway"));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"results\":[]}"));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+
+            RetryPolicy retryPolicy = new RetryPolicy().backoff(0, 0, TimeUnit.MILLISECONDS, 1);
+            Client client = new Client(NAMARA_HOST, API_KEY, new ClientOptions().retryPolicy(retryPolicy));
+
+            JSONObject response = client.queryAsync(baseUrl, "SELECT 1").get(5, TimeUnit.SECONDS);
+            assertEquals(0, response.getJSONArray("results").length());
+            assertEquals(2, server.getRequestCount());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testCircuitOpenFailsFast() throws NamaraException, IOException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(500).setBody("down"));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+
+            ClientOptions options = new ClientOptions()
+                    .retryPolicy(RetryPolicy.none())
+                    .circuitBreaker(new CircuitBreaker(1, 1, TimeUnit.MINUTES));
+            Client client = new Client(NAMARA_HOST, API_KEY, options);
+
+            try {
+                client.query(baseUrl, "SELECT 1");
+                fail("Expected server error");
+            } catch(ConnectionException e) {
+                assertTrue(e.getMessage().contains("[500]"));
+            }
+
+            try {
+                client.query(baseUrl, "SELECT 1");
+                fail("Expected open circuit");
+            } catch(ConnectionException e) {
+                assertTrue(e.getMessage().startsWith("Circuit open"));
+            }
+            assertEquals(1, server.getRequestCount());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailedTrialDoesNotKeepCircuitOpen() throws NamaraException, IOException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(500).setBody("down"));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"results\":[]}"));
+
+        AtomicBoolean failing = new AtomicBoolean();
+        OkHttpClient httpClient = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    if(failing.get()) {
+                        throw new IllegalStateException("Interceptor failed");
+                    }
+                    return chain.proceed(chain.request());
+                })
+                .build();
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+
+            CircuitBreaker breaker = new CircuitBreaker(1, 0, TimeUnit.MILLISECONDS);
+            ClientOptions options = new ClientOptions()
+                    .httpClient(httpClient)
+                    .retryPolicy(RetryPolicy.none())
+                    .circuitBreaker(breaker);
+            Client client = new Client(NAMARA_HOST, API_KEY, options);
+
+            try {
+                client.query(baseUrl, "SELECT 1");
+                fail("Expected server error");
+            } catch(NamaraException e) {
+                assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            }
+
+            // The trial fails before reaching the host
+            failing.set(true);
+            try {
+                client.query(baseUrl, "SELECT 2");
+                fail("Expected the interceptor to fail");
+            } catch(IllegalStateException e) {
+                // Expected
+            }
+
+            failing.set(false);
+            JSONObject response = client.query(baseUrl, "SELECT 3");
+            assertEquals(0, response.getJSONArray("results").length());
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancelledTrialDoesNotKeepCircuitOpen() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(500).setBody("down"));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"results\":[]}")
+                .setHeadersDelay(10, TimeUnit.SECONDS));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"results\":[]}"));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+
+            CircuitBreaker breaker = new CircuitBreaker(1, 0, TimeUnit.MILLISECONDS);
+            ClientOptions options = new ClientOptions()
+                    .retryPolicy(RetryPolicy.none())
+                    .circuitBreaker(breaker);
+            Client client = new Client(NAMARA_HOST, API_KEY, options);
+
+            try {
+                client.queryAsync(baseUrl, "SELECT 1").get(5, TimeUnit.SECONDS);
+                fail("Expected server error");
+            } catch(ExecutionException e) {
+                assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            }
+
+            // The trial is cancelled before the host answers
+            CompletableFuture<JSONObject> trial = client.queryAsync(baseUrl, "SELECT 2");
+            server.takeRequest(5, TimeUnit.SECONDS);
+            assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+            trial.cancel(true);
+
+            JSONObject response = client.queryAsync(baseUrl, "SELECT 3").get(5, TimeUnit.SECONDS);
+            assertEquals(0, response.getJSONArray("results").length());
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueryThrottledSlowsRateLimiter() throws NamaraException, IOException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(429).addHeader("Retry-After", "0").setBody("slow down"));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"results\":[]}"));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+
+            RateLimiter rateLimiter = new RateLimiter(100, 10);
+            ClientOptions options = new ClientOptions()
+                    .retryPolicy(new RetryPolicy().backoff(0, 0, TimeUnit.MILLISECONDS, 1))
+                    .rateLimiter(rateLimiter);
+            Client client = new Client(NAMARA_HOST, API_KEY, options);
+
+            client.query(baseUrl, "SELECT 1");
+            assertEquals(2, server.getRequestCount());
+            assertTrue(rateLimiter.getRate() < 100);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testRetryAfterWaitedOnceWithRateLimiter() throws NamaraException, IOException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(429).addHeader("Retry-After", "1").setBody("slow down"));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"results\":[]}"));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+
+            ClientOptions options = new ClientOptions().rateLimiter(new RateLimiter(100, 10));
+            Client client = new Client(NAMARA_HOST, API_KEY, options);
+
+            long start = System.currentTimeMillis();
+            client.query(baseUrl, "SELECT 1");
+            long elapsed = System.currentTimeMillis() - start;
+
+            assertEquals(2, server.getRequestCount());
+            assertTrue(elapsed >= 900);
+            assertTrue(elapsed < 1900);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRateLimiterOnlyForQueryEndpoint() {
+        new ClientOptions().rateLimiter(Client.Endpoints.META_ENDPOINT, new RateLimiter(10, 1));
+    }
+
+    @Test
+    public void testQueryLimitIsCached() throws IOException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"query_limit_maximum\":1000}"));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.META_ENDPOINT);
+
+            Client client = new Client(NAMARA_HOST, API_KEY);
+            assertEquals(Integer.valueOf(1000), client.getQueryLimit(baseUrl));
+            assertEquals(Integer.valueOf(1000), client.getQueryLimit(baseUrl));
+            assertEquals(1, server.getRequestCount());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueryLimitSharesSingleFetch() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"query_limit_maximum\":\"500\"}")
+                .setBodyDelay(200, TimeUnit.MILLISECONDS));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.META_ENDPOINT);
+            Client client = new Client(NAMARA_HOST, API_KEY);
+
+            List<Future<Integer>> limits = new ArrayList();
+            for(int i = 0; i < 4; i++) {
+                limits.add(executor.submit(() -> client.getQueryLimit(baseUrl)));
+            }
+            for(Future<Integer> limit : limits) {
+                assertEquals(Integer.valueOf(500), limit.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, server.getRequestCount());
+        } finally {
+            executor.shutdown();
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueryLimitFallsBackToDefault() throws IOException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(404).setBody("not found"));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.META_ENDPOINT);
+
+            Client client = new Client(NAMARA_HOST, API_KEY);
+            assertEquals(Client.DEFAULT_QUERY_LIMIT, client.getQueryLimit(baseUrl));
+            assertEquals(Client.DEFAULT_QUERY_LIMIT, client.getQueryLimit(baseUrl));
+            assertEquals(1, server.getRequestCount());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueryLimitKeptWhenRefreshFails() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"query_limit_maximum\":1000}"));
+        for(int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setResponseCode(500).setBody("down"));
+        }
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.META_ENDPOINT);
+
+            Client client = new Client(NAMARA_HOST, API_KEY, new ClientOptions().metaTtl(1, TimeUnit.MILLISECONDS));
+            assertEquals(Integer.valueOf(1000), client.getQueryLimit(baseUrl));
+
+            Thread.sleep(5);
+            assertEquals(Integer.valueOf(1000), client.getQueryLimit(baseUrl));
+
+            // Wait for the background refresh to fail
+            server.takeRequest(5, TimeUnit.SECONDS);
+            assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+
+            assertEquals(Integer.valueOf(1000), client.getQueryLimit(baseUrl));
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testDefaultQueryLimitWhenMetaUnreadable() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("not json"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.META_ENDPOINT);
+            Client client = new Client(NAMARA_HOST, API_KEY);
+
+            List<Future<Integer>> limits = new ArrayList();
+            for(int i = 0; i < 4; i++) {
+                limits.add(executor.submit(() -> client.getQueryLimit(baseUrl)));
+            }
+            for(Future<Integer> limit : limits) {
+                assertEquals(Client.DEFAULT_QUERY_LIMIT, limit.get(5, TimeUnit.SECONDS));
+            }
+
+            // The failure puts off the next fetch rather than refreshing on every call
+            assertEquals(Client.DEFAULT_QUERY_LIMIT, client.getQueryLimit(baseUrl));
+            assertEquals(1, server.getRequestCount());
+        } finally {
+            executor.shutdown();
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testSharedPageCacheIsScopedByApiKey() throws NamaraException, IOException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"results\":[{\"c0\":\"xx\"}]}"));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"results\":[]}"));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+
+            PageCache pageCache = new PageCache(10, 1024 * 1024, 1, TimeUnit.MINUTES);
+            Client client = new Client(NAMARA_HOST, API_KEY, new ClientOptions().pageCache(pageCache));
+            Client other = new Client(NAMARA_HOST, "other-api-key", new ClientOptions().pageCache(pageCache));
+            String body = new JSONObject().put("query", "SELECT * FROM " + DATA_SET_ID + "/" + DATA_SET_VERSION +
+                    " LIMIT 10 OFFSET 0").toString();
+
+            client.query(baseUrl, body);
+            JSONObject response = other.query(baseUrl, body);
+
+            assertEquals(0, response.getJSONArray("results").length());
+            assertEquals(2, server.getRequestCount());
+            assertEquals(0, pageCache.getHitCount());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueryServedFromPageCache() throws NamaraException, IOException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"results\":[{\"c0\":\"xx\"}]}"));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+
+            PageCache pageCache = new PageCache(10, 1024 * 1024, 1, TimeUnit.MINUTES);
+            Client client = new Client(NAMARA_HOST, API_KEY, new ClientOptions().pageCache(pageCache));
+            String queryString = "SELECT * FROM " + DATA_SET_ID + "/" + DATA_SET_VERSION + " LIMIT 10 OFFSET 0";
+
+            client.query(baseUrl, new JSONObject().put("query", queryString).toString());
+            JSONObject response = client.query(baseUrl, new JSONObject().put("query", queryString + "  ").toString());
+
+            assertEquals(1, response.getJSONArray("results").length());
+            assertEquals(1, server.getRequestCount());
+            assertEquals(1, pageCache.getHitCount());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueryServedFromDiskPageCache() throws NamaraException, IOException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"results\":[{\"c0\":\"xx\"}]}"));
+
+        File directory = Files.createTempDirectory("namara-pages").toFile();
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+            String queryString = "SELECT * FROM " + DATA_SET_ID + "/" + DATA_SET_VERSION + " LIMIT 10 OFFSET 0";
+            String body = new JSONObject().put("query", queryString).toString();
+
+            Client client = new Client(NAMARA_HOST, API_KEY,
+                    new ClientOptions().diskPageCache(new DiskPageCache(directory, 1024 * 1024)));
+            client.query(baseUrl, body);
+
+            // A new client stands in for a restart
+            DiskPageCache diskPageCache = new DiskPageCache(directory, 1024 * 1024);
+            PageCache pageCache = new PageCache(10, 1024 * 1024, 1, TimeUnit.MINUTES);
+            Client restarted = new Client(NAMARA_HOST, API_KEY,
+                    new ClientOptions().pageCache(pageCache).diskPageCache(diskPageCache));
+            restarted.query(baseUrl, body);
+            JSONObject response = restarted.query(baseUrl, body);
+
+            assertEquals(1, response.getJSONArray("results").length());
+            assertEquals(1, server.getRequestCount());
+            assertEquals(1, diskPageCache.getHitCount());
+            assertEquals(1, pageCache.getHitCount());
+        } finally {
+            server.shutdown();
+            new DiskPageCache(directory, 0).invalidateAll();
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testConcurrentQueriesShareOneRequest() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"results\":[{\"c0\":\"xx\"}]}")
+                .setBodyDelay(300, TimeUnit.MILLISECONDS));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+            Client client = new Client(NAMARA_HOST, API_KEY);
+            String body = new JSONObject().put("query", "SELECT * FROM " + DATA_SET_ID + "/" + DATA_SET_VERSION +
+                    " LIMIT 10 OFFSET 0").toString();
+
+            List<Future<JSONObject>> responses = new ArrayList();
+            for(int i = 0; i < 4; i++) {
+                responses.add(executor.submit(() -> client.query(baseUrl, body)));
+            }
+            for(Future<JSONObject> response : responses) {
+                // Each caller gets its own response object, so changes made by one are not seen by the others
+                JSONObject responseObject = response.get(5, TimeUnit.SECONDS);
+                assertEquals(1, responseObject.getJSONArray("results").length());
+                responseObject.getJSONArray("results").remove(0);
+            }
+            assertEquals(1, server.getRequestCount());
+            assertEquals(3, client.getQueryCoalescer().getCoalescedCount());
+        } finally {
+            executor.shutdown();
+            server.shutdown();
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testVirtualThreadsUnsupported() {
+        Assume.assumeFalse(ClientOptions.isVirtualThreadsSupported());
+        new ClientOptions().virtualThreads(true);
+    }
+
+    @Test
+    public void testQueryAsyncOnVirtualThreads() throws Exception {
+        Assume.assumeTrue(ClientOptions.isVirtualThreadsSupported());
+
+        MockWebServer server = new MockWebServer();
+        // Delayed so the future completes after the callback is attached
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"results\":[{\"c0\":\"xx\"}]}")
+                .setBodyDelay(200, TimeUnit.MILLISECONDS));
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+            Client client = new Client(NAMARA_HOST, API_KEY, new ClientOptions().virtualThreads(true));
+            String queryString = "SELECT * FROM " + DATA_SET_ID + "/" + DATA_SET_VERSION;
+
+            Boolean virtual = client.queryAsync(baseUrl, new JSONObject().put("query", queryString).toString())
+                    .thenApply(response -> {
+                        try {
+                            return (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread());
+                        } catch(ReflectiveOperationException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    })
+                    .get(5, TimeUnit.SECONDS);
+            assertTrue(virtual);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueryMetrics() throws NamaraException, IOException {
+        MockWebServer server = new MockWebServer();
+        String body = "{\"results\":[{\"c0\":\"xx\"}]}";
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(body));
+        server.enqueue(new MockResponse().setResponseCode(422).setBody("{\"error\": \"Your query is bad\"}"));
+
+        List<Integer> statuses = new ArrayList();
+        MetricsRegistry registry = new MetricsRegistry() {
+            @Override
+            public void requestStarted(String endpoint) {
+            }
+
+            @Override
+            public void requestCompleted(String endpoint, int statusCode, long latencyNanos, long bytesSent, long bytesReceived) {
+                statuses.add(statusCode);
+            }
+        };
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+            Client client = new Client(NAMARA_HOST, API_KEY, new ClientOptions().metricsRegistry(registry));
+            String jsonString = new JSONObject().put("query", "SELECT * FROM " + DATA_SET_ID + "/" + DATA_SET_VERSION).toString();
+
+            client.query(baseUrl, jsonString);
+            try {
+                client.query(baseUrl, jsonString);
+                fail("Expected the query to fail");
+            } catch(QueryException e) {
+                // Expected
+            }
+
+            ClientMetrics.EndpointMetrics metrics = client.getMetrics().getEndpoint(Client.Endpoints.QUERY_ENDPOINT);
+            assertEquals(2, metrics.getRequestCount());
+            assertEquals(1, metrics.getStatusCount(2));
+            assertEquals(1, metrics.getStatusCount(4));
+            assertEquals(1, metrics.getErrorCount());
+            assertEquals(0, metrics.getInFlight());
+            assertEquals(2 * jsonString.length(), metrics.getBytesSent());
+            assertTrue(metrics.getBytesReceived() > body.length());
+            assertEquals(2, metrics.getLatency().getCount());
+            assertEquals(Arrays.asList(200, 422), statuses);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testQueryListener() throws NamaraException, IOException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("{\"results\":[{\"c0\":\"xx\"}]}"));
+        server.enqueue(new MockResponse().setResponseCode(422).setBody("{\"error\": \"Your query is bad\"}"));
+
+        List<String> events = new ArrayList();
+        List<QueryInfo> queries = new ArrayList();
+        ClientListener listener = new ClientListener() {
+            @Override
+            public void queryStart(QueryInfo query) {
+                record("queryStart", query);
+            }
+
+            @Override
+            public void responseHeaders(QueryInfo query, int statusCode, long elapsedNanos) {
+                record("responseHeaders " + statusCode, query);
+            }
+
+            @Override
+            public void responseReceived(QueryInfo query, long bytes, long elapsedNanos) {
+                record("responseReceived", query);
+            }
+
+            @Override
+            public void parseEnd(QueryInfo query, long durationNanos) {
+                record("parseEnd", query);
+            }
+
+            @Override
+            public void queryFailed(QueryInfo query, Throwable error) {
+                record("queryFailed " + error.getClass().getSimpleName(), query);
+                throw new IllegalStateException("Listener failures are ignored");
+            }
+
+            private synchronized void record(String event, QueryInfo query) {
+                events.add(event);
+                queries.add(query);
+            }
+        };
+
+        try {
+            HttpUrl baseUrl = server.url(Client.Endpoints.QUERY_ENDPOINT);
+            Client client = new Client(NAMARA_HOST, API_KEY, new ClientOptions().listener(listener));
+            String query = "SELECT * FROM " + DATA_SET_ID + "/" + DATA_SET_VERSION;
+            String jsonString = new JSONObject().put("query", query + " LIMIT 10 OFFSET 20").toString();
+
+            client.query(baseUrl, jsonString);
+            assertEquals(Arrays.asList("queryStart", "responseHeaders 200", "responseReceived", "parseEnd"), events);
+            for(QueryInfo info : queries) {
+                assertEquals(QueryKey.of(query).fingerprint(), info.getFingerprint());
+                assertEquals(10, info.getLimit());
+                assertEquals(20, info.getOffset());
+            }
+
+            events.clear();
+            try {
+                client.query(baseUrl, jsonString);
+                fail("Expected the query to fail");
+            } catch(QueryException e) {
+                // Expected
+            }
+            assertEquals(Arrays.asList("queryStart", "responseHeaders 422", "responseReceived", "queryFailed QueryException"),
+                    events);
+        } finally {
+            server.shutdown();
+        }
+    }
+}
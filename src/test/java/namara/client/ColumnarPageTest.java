@@ -0,0 +1,124 @@
+package namara.client;
+
+import namara.client.exception.ColumnNotFoundException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ColumnarPageTest {
+    private ColumnarPage page() {
+        JSONArray results = new JSONArray()
+                .put(new JSONObject().put("id", 1).put("price", 2.5).put("city", "Toronto").put("active", true)
+                        .put("geometry", new JSONObject().put("type", "Point")))
+                .put(new JSONObject().put("id", 2).put("price", 4).put("city", "Halifax").put("active", false)
+                        .put("notes", "Reviewed"))
+                .put(new JSONObject().put("id", JSONObject.NULL).put("price", JSONObject.NULL).put("city", "Toronto")
+                        .put("active", JSONObject.NULL).put("geometry", "unknown"));
+
+        return new Page(new JSONObject().put("results", results), 250, 0).toColumns();
+    }
+
+    @Test
+    public void testColumns() {
+        ColumnarPage page = page();
+
+        assertEquals(3, page.size());
+        assertEquals(new HashSet(Arrays.asList("id", "price", "city", "active", "geometry", "notes")), page.getColumnNames());
+    }
+
+    @Test
+    public void testLongColumn() throws ColumnNotFoundException {
+        Column id = page().getColumn("id");
+
+        assertEquals(Column.Type.LONG, id.getType());
+        assertEquals(1, id.getLong(0));
+        assertEquals(2, id.getLong(1));
+        assertTrue(id.isNull(2));
+        assertEquals(0, id.getLong(2));
+        assertNull(id.get(2));
+        assertEquals(1, id.getNullCount());
+        assertArrayEquals(new long[] { 1, 2, 0 }, id.getLongs());
+        assertEquals(3, id.sum(), 0);
+        assertEquals(1.5, id.mean(), 0);
+        assertEquals(1, id.min(), 0);
+        assertEquals(2, id.max(), 0);
+    }
+
+    @Test
+    public void testDoubleColumn() throws ColumnNotFoundException {
+        Column price = page().getColumn("price");
+
+        assertEquals(Column.Type.DOUBLE, price.getType());
+        assertArrayEquals(new double[] { 2.5, 4, 0 }, price.getDoubles(), 0);
+        assertEquals(6.5, price.sum(), 0);
+        assertEquals(2.5, price.min(), 0);
+        assertEquals(4, price.max(), 0);
+    }
+
+    @Test
+    public void testStringColumn() throws ColumnNotFoundException {
+        Column city = page().getColumn("city");
+
+        assertEquals(Column.Type.STRING, city.getType());
+        assertEquals("Toronto", city.getString(0));
+        assertEquals("Halifax", city.getString(1));
+        assertArrayEquals(new String[] { "Toronto", "Halifax" }, city.getDictionary());
+        assertArrayEquals(new int[] { 0, 1, 0 }, city.getCodes());
+    }
+
+    @Test
+    public void testBooleanAndObjectColumns() throws ColumnNotFoundException {
+        ColumnarPage page = page();
+
+        Column active = page.getColumn("active");
+        assertEquals(Column.Type.BOOLEAN, active.getType());
+        assertTrue(active.getBoolean(0));
+        assertFalse(active.getBoolean(1));
+        assertTrue(active.isNull(2));
+
+        Column geometry = page.getColumn("geometry");
+        assertEquals(Column.Type.OBJECT, geometry.getType());
+        assertTrue(geometry.get(0) instanceof JSONObject);
+        assertTrue(geometry.isNull(1));
+        assertEquals("unknown", geometry.get(2));
+
+        Column notes = page.getColumn("notes");
+        assertEquals(Column.Type.STRING, notes.getType());
+        assertNull(notes.getString(0));
+        assertEquals("Reviewed", notes.getString(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWrongType() throws ColumnNotFoundException {
+        page().getColumn("city").getLong(0);
+    }
+
+    @Test(expected = ColumnNotFoundException.class)
+    public void testColumnNotFound() throws ColumnNotFoundException {
+        page().getColumn("missing");
+    }
+
+    @Test
+    public void testEmptyPage() {
+        ColumnarPage page = new ColumnarPage(new ArrayList<Record>());
+
+        assertEquals(0, page.size());
+        assertTrue(page.getColumnNames().isEmpty());
+    }
+
+    @Test
+    public void testAllNullColumn() throws ColumnNotFoundException {
+        List<Record> records = Arrays.asList(new Record(new JSONObject().put("c0", JSONObject.NULL)));
+        Column column = new ColumnarPage(records).getColumn("c0");
+
+        assertEquals(Column.Type.OBJECT, column.getType());
+        assertTrue(column.isNull(0));
+    }
+}
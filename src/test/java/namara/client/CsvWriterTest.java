@@ -0,0 +1,138 @@
+package namara.client;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class CsvWriterTest {
+    @Test
+    public void testHeaderAndRows() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvWriter writer = new CsvWriter(out);
+        writer.writeRecord(new Record(new JSONObject().put("a", 1).put("b", "x")));
+        writer.writeRecord(new Record(new JSONObject().put("a", -20).put("b", "y")));
+        writer.flush();
+
+        assertEquals("a,b\r\n1,x\r\n-20,y\r\n", text(out));
+        assertEquals(2, writer.getRowCount());
+    }
+
+    @Test
+    public void testValues() throws IOException {
+        JSONObject result = new JSONObject()
+                .put("a", Long.MIN_VALUE)
+                .put("b", 0)
+                .put("c", 1.5)
+                .put("d", true)
+                .put("e", JSONObject.NULL)
+                .put("f", new JSONArray().put(1).put(2))
+                .put("g", new JSONObject().put("k", "v"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvWriter writer = new CsvWriter(out);
+        writer.writeRecord(new Record(result));
+        writer.flush();
+
+        assertEquals("a,b,c,d,e,f,g\r\n" + Long.MIN_VALUE + ",0,1.5,true,,\"[1,2]\",\"{\"\"k\"\":\"\"v\"\"}\"\r\n",
+                text(out));
+    }
+
+    @Test
+    public void testQuoting() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvWriter writer = new CsvWriter(out);
+        writer.writeRecord(new Record(new JSONObject().put("a", "say \"hi\", then\nleave")));
+        writer.flush();
+
+        assertEquals("a\r\n\"say \"\"hi\"\", then\nleave\"\r\n", text(out));
+    }
+
+    @Test
+    public void testColumnsFollowHeader() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvWriter writer = new CsvWriter(out);
+        writer.writeRecord(new Record(new JSONObject().put("a", 1).put("b", 2)));
+        writer.writeRecord(new Record(new JSONObject().put("b", 3).put("c", 4)));
+        writer.flush();
+
+        assertEquals("a,b\r\n1,2\r\n,3\r\n", text(out));
+    }
+
+    @Test
+    public void testLongTextIsEncoded() throws IOException {
+        // Runs multi-byte characters and surrogate pairs across the ends of the buffers
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < 20000; i++) {
+            builder.append(i % 3 == 0 ? "\uD83D\uDE00" : "\u00E9");
+        }
+        String value = builder.toString();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvWriter writer = new CsvWriter(out);
+        writer.writeRecord(new Record(new JSONObject().put("a", value)));
+        writer.writeRecord(new Record(new JSONObject().put("a", "x" + value)));
+        writer.flush();
+
+        assertEquals("a\r\n" + value + "\r\nx" + value + "\r\n", text(out));
+    }
+
+    @Test
+    public void testCloseFlushesAndClosesChannel() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordingChannel channel = new RecordingChannel(out);
+        CsvWriter writer = new CsvWriter(channel);
+        writer.writeRecord(new Record(new JSONObject().put("a", 1)));
+        assertEquals(0, out.size());
+
+        writer.close();
+        assertEquals("a\r\n1\r\n", text(out));
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void testNothingWrittenWithoutRecords() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CsvWriter(out).flush();
+        assertEquals(0, out.size());
+    }
+
+    private static String text(ByteArrayOutputStream out) {
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static class RecordingChannel implements WritableByteChannel {
+        private final ByteArrayOutputStream out;
+        private boolean open = true;
+
+        RecordingChannel(ByteArrayOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int count = src.remaining();
+            byte[] bytes = new byte[count];
+            src.get(bytes);
+            out.write(bytes, 0, count);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+}
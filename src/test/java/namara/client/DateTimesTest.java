@@ -0,0 +1,84 @@
+package namara.client;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+import static org.junit.Assert.*;
+
+public class DateTimesTest {
+    @Test
+    public void testFormatterIsCached() {
+        assertSame(DateTimes.formatter("yyyy/MM/dd"), DateTimes.formatter("yyyy/MM/dd"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPattern() {
+        DateTimes.formatter("yyyy-MM-dd{");
+    }
+
+    @Test
+    public void testParseLocalDate() {
+        assertEquals(LocalDate.of(2018, 4, 12), DateTimes.parseLocalDate("2018-04-12"));
+        assertEquals(LocalDate.of(2016, 2, 29), DateTimes.parseLocalDate("2016-02-29"));
+        assertEquals(LocalDate.of(2018, 4, 12), DateTimes.parseLocalDate("2018-04-12T23:59:59"));
+        assertEquals(LocalDate.of(2018, 4, 12), DateTimes.parseLocalDate("2018-04-12 23:59:59-04:00"));
+    }
+
+    @Test(expected = DateTimeParseException.class)
+    public void testParseLocalDateOutOfMonth() {
+        DateTimes.parseLocalDate("2017-02-29");
+    }
+
+    @Test(expected = DateTimeParseException.class)
+    public void testParseLocalDateNotDigits() {
+        DateTimes.parseLocalDate("2018-O4-12");
+    }
+
+    @Test
+    public void testParseLocalDateTime() {
+        assertEquals(LocalDateTime.of(2018, 4, 12, 13, 45), DateTimes.parseLocalDateTime("2018-04-12T13:45"));
+        assertEquals(LocalDateTime.of(2018, 4, 12, 13, 45, 1), DateTimes.parseLocalDateTime("2018-04-12 13:45:01"));
+        assertEquals(LocalDateTime.of(2018, 4, 12, 13, 45, 1, 123456789),
+                DateTimes.parseLocalDateTime("2018-04-12T13:45:01.123456789"));
+        assertEquals(LocalDateTime.of(2018, 4, 12, 0, 0), DateTimes.parseLocalDateTime("2018-04-12"));
+    }
+
+    @Test(expected = DateTimeParseException.class)
+    public void testParseLocalDateTimeBadHour() {
+        DateTimes.parseLocalDateTime("2018-04-12T24:00:00");
+    }
+
+    @Test(expected = DateTimeParseException.class)
+    public void testParseLocalDateTimeWithOffset() {
+        DateTimes.parseLocalDateTime("2018-04-12T13:45:00Z");
+    }
+
+    @Test
+    public void testParseOffsetDateTime() {
+        LocalDateTime local = LocalDateTime.of(2018, 4, 12, 13, 45);
+        assertEquals(OffsetDateTime.of(local, ZoneOffset.UTC), DateTimes.parseOffsetDateTime("2018-04-12T13:45:00Z"));
+        assertEquals(OffsetDateTime.of(local, ZoneOffset.ofHoursMinutes(5, 30)),
+                DateTimes.parseOffsetDateTime("2018-04-12T13:45:00+05:30"));
+        assertEquals(OffsetDateTime.of(local, ZoneOffset.ofHours(-4)),
+                DateTimes.parseOffsetDateTime("2018-04-12 13:45-04:00"));
+    }
+
+    @Test
+    public void testParseOffsetDateTimeFallsBack() {
+        // Offsets with seconds are not read by the fast path
+        assertEquals(OffsetDateTime.of(2018, 4, 12, 13, 45, 0, 0, ZoneOffset.ofHoursMinutesSeconds(1, 2, 3)),
+                DateTimes.parseOffsetDateTime("2018-04-12T13:45:00+01:02:03"));
+    }
+
+    @Test
+    public void testParseInstant() {
+        assertEquals(Instant.parse("2018-04-12T17:45:00Z"), DateTimes.parseInstant("2018-04-12T13:45:00-04:00"));
+        assertEquals(Instant.parse("2018-04-12T13:45:00Z"), DateTimes.parseInstant("2018-04-12T13:45:00"));
+    }
+}
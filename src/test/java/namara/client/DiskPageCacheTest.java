@@ -0,0 +1,159 @@
+package namara.client;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class DiskPageCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private QueryKey key(int offset) {
+        return QueryKey.of("SELECT * FROM 733934b4-5434-43a6-a487-cdf8091b3a493/en-0 LIMIT 10 OFFSET " + offset);
+    }
+
+    private File[] pageFiles(File directory) {
+        return directory.listFiles((dir, name) -> name.endsWith(".json.gz"));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        DiskPageCache cache = new DiskPageCache(folder.getRoot(), 1024 * 1024);
+
+        assertNull(cache.get(key(0)));
+        cache.put(key(0), "{\"results\":[{\"c0\":\"xx\"}]}");
+        assertEquals("{\"results\":[{\"c0\":\"xx\"}]}", cache.get(key(0)));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getWriteCount());
+        assertTrue(cache.getSize() > 0);
+    }
+
+    @Test
+    public void testSurvivesNewInstance() throws IOException {
+        new DiskPageCache(folder.getRoot(), 1024 * 1024).put(key(0), "{\"results\":[]}");
+
+        DiskPageCache reopened = new DiskPageCache(folder.getRoot(), 1024 * 1024);
+        assertEquals("{\"results\":[]}", reopened.get(key(0)));
+        assertTrue(reopened.getSize() > 0);
+    }
+
+    @Test
+    public void testSkipsUnversionedQueries() throws IOException {
+        DiskPageCache cache = new DiskPageCache(folder.getRoot(), 1024 * 1024);
+        QueryKey key = QueryKey.of("SELECT * FROM some_table LIMIT 10 OFFSET 0");
+
+        cache.put(key, "{\"results\":[]}");
+
+        assertNull(cache.get(key));
+        assertEquals(0, cache.getWriteCount());
+        assertEquals(0, pageFiles(folder.getRoot()).length);
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyRead() throws IOException {
+        DiskPageCache cache = new DiskPageCache(folder.getRoot(), 1024 * 1024);
+        cache.put(key(0), "{\"results\":[]}");
+        long pageSize = cache.getSize();
+
+        DiskPageCache bounded = new DiskPageCache(folder.getRoot(), pageSize * 2 + pageSize / 2);
+        for(File file : pageFiles(folder.getRoot())) {
+            assertTrue(file.setLastModified(System.currentTimeMillis() - 60000));
+        }
+        bounded.put(key(10), "{\"results\":[]}");
+        bounded.put(key(20), "{\"results\":[]}");
+
+        assertEquals(1, bounded.getEvictionCount());
+        assertEquals(2, pageFiles(folder.getRoot()).length);
+        assertNull(bounded.get(key(0)));
+        assertNotNull(bounded.get(key(20)));
+    }
+
+    @Test
+    public void testCorruptPageIsAMiss() throws IOException {
+        DiskPageCache cache = new DiskPageCache(folder.getRoot(), 1024 * 1024);
+        cache.put(key(0), "{\"results\":[]}");
+
+        File page = pageFiles(folder.getRoot())[0];
+        Files.write(page.toPath(), new byte[] { 1, 2, 3 });
+
+        assertNull(cache.get(key(0)));
+        assertFalse(page.exists());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testRemovesInterruptedWrites() throws IOException {
+        File leftover = folder.newFile("abc.json.gz.1.tmp");
+        assertTrue(leftover.setLastModified(System.currentTimeMillis() - DiskPageCache.STALE_TEMP_MILLIS - 60000));
+
+        new DiskPageCache(folder.getRoot(), 1024 * 1024);
+
+        assertFalse(leftover.exists());
+    }
+
+    @Test
+    public void testKeepsWritesInProgress() throws IOException {
+        File inProgress = folder.newFile("abc.json.gz.2.tmp");
+
+        new DiskPageCache(folder.getRoot(), 1024 * 1024);
+
+        assertTrue(inProgress.exists());
+    }
+
+    @Test
+    public void testPagesAreScopedByClient() throws IOException {
+        DiskPageCache cache = new DiskPageCache(folder.getRoot(), 1024 * 1024);
+        String query = "SELECT * FROM 733934b4-5434-43a6-a487-cdf8091b3a493/en-0 LIMIT 10 OFFSET 0";
+        QueryKey first = QueryKey.of(query, QueryKey.scope("https://api.namara.io", "key-1"));
+        QueryKey otherKey = QueryKey.of(query, QueryKey.scope("https://api.namara.io", "key-2"));
+        QueryKey otherHost = QueryKey.of(query, QueryKey.scope("https://other.namara.io", "key-1"));
+
+        cache.put(first, "{\"results\":[]}");
+
+        assertEquals("{\"results\":[]}", cache.get(first));
+        assertNull(cache.get(otherKey));
+        assertNull(cache.get(otherHost));
+    }
+
+    @Test
+    public void testCacheableOnlyWhenEverySourceIsVersioned() {
+        String versioned = "733934b4-5434-43a6-a487-cdf8091b3a493/en-0";
+        String other = "e276a9a8-d06f-49a0-bd69-482920006b53/en-3";
+
+        assertTrue(DiskPageCache.isCacheable(QueryKey.of("SELECT * FROM " + versioned)));
+        assertTrue(DiskPageCache.isCacheable(QueryKey.of("SELECT * FROM " + versioned + " AS a INNER JOIN " +
+                other + " AS b ON a.id = b.id")));
+        assertTrue(DiskPageCache.isCacheable(QueryKey.of("SELECT * FROM " + versioned + " AS a, " + other + " b")));
+        assertTrue(DiskPageCache.isCacheable(QueryKey.of("SELECT * FROM (SELECT * FROM " + versioned +
+                ") AS keyset WHERE id > 10")));
+
+        assertFalse(DiskPageCache.isCacheable(QueryKey.of("SELECT * FROM " + versioned +
+                " AS a LEFT OUTER JOIN some_table AS b ON a.id = b.id")));
+        assertFalse(DiskPageCache.isCacheable(QueryKey.of("SELECT * FROM " + versioned + ", some_table")));
+        assertFalse(DiskPageCache.isCacheable(QueryKey.of("SELECT * FROM some_table WHERE name = '" +
+                versioned + "'")));
+        assertFalse(DiskPageCache.isCacheable(QueryKey.of("SELECT * FROM some_table WHERE name = 'FROM " +
+                versioned + "'")));
+        assertFalse(DiskPageCache.isCacheable(QueryKey.of("SELECT 1")));
+    }
+
+    @Test
+    public void testInvalidateAll() throws IOException {
+        DiskPageCache cache = new DiskPageCache(folder.getRoot(), 1024 * 1024);
+        cache.put(key(0), "{\"results\":[]}");
+        cache.put(key(10), "{\"results\":[]}");
+
+        cache.invalidateAll();
+
+        assertEquals(0, cache.getSize());
+        assertEquals(0, pageFiles(folder.getRoot()).length);
+    }
+}
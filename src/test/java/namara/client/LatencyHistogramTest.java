@@ -0,0 +1,53 @@
+package namara.client;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(99, TimeUnit.MILLISECONDS));
+        assertEquals(0, histogram.getMean(TimeUnit.MILLISECONDS), 0);
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(int i = 1; i <= 1000; i++) {
+            histogram.record(i, TimeUnit.MILLISECONDS);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500, histogram.getPercentile(50, TimeUnit.MILLISECONDS), 10);
+        assertEquals(990, histogram.getPercentile(99, TimeUnit.MILLISECONDS), 20);
+        assertEquals(1000, histogram.getPercentile(100, TimeUnit.MILLISECONDS));
+        assertEquals(1000, histogram.getMax(TimeUnit.MILLISECONDS));
+        assertEquals(500.5, histogram.getMean(TimeUnit.MILLISECONDS), 0.01);
+    }
+
+    @Test
+    public void testBucketsAreContiguous() {
+        for(long value = 0; value < 100000; value++) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(value <= LatencyHistogram.bucketUpperBound(index));
+            assertTrue(index == 0 || value > LatencyHistogram.bucketUpperBound(index - 1));
+        }
+    }
+
+    @Test
+    public void testClampsLargeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1, TimeUnit.DAYS);
+        histogram.record(-5, TimeUnit.SECONDS);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(LatencyHistogram.MAX_TRACKABLE_NANOS, histogram.getMax(TimeUnit.NANOSECONDS));
+        assertEquals(0, histogram.getPercentile(50, TimeUnit.NANOSECONDS));
+    }
+}
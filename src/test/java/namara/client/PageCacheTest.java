@@ -0,0 +1,72 @@
+package namara.client;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PageCacheTest {
+    private QueryKey key(int offset) {
+        return QueryKey.of("SELECT * FROM data-set-uuid1/en-0 LIMIT 10 OFFSET " + offset);
+    }
+
+    @Test
+    public void testHitAndMiss() {
+        PageCache cache = new PageCache(10, 1024, 1, TimeUnit.MINUTES);
+
+        assertNull(cache.get(key(0)));
+        cache.put(key(0), "{\"results\":[]}");
+        assertEquals("{\"results\":[]}", cache.get(key(0)));
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate(), 0.001);
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        PageCache cache = new PageCache(2, 1024, 1, TimeUnit.MINUTES);
+
+        cache.put(key(0), "a");
+        cache.put(key(10), "b");
+        cache.get(key(0));
+        cache.put(key(20), "c");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertNotNull(cache.get(key(0)));
+        assertNull(cache.get(key(10)));
+    }
+
+    @Test
+    public void testEvictsByWeight() {
+        PageCache cache = new PageCache(100, 20, 1, TimeUnit.MINUTES);
+
+        cache.put(key(0), "12345");
+        cache.put(key(10), "12345");
+        assertEquals(20, cache.getWeight());
+
+        cache.put(key(20), "12345");
+        assertEquals(2, cache.size());
+        assertEquals(20, cache.getWeight());
+        assertNull(cache.get(key(0)));
+    }
+
+    @Test
+    public void testSkipsOversizedPages() {
+        PageCache cache = new PageCache(100, 4, 1, TimeUnit.MINUTES);
+
+        cache.put(key(0), "12345");
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testExpiresAfterTtl() {
+        PageCache cache = new PageCache(10, 1024, 0, TimeUnit.MILLISECONDS);
+
+        cache.put(key(0), "a");
+        assertNull(cache.get(key(0)));
+        assertEquals(0, cache.size());
+    }
+}
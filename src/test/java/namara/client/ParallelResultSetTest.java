@@ -0,0 +1,194 @@
+package namara.client;
+
+import namara.client.exception.ColumnNotFoundException;
+import namara.client.exception.NamaraException;
+import namara.client.exception.QueryException;
+import namara.query.Identifier;
+import namara.query.QueryBuilder;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ParallelResultSetTest {
+    Identifier identifier = new Identifier("e276a9a8-d06f-49a0-bd69-482920006b53", "en-0");
+
+    QueryBuilder builder = new QueryBuilder()
+            .select().all()
+            .from().dataSet(identifier)
+            .getBuilder();
+
+    private Page page(int first, int size, int limit, int offset) {
+        JSONArray results = new JSONArray();
+        for(int i = 0; i < size; i++) {
+            results.put(new JSONObject().put("id", first + i));
+        }
+        return new Page(new JSONObject().put("results", results), limit, offset);
+    }
+
+    private QueryBuilder partition(Object start, Object end) {
+        return argThat(query -> query != null && query.toString().contains("id >= " + start + " AND id < " + end));
+    }
+
+    private QueryBuilder lastPartition(Object start, Object end) {
+        return argThat(query -> query != null && query.toString().contains("id >= " + start + " AND id <= " + end));
+    }
+
+    private void assertRange(Object start, Object end, boolean includeEnd, ParallelResultSet.Range range) {
+        assertEquals(start, range.start);
+        assertEquals(end, range.end);
+        assertEquals(includeEnd, range.includeEnd);
+    }
+
+    private List<Integer> ids(ParallelResultSet resultSet) throws ColumnNotFoundException {
+        List<Integer> ids = new ArrayList();
+        while(resultSet.hasNext()) {
+            ids.add(resultSet.next().getValue("id").tryInt(-1));
+        }
+        return ids;
+    }
+
+    @Test
+    public void testIntegerRanges() {
+        List<ParallelResultSet.Range> ranges = ParallelResultSet.integerRanges(1, 10, 3);
+
+        assertEquals(3, ranges.size());
+        assertRange(1L, 5L, false, ranges.get(0));
+        assertRange(5L, 8L, false, ranges.get(1));
+        assertRange(8L, 10L, true, ranges.get(2));
+        assertEquals(2, ParallelResultSet.integerRanges(1, 2, 8).size());
+        assertRange(Long.MAX_VALUE - 1, Long.MAX_VALUE, true,
+                ParallelResultSet.integerRanges(Long.MAX_VALUE - 1, Long.MAX_VALUE, 1).get(0));
+    }
+
+    @Test
+    public void testDateRanges() {
+        List<ParallelResultSet.Range> ranges = ParallelResultSet.dateRanges(LocalDate.of(2018, 1, 1),
+                LocalDate.of(2018, 1, 4), 2);
+
+        // Half open, so timestamps after midnight on the last day of a range are still in it
+        assertRange("'2018-01-01'", "'2018-01-03'", false, ranges.get(0));
+        assertRange("'2018-01-03'", "'2018-01-05'", false, ranges.get(1));
+    }
+
+    @Test
+    public void testDecimalRanges() {
+        List<ParallelResultSet.Range> ranges = ParallelResultSet.decimalRanges(new BigDecimal("0"),
+                new BigDecimal("1.5"), 3);
+
+        assertEquals(3, ranges.size());
+        assertRange("0", "0.5", false, ranges.get(0));
+        assertRange("0.5", "1.0", false, ranges.get(1));
+        assertRange("1.0", "1.5", true, ranges.get(2));
+        assertEquals(1, ParallelResultSet.decimalRanges(BigDecimal.ONE, BigDecimal.ONE, 4).size());
+    }
+
+    @Test
+    public void testUnorderedScanReadsEveryPartition() throws NamaraException, ColumnNotFoundException {
+        Client client = mock(Client.class);
+        when(client.fetchPageAsync(partition(1L, 6L), eq(2), eq(0))).thenReturn(CompletableFuture.completedFuture(page(1, 2, 2, 0)));
+        when(client.fetchPageAsync(partition(1L, 6L), eq(2), eq(2))).thenReturn(CompletableFuture.completedFuture(page(3, 1, 2, 2)));
+        when(client.fetchPageAsync(lastPartition(6L, 10L), eq(2), eq(0))).thenReturn(CompletableFuture.completedFuture(page(6, 1, 2, 0)));
+
+        ParallelResultSet resultSet = new ParallelResultSet(builder, client, 2, "id",
+                ParallelResultSet.integerRanges(1, 10, 2));
+        List<Integer> ids = ids(resultSet);
+
+        assertEquals(4, ids.size());
+        assertTrue(ids.containsAll(Arrays.asList(1, 2, 3, 6)));
+        assertFalse(resultSet.hasException());
+
+        List<ParallelResultSet.Progress> progress = resultSet.getProgress();
+        assertEquals(3, progress.get(0).getRecordsRead());
+        assertEquals(2, progress.get(0).getWindowsFetched());
+        assertTrue(progress.get(0).isFinished());
+        assertEquals(1, progress.get(1).getRecordsRead());
+        assertTrue(progress.get(1).isFinished());
+    }
+
+    @Test
+    public void testCloseCancelsPendingWindows() {
+        Client client = mock(Client.class);
+        CompletableFuture<Page> next = new CompletableFuture();
+        CompletableFuture<Page> other = new CompletableFuture();
+        when(client.fetchPageAsync(partition(1L, 6L), eq(2), eq(0))).thenReturn(CompletableFuture.completedFuture(page(1, 2, 2, 0)));
+        when(client.fetchPageAsync(partition(1L, 6L), eq(2), eq(2))).thenReturn(next);
+        when(client.fetchPageAsync(lastPartition(6L, 10L), eq(2), eq(0))).thenReturn(other);
+
+        ParallelResultSet resultSet = new ParallelResultSet(builder, client, 2, "id",
+                ParallelResultSet.integerRanges(1, 10, 2));
+        assertTrue(resultSet.hasNext());
+        resultSet.next();
+
+        resultSet.close();
+        assertTrue(next.isCancelled());
+        assertTrue(other.isCancelled());
+        assertFalse(resultSet.hasNext());
+        assertFalse(resultSet.hasException());
+    }
+
+    @Test
+    public void testOrderedScanFollowsPartitionOrder() throws NamaraException, ColumnNotFoundException {
+        Client client = mock(Client.class);
+        CompletableFuture<Page> first = new CompletableFuture();
+        when(client.fetchPageAsync(partition(1L, 6L), eq(10), eq(0))).thenReturn(first);
+        when(client.fetchPageAsync(lastPartition(6L, 10L), eq(10), eq(0))).thenReturn(CompletableFuture.completedFuture(page(6, 2, 10, 0)));
+
+        ParallelResultSet resultSet = new ParallelResultSet(builder, client, 10, "id",
+                ParallelResultSet.integerRanges(1, 10, 2)).ordered(true);
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            first.complete(page(1, 2, 10, 0));
+        }).start();
+
+        assertEquals(Arrays.asList(1, 2, 6, 7), ids(resultSet));
+    }
+
+    @Test(expected = QueryException.class)
+    public void testPartitionErrorStopsScan() throws NamaraException, ColumnNotFoundException {
+        Client client = mock(Client.class);
+        CompletableFuture<Page> failed = new CompletableFuture();
+        failed.completeExceptionally(new QueryException("You did a bad query"));
+        CompletableFuture<Page> slow = new CompletableFuture();
+        when(client.fetchPageAsync(partition(1L, 6L), eq(10), eq(0))).thenReturn(slow);
+        when(client.fetchPageAsync(lastPartition(6L, 10L), eq(10), eq(0))).thenReturn(failed);
+
+        ParallelResultSet resultSet = new ParallelResultSet(builder, client, 10, "id",
+                ParallelResultSet.integerRanges(1, 10, 2));
+        ids(resultSet);
+
+        assertTrue(slow.isCancelled());
+        assertTrue(resultSet.hasException());
+        resultSet.throwException();
+    }
+
+    @Test
+    public void testLimitCapsRecords() throws NamaraException, ColumnNotFoundException {
+        QueryBuilder limited = new QueryBuilder(3)
+                .select().all()
+                .from().dataSet(identifier)
+                .getBuilder();
+
+        Client client = mock(Client.class);
+        when(client.fetchPageAsync(lastPartition(1L, 10L), eq(10), eq(0))).thenReturn(CompletableFuture.completedFuture(page(1, 5, 10, 0)));
+
+        ParallelResultSet resultSet = new ParallelResultSet(limited, client, 10, "id",
+                ParallelResultSet.integerRanges(1, 10, 1));
+
+        assertEquals(3, ids(resultSet).size());
+    }
+}
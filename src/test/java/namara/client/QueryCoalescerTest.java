@@ -0,0 +1,140 @@
+package namara.client;
+
+import namara.client.exception.QueryException;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class QueryCoalescerTest {
+    private final QueryKey key = QueryKey.of("SELECT * FROM data-set-uuid1/en-0 LIMIT 10 OFFSET 0");
+
+    @Test
+    public void testConcurrentJoinsShareOneFetch() throws Exception {
+        QueryCoalescer coalescer = new QueryCoalescer();
+        AtomicInteger fetches = new AtomicInteger();
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        String response = "{\"results\":[]}";
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = executor.submit(() -> coalescer.join(key, () -> {
+                fetches.incrementAndGet();
+                fetching.countDown();
+                try {
+                    release.await();
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return response;
+            }, "url"));
+            assertTrue(fetching.await(5, TimeUnit.SECONDS));
+
+            Future<String> follower = executor.submit(() -> coalescer.join(key, () -> {
+                fetches.incrementAndGet();
+                return "{}";
+            }, "url"));
+            while(coalescer.getCoalescedCount() == 0) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            assertSame(response, leader.get(5, TimeUnit.SECONDS));
+            assertSame(response, follower.get(5, TimeUnit.SECONDS));
+            assertEquals(1, fetches.get());
+            assertEquals(0, coalescer.getInFlightCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSequentialJoinsFetchAgain() throws Exception {
+        QueryCoalescer coalescer = new QueryCoalescer();
+        AtomicInteger fetches = new AtomicInteger();
+
+        coalescer.join(key, () -> String.valueOf(fetches.incrementAndGet()), "url");
+        String second = coalescer.join(key, () -> String.valueOf(fetches.incrementAndGet()), "url");
+
+        assertEquals("2", second);
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void testErrorFansOutToEveryWaiter() throws Exception {
+        QueryCoalescer coalescer = new QueryCoalescer();
+        CompletableFuture<String> request = new CompletableFuture();
+
+        CompletableFuture<String> first = coalescer.joinAsync(key, () -> request);
+        CompletableFuture<String> second = coalescer.joinAsync(key, CompletableFuture::new);
+        request.completeExceptionally(new QueryException("bad query"));
+
+        for(CompletableFuture<String> waiter : new CompletableFuture[] { first, second }) {
+            try {
+                waiter.get(5, TimeUnit.SECONDS);
+                fail("Expected the query to fail");
+            } catch(ExecutionException e) {
+                assertTrue(e.getCause() instanceof QueryException);
+            }
+        }
+        assertEquals(1, coalescer.getCoalescedCount());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    public void testRequestCancelledWithLastWaiter() {
+        QueryCoalescer coalescer = new QueryCoalescer();
+        CompletableFuture<String> request = new CompletableFuture();
+
+        CompletableFuture<String> first = coalescer.joinAsync(key, () -> request);
+        CompletableFuture<String> second = coalescer.joinAsync(key, CompletableFuture::new);
+
+        first.cancel(true);
+        assertFalse(request.isCancelled());
+        assertFalse(second.isDone());
+
+        second.cancel(true);
+        assertTrue(request.isCancelled());
+        assertEquals(0, coalescer.getInFlightCount());
+
+        // A later caller starts a fresh request
+        CompletableFuture<String> next = new CompletableFuture();
+        assertFalse(coalescer.joinAsync(key, () -> next).isDone());
+        next.complete("{}");
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    public void testBlockingWaiterJoinsAsyncRequest() throws Exception {
+        QueryCoalescer coalescer = new QueryCoalescer();
+        CompletableFuture<String> request = new CompletableFuture();
+        String response = "{}";
+
+        CompletableFuture<String> first = coalescer.joinAsync(key, () -> request);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> blocking = executor.submit(() -> coalescer.join(key, () -> "{}", "url"));
+            while(coalescer.getCoalescedCount() == 0) {
+                Thread.sleep(5);
+            }
+
+            // The blocking waiter keeps the request alive
+            first.cancel(true);
+            assertFalse(request.isCancelled());
+
+            request.complete(response);
+            assertSame(response, blocking.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package namara.client;
+
+import namara.query.QueryBuilder;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QueryKeyTest {
+    @Test
+    public void testNormalizesWhitespace() {
+        assertEquals("SELECT * FROM data-set-uuid1/en-0 WHERE a > 5",
+                QueryKey.normalize("  SELECT *\n  FROM data-set-uuid1/en-0   WHERE a > 5 "));
+    }
+
+    @Test
+    public void testKeepsQuotedWhitespace() {
+        assertEquals("SELECT * FROM t WHERE name = 'a  b' AND \"odd  col\" = 1",
+                QueryKey.normalize("SELECT *  FROM t WHERE name = 'a  b'  AND \"odd  col\"  = 1"));
+    }
+
+    @Test
+    public void testParsesWindow() {
+        QueryKey key = QueryKey.of("SELECT * FROM data-set-uuid1/en-0  LIMIT 250 OFFSET 500");
+
+        assertEquals("SELECT * FROM data-set-uuid1/en-0", key.getBase());
+        assertEquals(250, key.getLimit());
+        assertEquals(500, key.getOffset());
+    }
+
+    @Test
+    public void testPagesShareFingerprint() {
+        QueryKey first = QueryKey.of("SELECT * FROM data-set-uuid1/en-0 LIMIT 250 OFFSET 0");
+        QueryKey second = QueryKey.of("SELECT *  FROM data-set-uuid1/en-0 LIMIT 250 OFFSET 250");
+
+        assertNotEquals(first, second);
+        assertEquals(first.fingerprint(), second.fingerprint());
+        assertEquals(64, first.fingerprint().length());
+    }
+
+    @Test
+    public void testKeysetPagesShareFingerprint() {
+        QueryBuilder builder = new QueryBuilder("SELECT * FROM data-set-uuid1/en-0 WHERE a > 5");
+        QueryKey first = QueryKey.of(builder.buildKeysetQuery("id", null, 250, 0));
+        QueryKey second = QueryKey.of(builder.buildKeysetQuery("id", 250, 250, 0));
+        QueryKey third = QueryKey.of(builder.buildKeysetQuery("id", "O'Brien ORDER BY id", 250, 0));
+
+        assertEquals(first.fingerprint(), second.fingerprint());
+        assertEquals(first.fingerprint(), third.fingerprint());
+        assertNotEquals(first.fingerprint(), QueryKey.of(builder.buildKeysetQuery("name", null, 250, 0)).fingerprint());
+    }
+
+    @Test
+    public void testKeysDifferByScope() {
+        String query = "SELECT * FROM data-set-uuid1/en-0 LIMIT 250 OFFSET 0";
+        String scope = QueryKey.scope("https://api.namara.io", "key");
+
+        assertEquals(QueryKey.of(query, scope), QueryKey.of(query, scope));
+        assertEquals(QueryKey.of(query, scope).hashCode(), QueryKey.of(query, scope).hashCode());
+        assertNotEquals(QueryKey.of(query, scope), QueryKey.of(query, QueryKey.scope("https://api.namara.io", "other")));
+        assertNotEquals(QueryKey.of(query, scope), QueryKey.of(query, QueryKey.scope("https://other.namara.io", "key")));
+    }
+
+    @Test
+    public void testKeyFromRequestBody() {
+        String body = new JSONObject().put("query", "SELECT *\nFROM t LIMIT 1 OFFSET 0").toString();
+
+        assertEquals(QueryKey.of("SELECT * FROM t LIMIT 1 OFFSET 0"), QueryKey.ofRequestBody(body));
+        assertEquals(QueryKey.of("SELECT 1"), QueryKey.ofRequestBody("SELECT 1"));
+    }
+}
@@ -0,0 +1,59 @@
+package namara.client;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RateLimiterTest {
+    @Test
+    public void testBurstIsImmediate() {
+        RateLimiter limiter = new RateLimiter(1, 3);
+
+        assertEquals(0, limiter.reserveNanos());
+        assertEquals(0, limiter.reserveNanos());
+        assertEquals(0, limiter.reserveNanos());
+    }
+
+    @Test
+    public void testPacesAfterBurst() {
+        RateLimiter limiter = new RateLimiter(10, 1);
+
+        assertEquals(0, limiter.reserveNanos());
+        long wait = limiter.reserveNanos();
+        assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(50) && wait <= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void testThrottleHalvesRateAndHonoursRetryAfter() {
+        RateLimiter limiter = new RateLimiter(10, 5);
+
+        limiter.onThrottled(2000);
+        assertEquals(5.0, limiter.getRate(), 0.001);
+        assertTrue(limiter.reserveMillis() > 1900);
+    }
+
+    @Test
+    public void testRateRecoversOnSuccess() {
+        RateLimiter limiter = new RateLimiter(10, 1);
+
+        limiter.onThrottled(-1);
+        limiter.onThrottled(-1);
+        assertEquals(2.5, limiter.getRate(), 0.001);
+
+        for(int i = 0; i < 100; i++) {
+            limiter.onSuccess();
+        }
+        assertEquals(10.0, limiter.getRate(), 0.001);
+    }
+
+    @Test
+    public void testSharedByKeyAndEndpoint() {
+        RateLimiter first = RateLimiter.shared("key", "v0/query", 5, 1);
+
+        assertSame(first, RateLimiter.shared("key", "v0/query", 50, 10));
+        assertNotSame(first, RateLimiter.shared("other-key", "v0/query", 5, 1));
+        assertNotSame(first, RateLimiter.shared("key", "v0/query/meta", 5, 1));
+    }
+}
@@ -0,0 +1,184 @@
+package namara.client;
+
+import namara.client.exception.ValueConversionException;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class RecordMapperTest {
+    enum Status { ACTIVE, INACTIVE }
+
+    static class Base {
+        private long id;
+    }
+
+    static class Listing extends Base {
+        private String name;
+        private int population;
+        private Double latitude;
+        private BigDecimal price;
+        private boolean active;
+        private Status status;
+        private JSONObject geometry;
+        private JSONArray tags;
+        private String openedOn;
+        private transient String ignored = "ignored";
+        private static String shared = "shared";
+        private boolean setterCalled;
+
+        private Listing() {
+        }
+
+        public void setName(String name) {
+            this.name = name;
+            this.setterCalled = true;
+        }
+    }
+
+    static class NoDefaultConstructor {
+        private String name;
+
+        NoDefaultConstructor(String name) {
+            this.name = name;
+        }
+    }
+
+    static class UnsupportedField {
+        private Thread thread;
+    }
+
+    private Record listing() {
+        return new Record(new JSONObject()
+                .put("id", 7)
+                .put("name", "Toronto")
+                .put("population", "2731571")
+                .put("latitude", 43.65)
+                .put("price", "12.50")
+                .put("active", "TRUE")
+                .put("status", "ACTIVE")
+                .put("geometry", new JSONObject().put("type", "Point"))
+                .put("tags", new JSONArray().put("open-data"))
+                .put("opened_on", "2018-04-12")
+                .put("ignored", "from record"));
+    }
+
+    @Test
+    public void testMapPojo() {
+        Listing listing = listing().as(Listing.class);
+
+        assertEquals(7L, ((Base) listing).id);
+        assertEquals("Toronto", listing.name);
+        assertTrue(listing.setterCalled);
+        assertEquals(2731571, listing.population);
+        assertEquals(Double.valueOf(43.65), listing.latitude);
+        assertEquals(new BigDecimal("12.50"), listing.price);
+        assertTrue(listing.active);
+        assertEquals(Status.ACTIVE, listing.status);
+        assertEquals("Point", listing.geometry.getString("type"));
+        assertEquals("open-data", listing.tags.getString(0));
+        assertEquals("2018-04-12", listing.openedOn);
+        assertEquals("ignored", listing.ignored);
+        assertEquals("shared", Listing.shared);
+    }
+
+    @Test
+    public void testMapNullsAndMissingColumns() {
+        Record record = new Record(new JSONObject()
+                .put("population", JSONObject.NULL)
+                .put("latitude", JSONObject.NULL));
+        Listing listing = record.as(Listing.class);
+
+        assertEquals(0, listing.population);
+        assertNull(listing.latitude);
+        assertNull(listing.name);
+        assertFalse(listing.setterCalled);
+    }
+
+    @Test
+    public void testMapperIsShared() {
+        assertSame(RecordMapper.of(Listing.class), RecordMapper.of(Listing.class));
+    }
+
+    @Test
+    public void testConversionError() {
+        Record record = new Record(new JSONObject().put("population", "many"));
+        try {
+            record.as(Listing.class);
+            fail("Expected the conversion to fail");
+        } catch(ValueConversionException e) {
+            assertEquals("Record[\"population\"] => [many] can not be converted to \"int\"", e.getMessage());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoDefaultConstructor() {
+        listing().as(NoDefaultConstructor.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedField() {
+        listing().as(UnsupportedField.class);
+    }
+
+    @Test
+    public void testClassNotOpenToClient() {
+        String version = System.getProperty("java.specification.version");
+        assumeTrue(!version.startsWith("1."));
+
+        // java.util is not opened to unnamed modules, so its private fields can not be made accessible
+        try {
+            RecordMapper.of(java.util.ArrayList.class);
+            fail("Expected the class to be rejected");
+        } catch(IllegalArgumentException e) {
+            assertEquals("java.lang.reflect.InaccessibleObjectException", e.getCause().getClass().getName());
+        }
+    }
+
+    @Test
+    public void testToSnakeCase() {
+        assertEquals("opened_on", RecordMapper.toSnakeCase("openedOn"));
+        assertEquals("id", RecordMapper.toSnakeCase("id"));
+        assertEquals("c_0", RecordMapper.toSnakeCase("c_0"));
+    }
+
+    @Test
+    public void testMapJavaRecord() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        String version = System.getProperty("java.specification.version");
+        assumeTrue(compiler != null && !version.startsWith("1.") && Integer.parseInt(version) >= 16);
+
+        Path directory = Files.createTempDirectory("record-mapper");
+        try {
+            Path source = directory.resolve("Place.java");
+            Files.write(source, "public record Place(String name, int population, Double latitude) {}"
+                    .getBytes(StandardCharsets.UTF_8));
+            assertEquals(0, compiler.run(null, null, null, source.toString()));
+
+            try(URLClassLoader loader = new URLClassLoader(new URL[] { directory.toUri().toURL() })) {
+                Class<?> type = loader.loadClass("Place");
+                Object place = new Record(new JSONObject().put("name", "Toronto").put("population", 2731571))
+                        .as(type);
+
+                assertEquals("Place[name=Toronto, population=2731571, latitude=null]", place.toString());
+            }
+        } finally {
+            for(File file : directory.toFile().listFiles()) {
+                file.delete();
+            }
+            Files.delete(directory);
+        }
+    }
+}
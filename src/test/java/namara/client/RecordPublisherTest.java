@@ -0,0 +1,147 @@
+package namara.client;
+
+import namara.client.exception.QueryException;
+import namara.query.Identifier;
+import namara.query.QueryBuilder;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class RecordPublisherTest {
+    Identifier identifier = new Identifier("e276a9a8-d06f-49a0-bd69-482920006b53", "en-0");
+
+    QueryBuilder builder = new QueryBuilder()
+            .select().all()
+            .from().dataSet(identifier)
+            .getBuilder();
+
+    private Page page(int size, int limit, int offset) {
+        JSONArray results = new JSONArray();
+        for(int i = 0; i < size; i++) {
+            results.put(new JSONObject().put("c0", offset + i));
+        }
+        return new Page(new JSONObject().put("results", results), limit, offset);
+    }
+
+    private static class RecordingSubscriber implements Subscriber<Record> {
+        Subscription subscription;
+        final List<Record> records = new ArrayList();
+        Throwable error;
+        boolean complete = false;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Record record) {
+            records.add(record);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            complete = true;
+        }
+    }
+
+    @Test
+    public void testFetchesWindowsOnDemand() {
+        Client client = mock(Client.class);
+        when(client.fetchPageAsync(builder, 2, 0)).thenReturn(CompletableFuture.completedFuture(page(2, 2, 0)));
+        when(client.fetchPageAsync(builder, 2, 2)).thenReturn(CompletableFuture.completedFuture(page(1, 2, 2)));
+
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new RecordPublisher(builder, client, 2).subscribe(subscriber);
+        verify(client, never()).fetchPageAsync(any(QueryBuilder.class), anyInt(), anyInt());
+
+        subscriber.subscription.request(1);
+        assertEquals(1, subscriber.records.size());
+        verify(client, never()).fetchPageAsync(builder, 2, 2);
+
+        subscriber.subscription.request(1);
+        assertEquals(2, subscriber.records.size());
+        verify(client, never()).fetchPageAsync(builder, 2, 2);
+
+        subscriber.subscription.request(5);
+        assertEquals(3, subscriber.records.size());
+        assertTrue(subscriber.complete);
+        assertNull(subscriber.error);
+        verify(client, times(2)).fetchPageAsync(any(QueryBuilder.class), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testDeliversWindowWhenItArrives() {
+        Client client = mock(Client.class);
+        CompletableFuture<Page> first = new CompletableFuture();
+        when(client.fetchPageAsync(builder, 2, 0)).thenReturn(first);
+
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new RecordPublisher(builder, client, 2).subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertTrue(subscriber.records.isEmpty());
+
+        first.complete(page(1, 2, 0));
+        assertEquals(1, subscriber.records.size());
+        assertTrue(subscriber.complete);
+    }
+
+    @Test
+    public void testCancelStopsFetching() {
+        Client client = mock(Client.class);
+        CompletableFuture<Page> first = new CompletableFuture();
+        when(client.fetchPageAsync(builder, 2, 0)).thenReturn(first);
+
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new RecordPublisher(builder, client, 2).subscribe(subscriber);
+        subscriber.subscription.request(10);
+        subscriber.subscription.cancel();
+
+        assertTrue(first.isCancelled());
+        assertTrue(subscriber.records.isEmpty());
+        assertFalse(subscriber.complete);
+        assertNull(subscriber.error);
+        verify(client, times(1)).fetchPageAsync(any(QueryBuilder.class), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testErrorIsSignalled() {
+        Client client = mock(Client.class);
+        CompletableFuture<Page> failed = new CompletableFuture();
+        failed.completeExceptionally(new QueryException("You did a bad query"));
+        when(client.fetchPageAsync(builder, 2, 0)).thenReturn(failed);
+
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new RecordPublisher(builder, client, 2).subscribe(subscriber);
+        subscriber.subscription.request(1);
+
+        assertTrue(subscriber.error instanceof QueryException);
+        assertFalse(subscriber.complete);
+    }
+
+    @Test
+    public void testNonPositiveRequestIsAnError() {
+        Client client = mock(Client.class);
+
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        new RecordPublisher(builder, client, 2).subscribe(subscriber);
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        verify(client, never()).fetchPageAsync(any(QueryBuilder.class), anyInt(), anyInt());
+    }
+}
@@ -0,0 +1,92 @@
+package namara.client;
+
+import namara.client.exception.ColumnNotFoundException;
+import namara.client.exception.ConnectionException;
+import namara.client.exception.NamaraException;
+import org.junit.Test;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class RecordStreamTest {
+    private RecordStream streamOf(String body) {
+        StringReader reader = new StringReader(body);
+        return new RecordStream(reader, reader, "http://example.namara.io/v0/query");
+    }
+
+    @Test
+    public void testReadsRecordsInOrder() throws ColumnNotFoundException {
+        RecordStream stream = streamOf("{\"results\":[{\"c0\":\"xx\"},{\"c0\":\"zz\"},{\"c0\":\"hh\"}]}");
+
+        assertTrue(stream.hasNext());
+        assertEquals("xx", stream.next().getValue("c0").asString());
+        assertEquals("zz", stream.next().getValue("c0").asString());
+        assertEquals("hh", stream.next().getValue("c0").asString());
+        assertFalse(stream.hasNext());
+        assertFalse(stream.hasException());
+    }
+
+    @Test
+    public void testSkipsOtherMembers() throws ColumnNotFoundException {
+        RecordStream stream = streamOf("{ \"meta\": {\"took\": [1, 2, {\"a\": \"]\"}]}, \"count\": 1, " +
+                "\"results\": [ {\"c0\": 12} ] }");
+
+        assertTrue(stream.hasNext());
+        assertEquals(Integer.valueOf(12), stream.next().getValue("c0").asInt());
+        assertFalse(stream.hasNext());
+    }
+
+    @Test
+    public void testEmptyResults() {
+        RecordStream stream = streamOf("{\"results\":[]}");
+
+        assertFalse(stream.hasNext());
+        assertFalse(stream.hasException());
+    }
+
+    @Test
+    public void testNoResultsKey() {
+        RecordStream stream = streamOf("{\"status\":\"ok\"}");
+
+        assertFalse(stream.hasNext());
+        assertFalse(stream.hasException());
+    }
+
+    @Test(expected = ConnectionException.class)
+    public void testTruncatedResponse() throws NamaraException {
+        RecordStream stream = streamOf("{\"results\":[{\"c0\":\"xx\"},{\"c0\":");
+
+        assertTrue(stream.hasNext());
+        stream.next();
+        assertFalse(stream.hasNext());
+        assertTrue(stream.hasException());
+        stream.throwException();
+    }
+
+    @Test
+    public void testClosedWhenReadingFails() {
+        AtomicBoolean closed = new AtomicBoolean();
+        Reader failing = new Reader() {
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                throw new IllegalStateException("Reader failed");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        RecordStream stream = new RecordStream(failing, () -> closed.set(true), "http://example.namara.io/v0/query");
+
+        try {
+            stream.hasNext();
+            fail("Expected the read to fail");
+        } catch(IllegalStateException e) {
+            // Expected
+        }
+        assertTrue(closed.get());
+    }
+}
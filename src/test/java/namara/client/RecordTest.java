@@ -1,11 +1,13 @@
 package namara.client;
 
 import namara.client.exception.ColumnNotFoundException;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.Test;
 
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.Assert.*;
@@ -56,4 +58,40 @@ public class RecordTest {
     public void testGetValueNotFound() throws ColumnNotFoundException {
         entity.getValue("Doesnt' exist");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testGetValueByIndex() {
+        int index = entity.getSchema().indexOf("foo");
+
+        assertEquals("foo", entity.getSchema().getColumnName(index));
+        assertEquals("test", entity.getValue(index).asString());
+        assertEquals(-1, entity.getSchema().indexOf("Doesnt' exist"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetValueByIndexNotFound() {
+        entity.getValue(2);
+    }
+
+    @Test
+    public void testNullValue() throws ColumnNotFoundException {
+        Record record = new Record(new JSONObject().put("foo", JSONObject.NULL));
+
+        assertTrue(record.getValue("foo").isNull());
+        assertEquals("{\"foo\":null}", record.toString());
+    }
+
+    @Test
+    public void testPageSharesSchema() {
+        JSONArray results = new JSONArray()
+                .put(new JSONObject().put("foo", "a").put("bar", 1))
+                .put(new JSONObject().put("bar", 2).put("foo", "b"))
+                .put(new JSONObject().put("foo", "c").put("baz", 3));
+        List<Record> records = new Page(new JSONObject().put("results", results), 250, 0).getRecords();
+
+        assertSame(records.get(0).getSchema(), records.get(1).getSchema());
+        assertNotSame(records.get(1).getSchema(), records.get(2).getSchema());
+        assertEquals("b", records.get(1).getValue(records.get(0).getSchema().indexOf("foo")).asString());
+        assertEquals(3, records.get(2).getValue(records.get(2).getSchema().indexOf("baz")).asInt().intValue());
+    }
+}
@@ -1,5 +1,6 @@
 package namara.client;
 
+import namara.client.exception.ColumnNotFoundException;
 import namara.client.exception.NamaraException;
 import namara.client.exception.QueryException;
 import namara.query.Identifier;
@@ -10,8 +11,16 @@ import org.json.JSONObject;
 
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import static org.mockito.Mockito.*;
 import static org.junit.Assert.*;
@@ -48,6 +57,106 @@ public class ResultSetTest {
             recordList.add(resultSet.next());
         }
         assertEquals(3, recordList.size());
+        assertEquals(2, resultSet.getPageCount());
+    }
+
+    public static class Row {
+        private String c0;
+        private String c1;
+    }
+
+    @Test
+    public void testResultIteratorAs() throws NamaraException {
+        JSONArray resultsCollection = new JSONArray()
+                .put(new JSONObject().put("c0", "xx").put("c1", "yy"))
+                .put(new JSONObject().put("c0", "zz").put("c1", "tt"));
+        JSONObject responseObject = new JSONObject().put("results", resultsCollection);
+        JSONObject emptyResponse = new JSONObject().put("results", new JSONArray());
+
+        Client client = mock(Client.class);
+        when(client.query(anyString())).thenReturn(responseObject).thenReturn(emptyResponse);
+
+        QueryBuilder builder = new QueryBuilder()
+                .select().all()
+                .from().dataSet(identifier)
+                .getBuilder();
+
+        ResultSet resultSet = new ResultSet(builder, client, 250);
+        List<Row> rows = new ArrayList();
+        resultSet.as(Row.class).forEachRemaining(rows::add);
+
+        assertEquals(2, rows.size());
+        assertEquals("xx", rows.get(0).c0);
+        assertEquals("tt", rows.get(1).c1);
+        assertFalse(resultSet.hasException());
+    }
+
+    @Test
+    public void testResultIteratorToColumns() throws NamaraException, ColumnNotFoundException {
+        JSONArray firstWindow = new JSONArray()
+                .put(new JSONObject().put("c0", 1))
+                .put(new JSONObject().put("c0", 2));
+        JSONArray secondWindow = new JSONArray()
+                .put(new JSONObject().put("c0", 3));
+
+        Client client = mock(Client.class);
+        when(client.query(anyString()))
+                .thenReturn(new JSONObject().put("results", firstWindow))
+                .thenReturn(new JSONObject().put("results", secondWindow))
+                .thenReturn(new JSONObject().put("results", new JSONArray()));
+
+        QueryBuilder builder = new QueryBuilder()
+                .select().all()
+                .from().dataSet(identifier)
+                .getBuilder();
+
+        ResultSet resultSet = new ResultSet(builder, client, 2);
+        List<ColumnarPage> pages = new ArrayList();
+        resultSet.toColumns().forEachRemaining(pages::add);
+
+        assertEquals(2, pages.size());
+        assertArrayEquals(new long[] { 1, 2 }, pages.get(0).getColumn("c0").getLongs());
+        assertArrayEquals(new long[] { 3 }, pages.get(1).getColumn("c0").getLongs());
+        assertFalse(resultSet.hasException());
+    }
+
+    @Test
+    public void testWriteCsv() throws NamaraException, IOException {
+        JSONArray firstWindow = new JSONArray()
+                .put(new JSONObject().put("c0", 1).put("c1", "a,b"))
+                .put(new JSONObject().put("c0", 2).put("c1", JSONObject.NULL));
+        JSONArray secondWindow = new JSONArray()
+                .put(new JSONObject().put("c0", 3).put("c1", "c"));
+
+        Client client = mock(Client.class);
+        when(client.query(anyString()))
+                .thenReturn(new JSONObject().put("results", firstWindow))
+                .thenReturn(new JSONObject().put("results", secondWindow))
+                .thenReturn(new JSONObject().put("results", new JSONArray()));
+
+        QueryBuilder builder = new QueryBuilder()
+                .select().all()
+                .from().dataSet(identifier)
+                .getBuilder();
+
+        ResultSet resultSet = new ResultSet(builder, client, 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(3, resultSet.writeCsv(out));
+        assertEquals("c0,c1\r\n1,\"a,b\"\r\n2,\r\n3,c\r\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = QueryException.class)
+    public void testWriteCsvWithError() throws NamaraException, IOException {
+        Client client = mock(Client.class);
+        when(client.query(anyString())).thenThrow(new QueryException("You did a bad query"));
+
+        QueryBuilder builder = new QueryBuilder()
+                .select().all()
+                .from().dataSet(falseIdentifier)
+                .getBuilder();
+
+        new ResultSet(builder, client, 250).writeCsv(new ByteArrayOutputStream());
     }
 
     @Test(expected = QueryException.class)
@@ -98,4 +207,201 @@ public class ResultSetTest {
         assertEquals(0, recordList.size());
         assertFalse(resultSet.hasException());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPrefetchedResultIteratorInOrder() throws NamaraException, ColumnNotFoundException {
+        // Respond to each window with one record per row, tagged with its absolute offset
+        Client client = mock(Client.class);
+        when(client.fetchPageAsync(any(QueryBuilder.class), anyInt(), anyInt())).thenAnswer(invocation -> {
+            int limit = invocation.getArgument(1);
+            int offset = invocation.getArgument(2);
+            List<Record> records = new ArrayList();
+            for(int i = 0; i < limit; i++) {
+                records.add(new Record(new JSONObject().put("row", offset + i)));
+            }
+            return CompletableFuture.completedFuture(new Page(records, limit, offset));
+        });
+
+        QueryBuilder builder = new QueryBuilder(5)
+                .select().all()
+                .from().dataSet(identifier)
+                .getBuilder();
+
+        ResultSet resultSet = new ResultSet(builder, client, 2).prefetch(3);
+        List<Integer> rows = new ArrayList();
+        while(resultSet.hasNext()) {
+            rows.add(resultSet.next().getValue("row").asInt());
+        }
+
+        assertFalse(resultSet.hasException());
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), rows);
+        verify(client, times(3)).fetchPageAsync(any(QueryBuilder.class), anyInt(), anyInt());
+    }
+
+    @Test(expected = QueryException.class)
+    public void testPrefetchedResultIteratorWithError() throws NamaraException {
+        Client client = mock(Client.class);
+        CompletableFuture<Page> failed = new CompletableFuture();
+        failed.completeExceptionally(new QueryException("You did a bad query"));
+        when(client.fetchPageAsync(any(QueryBuilder.class), anyInt(), anyInt())).thenReturn(failed);
+
+        QueryBuilder builder = new QueryBuilder()
+                .select().all()
+                .from().dataSet(falseIdentifier)
+                .getBuilder();
+
+        ResultSet resultSet = new ResultSet(builder, client, 250).prefetch(2);
+        while(resultSet.hasNext()) {
+            resultSet.next();
+        }
+
+        assertTrue(resultSet.hasException());
+        resultSet.throwException();
+    }
+
+    @Test
+    public void testStreamingResultIterator() throws NamaraException {
+        String page = "{\"results\":[{\"c0\":\"xx\"},{\"c0\":\"zz\"},{\"c0\":\"hh\"}]}";
+        String emptyPage = "{\"results\":[]}";
+
+        Client client = mock(Client.class);
+        when(client.queryStream(anyString()))
+                .thenReturn(new RecordStream(new StringReader(page), new StringReader(page), ""))
+                .thenReturn(new RecordStream(new StringReader(emptyPage), new StringReader(emptyPage), ""));
+
+        QueryBuilder builder = new QueryBuilder()
+                .select().all()
+                .from().dataSet(identifier)
+                .getBuilder();
+
+        ResultSet resultSet = new ResultSet(builder, client, 250).streaming(true);
+        List<Record> recordList = new ArrayList();
+        while(resultSet.hasNext()) {
+            recordList.add(resultSet.next());
+        }
+
+        assertEquals(3, recordList.size());
+        assertFalse(resultSet.hasException());
+    }
+
+    @Test
+    public void testCloseReleasesStream() throws NamaraException {
+        String page = "{\"results\":[{\"c0\":\"xx\"},{\"c0\":\"zz\"}]}";
+        AtomicBoolean released = new AtomicBoolean();
+
+        Client client = mock(Client.class);
+        when(client.queryStream(anyString()))
+                .thenReturn(new RecordStream(new StringReader(page), () -> released.set(true), ""));
+
+        QueryBuilder builder = new QueryBuilder()
+                .select().all()
+                .from().dataSet(identifier)
+                .getBuilder();
+
+        ResultSet resultSet = new ResultSet(builder, client, 250).streaming(true);
+        assertTrue(resultSet.hasNext());
+        resultSet.next();
+        assertFalse(released.get());
+
+        // Stopping before the end of the window still releases the response
+        resultSet.close();
+        assertTrue(released.get());
+        assertFalse(resultSet.hasNext());
+        verify(client, times(1)).queryStream(anyString());
+    }
+
+    @Test
+    public void testStreamingWindowReportedToListener() throws NamaraException {
+        String page = "{\"results\":[{\"c0\":\"xx\"},{\"c0\":\"zz\"}]}";
+
+        Client client = mock(Client.class);
+        when(client.queryStream(anyString())).thenReturn(new RecordStream(new StringReader(page), new StringReader(page), ""));
+
+        List<String> events = new ArrayList();
+        ClientListener listener = new ClientListener() {
+            @Override
+            public void parseEnd(QueryInfo query, long durationNanos) {
+                events.add("parseEnd " + query.getLimit());
+            }
+
+            @Override
+            public void pageDelivered(QueryInfo query, int records) {
+                events.add("pageDelivered " + records);
+            }
+        };
+        when(client.hasListener()).thenReturn(true);
+        doAnswer(invocation -> {
+            invocation.<Consumer<ClientListener>>getArgument(0).accept(listener);
+            return null;
+        }).when(client).notifyListener(any());
+
+        QueryBuilder builder = new QueryBuilder()
+                .select().all()
+                .from().dataSet(identifier)
+                .getBuilder();
+
+        ResultSet resultSet = new ResultSet(builder, client, 250).streaming(true);
+        for(int i = 0; i < 2; i++) {
+            assertTrue(resultSet.hasNext());
+            resultSet.next();
+        }
+        assertTrue(events.isEmpty());
+
+        // The window is reported once it has been read to the end
+        resultSet.hasNext();
+        assertEquals(Arrays.asList("parseEnd 250", "pageDelivered 2"), events);
+    }
+
+    @Test
+    public void testKeysetResultIterator() throws NamaraException {
+        JSONObject firstPage = new JSONObject().put("results", new JSONArray()
+                .put(new JSONObject().put("id", 1))
+                .put(new JSONObject().put("id", 2)));
+        JSONObject secondPage = new JSONObject().put("results", new JSONArray()
+                .put(new JSONObject().put("id", 3)));
+        JSONObject emptyResponse = new JSONObject().put("results", new JSONArray());
+
+        Client client = mock(Client.class);
+        when(client.query(anyString())).thenReturn(firstPage).thenReturn(secondPage).thenReturn(emptyResponse);
+
+        QueryBuilder builder = new QueryBuilder()
+                .select().all()
+                .from().dataSet(identifier)
+                .getBuilder();
+
+        ResultSet resultSet = new ResultSet(builder, client, 2).keyset("id");
+        List<Record> recordList = new ArrayList();
+        while(resultSet.hasNext()) {
+            recordList.add(resultSet.next());
+        }
+
+        assertEquals(3, recordList.size());
+        assertFalse(resultSet.hasException());
+
+        String base = "SELECT * FROM (" + builder.toString().trim() + ") AS keyset";
+        verify(client).query(base + " ORDER BY id LIMIT 2 OFFSET 0");
+        verify(client).query(base + " WHERE id > 2 ORDER BY id LIMIT 2 OFFSET 0");
+        verify(client).query(base + " WHERE id > 3 ORDER BY id LIMIT 2 OFFSET 0");
+    }
+
+    @Test(expected = QueryException.class)
+    public void testKeysetMissingColumn() throws NamaraException {
+        JSONObject page = new JSONObject().put("results", new JSONArray().put(new JSONObject().put("c0", "xx")));
+
+        Client client = mock(Client.class);
+        when(client.query(anyString())).thenReturn(page);
+
+        QueryBuilder builder = new QueryBuilder()
+                .select().all()
+                .from().dataSet(identifier)
+                .getBuilder();
+
+        ResultSet resultSet = new ResultSet(builder, client, 1).keyset("id");
+        while(resultSet.hasNext()) {
+            resultSet.next();
+        }
+
+        assertTrue(resultSet.hasException());
+        resultSet.throwException();
+    }
+}
@@ -0,0 +1,70 @@
+package namara.client;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RetryPolicyTest {
+    @Test
+    public void testExponentialBackoffWithoutJitter() {
+        RetryPolicy policy = new RetryPolicy().jitter(false).backoff(100, 1000, TimeUnit.MILLISECONDS, 2.0);
+
+        assertEquals(100, policy.backoffMillis(1, null));
+        assertEquals(200, policy.backoffMillis(2, null));
+        assertEquals(400, policy.backoffMillis(3, null));
+        assertEquals(1000, policy.backoffMillis(5, null));
+    }
+
+    @Test
+    public void testJitterStaysWithinBackoff() {
+        RetryPolicy policy = new RetryPolicy().backoff(100, 1000, TimeUnit.MILLISECONDS, 2.0);
+
+        for(int i = 0; i < 100; i++) {
+            long backoff = policy.backoffMillis(2, null);
+            assertTrue(backoff >= 0 && backoff <= 200);
+        }
+    }
+
+    @Test
+    public void testRetryAfterSeconds() {
+        RetryPolicy policy = new RetryPolicy();
+        assertEquals(3000, policy.backoffMillis(1, "3"));
+    }
+
+    @Test
+    public void testRetryAfterIsCapped() {
+        RetryPolicy policy = new RetryPolicy().maxRetryAfter(5, TimeUnit.SECONDS);
+        assertEquals(5000, policy.backoffMillis(1, "3600"));
+    }
+
+    @Test
+    public void testRetryAfterHttpDate() {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        String inTenSeconds = format.format(new Date(System.currentTimeMillis() + 10000));
+
+        long delay = RetryPolicy.parseRetryAfter(inTenSeconds);
+        assertTrue(delay > 8000 && delay <= 10000);
+    }
+
+    @Test
+    public void testUnreadableRetryAfter() {
+        assertEquals(-1, RetryPolicy.parseRetryAfter("soon"));
+        assertEquals(-1, RetryPolicy.parseRetryAfter(null));
+    }
+
+    @Test
+    public void testRetryableStatuses() {
+        RetryPolicy policy = new RetryPolicy();
+        assertTrue(policy.isRetryable(503));
+        assertTrue(policy.isRetryable(429));
+        assertFalse(policy.isRetryable(422));
+        assertFalse(policy.isRetryable(401));
+    }
+}
@@ -0,0 +1,71 @@
+package namara.client;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ValueCursorTest {
+    JSONObject json = new JSONObject().put("foo", "test").put("bar", 12).put("baz", JSONObject.NULL);
+    Record entity = new Record(json);
+
+    @Test
+    public void testCursor() {
+        ValueCursor cursor = entity.cursor();
+        List<String> keys = new ArrayList();
+        List<Object> values = new ArrayList();
+        Value first = null;
+
+        while(cursor.next()) {
+            if(first == null) {
+                first = cursor.value();
+            }
+            assertSame(first, cursor.value());
+            assertEquals(keys.size(), cursor.getIndex());
+
+            keys.add(cursor.getKey());
+            values.add(cursor.value().get());
+        }
+
+        assertEquals(new ArrayList(entity.columnsNames()), keys);
+        assertTrue(values.containsAll(Arrays.asList("test", 12, JSONObject.NULL)));
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void testReset() {
+        ValueCursor cursor = new ValueCursor();
+        assertFalse(cursor.next());
+
+        Record other = new Record(new JSONObject().put("qux", 1.5));
+        cursor.reset(entity);
+        int columns = 0;
+        while(cursor.next()) {
+            columns++;
+        }
+        assertEquals(3, columns);
+
+        cursor.reset(other);
+        assertTrue(cursor.next());
+        assertEquals("qux", cursor.getKey());
+        assertEquals(Double.valueOf(1.5), cursor.value().asDouble());
+        assertFalse(cursor.next());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testValueBeforeNext() {
+        entity.cursor().value();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testValueAfterEnd() {
+        ValueCursor cursor = entity.cursor();
+        while(cursor.next()) {
+        }
+        cursor.value();
+    }
+}
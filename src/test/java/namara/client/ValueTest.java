@@ -8,6 +8,11 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 import java.util.Date;
 
 import static org.junit.Assert.*;
@@ -269,6 +274,114 @@ public class ValueTest {
         assertEquals("1970-01-01", new SimpleDateFormat("yyyy-MM-dd").format(date));
     }
 
+    /*
+     * == Testing java.time conversions ==
+     */
+    @Test
+    public void testStringAsLocalDate() {
+        JSONObject object = new JSONObject().put("val", "2015-02-05");
+        Value value = new Value("val", object);
+        assertEquals(LocalDate.of(2015, 2, 5), value.asLocalDate());
+    }
+
+    @Test
+    public void testStringAsLocalDateWithPattern() {
+        JSONObject object = new JSONObject().put("val", "05/02/2015");
+        Value value = new Value("val", object);
+        assertEquals(LocalDate.of(2015, 2, 5), value.asLocalDate("dd/MM/yyyy"));
+    }
+
+    @Test(expected = ValueConversionException.class)
+    public void testIntAsLocalDate() {
+        JSONObject object = new JSONObject().put("val", 20150205);
+        Value value = new Value("val", object);
+        value.asLocalDate();
+    }
+
+    @Test(expected = ValueConversionException.class)
+    public void testNullAsLocalDate() {
+        JSONObject object = new JSONObject().put("val", JSONObject.NULL);
+        Value value = new Value("val", object);
+        value.asLocalDate();
+    }
+
+    @Test
+    public void testTryBadStringAsLocalDate() {
+        JSONObject object = new JSONObject().put("val", "2015-02-30");
+        Value value = new Value("val", object);
+        assertEquals(LocalDate.MIN, value.tryLocalDate(LocalDate.MIN));
+    }
+
+    @Test
+    public void testStringAsLocalDateTime() {
+        JSONObject object = new JSONObject().put("val", "2015-02-05 13:45:10.25");
+        Value value = new Value("val", object);
+        assertEquals(LocalDateTime.of(2015, 2, 5, 13, 45, 10, 250000000), value.asLocalDateTime());
+    }
+
+    @Test
+    public void testStringAsLocalDateTimeWithPattern() {
+        JSONObject object = new JSONObject().put("val", "20150205 1345");
+        Value value = new Value("val", object);
+        assertEquals(LocalDateTime.of(2015, 2, 5, 13, 45), value.asLocalDateTime("yyyyMMdd HHmm"));
+    }
+
+    @Test(expected = ValueConversionException.class)
+    public void testBadStringAsLocalDateTime() {
+        JSONObject object = new JSONObject().put("val", "This Is a test");
+        Value value = new Value("val", object);
+        value.asLocalDateTime();
+    }
+
+    @Test
+    public void testStringAsOffsetDateTime() {
+        JSONObject object = new JSONObject().put("val", "2015-02-05T13:45:00-04:00");
+        Value value = new Value("val", object);
+        assertEquals(OffsetDateTime.of(2015, 2, 5, 13, 45, 0, 0, ZoneOffset.ofHours(-4)), value.asOffsetDateTime());
+    }
+
+    @Test
+    public void testTryStringWithoutOffsetAsOffsetDateTime() {
+        JSONObject object = new JSONObject().put("val", "2015-02-05T13:45:00");
+        Value value = new Value("val", object);
+        assertNull(value.tryOffsetDateTime(null));
+    }
+
+    @Test
+    public void testStringAsInstant() {
+        JSONObject object = new JSONObject().put("val", "2015-02-05T13:45:00Z");
+        Value value = new Value("val", object);
+        assertEquals(Instant.parse("2015-02-05T13:45:00Z"), value.asInstant());
+    }
+
+    @Test
+    public void testStringWithoutOffsetAsInstant() {
+        JSONObject object = new JSONObject().put("val", "2015-02-05T13:45:00");
+        Value value = new Value("val", object);
+        assertEquals(Instant.parse("2015-02-05T13:45:00Z"), value.asInstant());
+    }
+
+    @Test
+    public void testLongAsInstant() {
+        JSONObject object = new JSONObject().put("val", 1423143900000L);
+        Value value = new Value("val", object);
+        assertEquals(Instant.parse("2015-02-05T13:45:00Z"), value.asInstant());
+    }
+
+    @Test(expected = ValueConversionException.class)
+    public void testNullAsInstant() {
+        JSONObject object = new JSONObject().put("val", JSONObject.NULL);
+        Value value = new Value("val", object);
+        value.asInstant();
+    }
+
+    @Test
+    public void testTryNullAsInstant() {
+        JSONObject object = new JSONObject().put("val", JSONObject.NULL);
+        Value value = new Value("val", object);
+        assertEquals(Instant.EPOCH, value.tryInstant(Instant.EPOCH));
+    }
+
     /*
      * == Testing asDouble ==
      */
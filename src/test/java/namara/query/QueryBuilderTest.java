@@ -477,4 +477,48 @@ public class QueryBuilderTest {
 
         assertEquals("SELECT * FROM data-set-uuid1/en-0 WHERE count > ALL (SELECT column4 FROM data-set-uuid2/en-1)", queryString);
     }
-}
\ No newline at end of file
+
+    /*
+     * ================= Testing Keyset Pagination ==================
+     */
+    @Test
+    public void testBuildKeysetQueryFirstPage() {
+        String query = "SELECT * FROM data-set-uuid1/en-0 WHERE count > 5";
+        String queryString = new QueryBuilder(query).buildKeysetQuery("id", null, 10, 0);
+        assertEquals("SELECT * FROM (" + query + ") AS keyset ORDER BY id LIMIT 10 OFFSET 0", queryString);
+    }
+
+    @Test
+    public void testBuildKeysetQueryAfterNumber() {
+        String query = "SELECT * FROM data-set-uuid1/en-0";
+        String queryString = new QueryBuilder(query).buildKeysetQuery("id", 42L, 10, 0);
+        assertEquals("SELECT * FROM (" + query + ") AS keyset WHERE id > 42 ORDER BY id LIMIT 10 OFFSET 0", queryString);
+    }
+
+    @Test
+    public void testBuildKeysetQueryAfterString() {
+        String query = "SELECT * FROM data-set-uuid1/en-0";
+        String queryString = new QueryBuilder(query).buildKeysetQuery("name", "O'Brien", 10, 0);
+        assertEquals("SELECT * FROM (" + query + ") AS keyset WHERE name > 'O''Brien' ORDER BY name LIMIT 10 OFFSET 0",
+                queryString);
+    }
+
+    /*
+     * ================= Testing Partitions =========================
+     */
+    @Test
+    public void testPartition() {
+        String query = "SELECT * FROM data-set-uuid1/en-0 WHERE count > 5";
+        String queryString = new QueryBuilder(query).partition("id", 1, 100, false).toString().trim();
+        assertEquals("SELECT * FROM (" + query + ") AS parts WHERE id >= 1 AND id < 100", queryString);
+    }
+
+    @Test
+    public void testPartitionIncludingEnd() {
+        String query = "SELECT * FROM data-set-uuid1/en-0";
+        String queryString = new QueryBuilder(query).partition("created", "'2018-01-01'", "'2018-01-31'", true)
+                .toString().trim();
+        assertEquals("SELECT * FROM (" + query + ") AS parts WHERE created >= '2018-01-01' AND created <= '2018-01-31'",
+                queryString);
+    }
+}